@@ -0,0 +1,184 @@
+package legend.core.memory.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a {@code <class>_MethodIndex} for each class that declares {@code @Method}s, and lists the classes marked
+ * {@code @EntryPoint} in {@value #ENTRY_POINTS}, so that the runtime doesn't have to find either reflectively
+ */
+@SupportedAnnotationTypes({MethodIndexProcessor.METHOD, MethodIndexProcessor.ENTRY_POINT})
+@SupportedSourceVersion(SourceVersion.RELEASE_17)
+public class MethodIndexProcessor extends AbstractProcessor {
+  static final String METHOD = "legend.core.memory.Method";
+  static final String ENTRY_POINT = "legend.core.memory.EntryPoint";
+  private static final String METHOD_INDEX = "legend.core.memory.MethodIndex";
+  private static final String ENTRY_POINTS = "META-INF/legend/entry-points";
+
+  private final Set<String> entryPoints = new TreeSet<>();
+
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+    final TypeElement method = this.processingEnv.getElementUtils().getTypeElement(METHOD);
+    final TypeElement entryPoint = this.processingEnv.getElementUtils().getTypeElement(ENTRY_POINT);
+
+    if(method != null) {
+      final Set<TypeElement> owners = new LinkedHashSet<>();
+
+      for(final Element element : roundEnv.getElementsAnnotatedWith(method)) {
+        owners.add((TypeElement)element.getEnclosingElement());
+      }
+
+      for(final TypeElement owner : owners) {
+        this.index(owner, method);
+      }
+    }
+
+    if(entryPoint != null) {
+      for(final Element element : roundEnv.getElementsAnnotatedWith(entryPoint)) {
+        this.entryPoints.add(this.processingEnv.getElementUtils().getBinaryName((TypeElement)element).toString());
+      }
+    }
+
+    if(roundEnv.processingOver() && !this.entryPoints.isEmpty()) {
+      try(final PrintWriter out = new PrintWriter(this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ENTRY_POINTS).openWriter())) {
+        for(final String name : this.entryPoints) {
+          out.println(name);
+        }
+      } catch(final IOException e) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + ENTRY_POINTS + ": " + e.getMessage());
+      }
+    }
+
+    return false;
+  }
+
+  private void index(final TypeElement owner, final TypeElement annotation) {
+    if(owner.getNestingKind() != NestingKind.TOP_LEVEL && (owner.getNestingKind() != NestingKind.MEMBER || owner.getModifiers().contains(Modifier.PRIVATE))) {
+      this.warn(owner, "Can't index methods of a private, local or anonymous class - they will be scanned at runtime");
+      return;
+    }
+
+    final List<Entry> entries = new ArrayList<>();
+    final Map<Long, ExecutableElement> addresses = new HashMap<>();
+
+    for(final Element member : this.processingEnv.getElementUtils().getAllMembers(owner)) {
+      if(member.getKind() != ElementKind.METHOD) {
+        continue;
+      }
+
+      final AnnotationMirror mirror = this.getAnnotation(member, annotation);
+      if(mirror == null) {
+        continue;
+      }
+
+      final ExecutableElement method = (ExecutableElement)member;
+      if(!method.getModifiers().contains(Modifier.PUBLIC)) {
+        this.warn(method, "@Method on a non-public method is ignored");
+        continue;
+      }
+
+      long address = 0;
+      boolean ignoreExtraParams = false;
+      for(final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : this.processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+        switch(value.getKey().getSimpleName().toString()) {
+          case "value" -> address = (Long)value.getValue().getValue();
+          case "ignoreExtraParams" -> ignoreExtraParams = (Boolean)value.getValue().getValue();
+        }
+      }
+
+      final ExecutableElement existing = addresses.putIfAbsent(address, method);
+      if(existing != null) {
+        this.error(method, "@Method address " + Long.toHexString(address) + " is already used by " + existing.getSimpleName());
+        continue;
+      }
+
+      entries.add(new Entry(address, method, ignoreExtraParams));
+    }
+
+    try {
+      this.generate(owner, entries);
+    } catch(final IOException e) {
+      this.error(owner, "Failed to generate method index: " + e.getMessage());
+    }
+  }
+
+  private void generate(final TypeElement owner, final List<Entry> entries) throws IOException {
+    final String packageName = this.processingEnv.getElementUtils().getPackageOf(owner).getQualifiedName().toString();
+    final String binaryName = this.processingEnv.getElementUtils().getBinaryName(owner).toString();
+    final String name = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_') + "_MethodIndex";
+    final String ownerName = owner.getQualifiedName().toString();
+
+    try(final PrintWriter out = new PrintWriter(this.processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? name : packageName + '.' + name, owner).openWriter())) {
+      if(!packageName.isEmpty()) {
+        out.println("package " + packageName + ';');
+        out.println();
+      }
+
+      out.println("import javax.annotation.processing.Generated;");
+      out.println();
+      out.println("/**");
+      out.println(" * Method index for {@link " + ownerName + "}");
+      out.println(" */");
+      out.println("@Generated(\"" + MethodIndexProcessor.class.getName() + "\")");
+      out.println("public final class " + name + " implements " + METHOD_INDEX + " {");
+      out.println("  @Override");
+      out.println("  public void register(final " + METHOD_INDEX + ".Registrar registrar) throws NoSuchMethodException {");
+
+      for(final Entry entry : entries) {
+        final StringBuilder params = new StringBuilder();
+        for(final VariableElement param : entry.method.getParameters()) {
+          params.append(", ").append(this.processingEnv.getTypeUtils().erasure(param.asType())).append(".class");
+        }
+
+        out.println("    registrar.add(0x" + Long.toHexString(entry.address) + "L, " + ownerName + ".class.getMethod(\"" + entry.method.getSimpleName() + '"' + params + "), " + entry.ignoreExtraParams + ");");
+      }
+
+      out.println("  }");
+      out.println("}");
+    }
+  }
+
+  private AnnotationMirror getAnnotation(final Element element, final TypeElement annotation) {
+    for(final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if(mirror.getAnnotationType().asElement().equals(annotation)) {
+        return mirror;
+      }
+    }
+
+    return null;
+  }
+
+  private void warn(final Element element, final String message) {
+    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+  }
+
+  private void error(final Element element, final String message) {
+    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private record Entry(long address, ExecutableElement method, boolean ignoreExtraParams) { }
+}
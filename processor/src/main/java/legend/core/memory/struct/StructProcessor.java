@@ -0,0 +1,403 @@
+package legend.core.memory.struct;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the flyweight implementation of each {@code @Struct}. The annotations live in lod-core, so they're read
+ * through their mirrors rather than as classes.
+ */
+@SupportedAnnotationTypes(StructProcessor.STRUCT)
+@SupportedSourceVersion(SourceVersion.RELEASE_17)
+public class StructProcessor extends AbstractProcessor {
+  static final String STRUCT = "legend.core.memory.struct.Struct";
+  private static final String FIELD = "legend.core.memory.struct.Field";
+  private static final String MEMORY_REF = "legend.core.memory.types.MemoryRef";
+
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+    final TypeElement structAnnotation = this.processingEnv.getElementUtils().getTypeElement(STRUCT);
+
+    if(structAnnotation == null) {
+      return false;
+    }
+
+    for(final Element element : roundEnv.getElementsAnnotatedWith(structAnnotation)) {
+      if(element.getKind() != ElementKind.INTERFACE || ((TypeElement)element).getNestingKind() != NestingKind.TOP_LEVEL) {
+        this.error(element, "@Struct must be a top-level interface");
+        continue;
+      }
+
+      final TypeElement struct = (TypeElement)element;
+      final TypeElement memoryRef = this.processingEnv.getElementUtils().getTypeElement(MEMORY_REF);
+      if(memoryRef != null && !this.processingEnv.getTypeUtils().isAssignable(struct.asType(), memoryRef.asType())) {
+        this.error(struct, "@Struct must extend MemoryRef");
+        continue;
+      }
+
+      final List<Accessor> accessors = this.collectAccessors(struct);
+      if(accessors == null) {
+        continue;
+      }
+
+      try {
+        this.generate(struct, accessors);
+      } catch(final IOException e) {
+        this.error(struct, "Failed to generate flyweight: " + e.getMessage());
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the getters and their setters, or null if the layout is invalid (errors have been reported)
+   */
+  private List<Accessor> collectAccessors(final TypeElement struct) {
+    final Map<String, Accessor> accessors = new LinkedHashMap<>();
+    final List<ExecutableElement> setters = new ArrayList<>();
+    boolean valid = true;
+
+    for(final Element member : this.processingEnv.getElementUtils().getAllMembers(struct)) {
+      if(member.getKind() != ElementKind.METHOD || !member.getModifiers().contains(Modifier.ABSTRACT)) {
+        continue;
+      }
+
+      final ExecutableElement method = (ExecutableElement)member;
+      final FieldSpec field = this.getField(method);
+
+      if(field != null) {
+        final Accessor accessor = this.getter(method, field);
+
+        if(accessor == null) {
+          valid = false;
+        } else {
+          accessors.put(method.getSimpleName().toString(), accessor);
+        }
+      } else if(!"getAddress".contentEquals(method.getSimpleName()) || !method.getParameters().isEmpty()) {
+        setters.add(method);
+      }
+    }
+
+    for(final ExecutableElement setter : setters) {
+      final Accessor accessor = accessors.get(setter.getSimpleName().toString());
+
+      if(accessor == null) {
+        this.error(setter, "Abstract method is neither a @Field getter nor a setter for one");
+        valid = false;
+      } else if(!this.isSetter(struct, accessor, setter)) {
+        valid = false;
+      } else {
+        accessor.setters.add(setter);
+      }
+    }
+
+    return valid ? new ArrayList<>(accessors.values()) : null;
+  }
+
+  private Accessor getter(final ExecutableElement method, final FieldSpec field) {
+    final TypeMirror type = method.getReturnType();
+    final TypeElement target = this.getStruct(type);
+
+    if(field.count() > 0 ? method.getParameters().size() != 1 || method.getParameters().get(0).asType().getKind() != TypeKind.INT : !method.getParameters().isEmpty()) {
+      this.error(method, field.count() > 0 ? "Array getters take a single int index" : "Getters take no parameters");
+      return null;
+    }
+
+    if(target != null) {
+      if(!field.inline() && field.size() != 4) {
+        this.error(method, "Pointers are 4 bytes");
+        return null;
+      }
+
+      if(target.getNestingKind() != NestingKind.TOP_LEVEL) {
+        this.error(method, "Struct fields must be top-level @Struct interfaces");
+        return null;
+      }
+
+      final int stride = field.stride() != 0 ? field.stride() : field.inline() ? this.getStructSize(target) : 4;
+      return new Accessor(method, field, target, stride);
+    }
+
+    if(field.inline()) {
+      this.error(method, "Only @Struct fields can be inline");
+      return null;
+    }
+
+    if(field.size() != 1 && field.size() != 2 && field.size() != 4) {
+      this.error(method, "Fields are 1, 2 or 4 bytes");
+      return null;
+    }
+
+    switch(type.getKind()) {
+      case BOOLEAN, BYTE, SHORT, INT, LONG -> { }
+      default -> {
+        this.error(method, "Fields must be boolean, byte, short, int, long or a @Struct");
+        return null;
+      }
+    }
+
+    return new Accessor(method, field, null, field.stride() != 0 ? field.stride() : field.size());
+  }
+
+  private boolean isSetter(final TypeElement struct, final Accessor accessor, final ExecutableElement setter) {
+    final List<? extends VariableElement> params = setter.getParameters();
+    final int valueIndex = accessor.field.count() > 0 ? 1 : 0;
+
+    if(accessor.field.inline()) {
+      this.error(setter, "Inline struct fields can't be set");
+      return false;
+    }
+
+    if(params.size() != valueIndex + 1 || valueIndex == 1 && params.get(0).asType().getKind() != TypeKind.INT || !this.processingEnv.getTypeUtils().isSameType(params.get(valueIndex).asType(), accessor.getter.getReturnType())) {
+      this.error(setter, "Setter must take " + (valueIndex == 1 ? "an int index and " : "") + "a " + accessor.getter.getReturnType());
+      return false;
+    }
+
+    final TypeMirror returnType = setter.getReturnType();
+    if(returnType.getKind() != TypeKind.VOID && !this.processingEnv.getTypeUtils().isSameType(returnType, struct.asType())) {
+      this.error(setter, "Setters return void or the struct");
+      return false;
+    }
+
+    return true;
+  }
+
+  private TypeElement getStruct(final TypeMirror type) {
+    if(type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    final TypeElement element = (TypeElement)((DeclaredType)type).asElement();
+    return this.getValues(element, STRUCT) != null ? element : null;
+  }
+
+  private int getStructSize(final TypeElement struct) {
+    return (Integer)this.getValues(struct, STRUCT).get("value");
+  }
+
+  private FieldSpec getField(final Element method) {
+    final Map<String, Object> values = this.getValues(method, FIELD);
+
+    if(values == null) {
+      return null;
+    }
+
+    return new FieldSpec((Integer)values.get("offset"), (Integer)values.get("size"), (Boolean)values.get("signed"), (Integer)values.get("count"), (Integer)values.get("stride"), (Boolean)values.get("inline"));
+  }
+
+  /**
+   * @return the values of {@code element}'s {@code annotation}, defaults included, or null if it isn't annotated
+   */
+  private Map<String, Object> getValues(final Element element, final String annotation) {
+    for(final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if(((TypeElement)mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+        final Map<String, Object> values = new HashMap<>();
+
+        for(final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : this.processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+          values.put(value.getKey().getSimpleName().toString(), value.getValue().getValue());
+        }
+
+        return values;
+      }
+    }
+
+    return null;
+  }
+
+  private void generate(final TypeElement struct, final List<Accessor> accessors) throws IOException {
+    final String packageName = this.processingEnv.getElementUtils().getPackageOf(struct).getQualifiedName().toString();
+    final String name = struct.getSimpleName() + "Impl";
+
+    try(final PrintWriter out = new PrintWriter(this.processingEnv.getFiler().createSourceFile(packageName + '.' + name, struct).openWriter())) {
+      // Only import what the accessors use, so that the generated code compiles without warnings
+      final boolean signed = accessors.stream().anyMatch(accessor -> accessor.target == null && accessor.field.signed());
+      final boolean indexed = accessors.stream().anyMatch(accessor -> accessor.field.count() > 0);
+
+      out.println("package " + packageName + ';');
+      out.println();
+
+      if(signed) {
+        out.println("import legend.core.MathHelper;");
+        out.println();
+      }
+
+      out.println("import javax.annotation.processing.Generated;");
+
+      if(indexed) {
+        out.println("import java.util.Objects;");
+      }
+
+      out.println();
+
+      if(!accessors.isEmpty()) {
+        out.println("import static legend.core.Hardware.MEMORY;");
+        out.println();
+      }
+
+      out.println("/**");
+      out.println(" * Flyweight for {@link " + struct.getSimpleName() + "}, " + this.getStructSize(struct) + " bytes long");
+      out.println(" */");
+      out.println("@Generated(\"" + StructProcessor.class.getName() + "\")");
+      out.println("public final class " + name + " implements " + struct.getSimpleName() + " {");
+      out.println("  private final long address;");
+      out.println();
+      out.println("  public " + name + "(final long address) {");
+      out.println("    this.address = address;");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public long getAddress() {");
+      out.println("    return this.address;");
+      out.println("  }");
+
+      for(final Accessor accessor : accessors) {
+        this.generateGetter(out, accessor);
+
+        for(final ExecutableElement setter : accessor.setters) {
+          this.generateSetter(out, accessor, setter);
+        }
+      }
+
+      out.println("}");
+    }
+  }
+
+  private void generateGetter(final PrintWriter out, final Accessor accessor) {
+    final ExecutableElement getter = accessor.getter;
+    final TypeMirror type = getter.getReturnType();
+    final String address = this.address(accessor, getter);
+
+    out.println();
+    out.println("  @Override");
+    out.println("  public " + type + ' ' + getter.getSimpleName() + '(' + (accessor.field.count() > 0 ? "final int " + getter.getParameters().get(0).getSimpleName() : "") + ") {");
+    this.generateIndexCheck(out, accessor, getter);
+
+    if(accessor.target != null) {
+      final String impl = this.implName(accessor.target);
+
+      if(accessor.field.inline()) {
+        out.println("    return new " + impl + '(' + address + ");");
+      } else {
+        out.println("    final long pointer = MEMORY.get(" + address + ", 4);");
+        out.println("    return pointer != 0 ? new " + impl + "(pointer) : null;");
+      }
+    } else {
+      String value = "MEMORY.get(" + address + ", " + accessor.field.size() + ')';
+
+      if(accessor.field.signed()) {
+        value = "MathHelper.sign(" + value + ", " + accessor.field.size() + ')';
+      }
+
+      out.println("    return " + switch(type.getKind()) {
+        case BOOLEAN -> value + " != 0";
+        case LONG -> value;
+        default -> '(' + type.toString() + ')' + value;
+      } + ';');
+    }
+
+    out.println("  }");
+  }
+
+  private void generateSetter(final PrintWriter out, final Accessor accessor, final ExecutableElement setter) {
+    final List<? extends VariableElement> params = setter.getParameters();
+    final VariableElement value = params.get(params.size() - 1);
+    final boolean chained = setter.getReturnType().getKind() != TypeKind.VOID;
+
+    out.println();
+    out.println("  @Override");
+    out.print("  public " + setter.getReturnType() + ' ' + setter.getSimpleName() + '(');
+
+    if(accessor.field.count() > 0) {
+      out.print("final int " + params.get(0).getSimpleName() + ", ");
+    }
+
+    out.println("final " + value.asType() + ' ' + value.getSimpleName() + ") {");
+    this.generateIndexCheck(out, accessor, setter);
+
+    final String data;
+    if(accessor.target != null) {
+      data = value.getSimpleName() + " != null ? " + value.getSimpleName() + ".getAddress() : 0";
+    } else if(value.asType().getKind() == TypeKind.BOOLEAN) {
+      data = value.getSimpleName() + " ? 1 : 0";
+    } else {
+      data = value.getSimpleName().toString();
+    }
+
+    out.println("    MEMORY.set(" + this.address(accessor, setter) + ", " + accessor.field.size() + ", " + data + ");");
+
+    if(chained) {
+      out.println("    return this;");
+    }
+
+    out.println("  }");
+  }
+
+  private void generateIndexCheck(final PrintWriter out, final Accessor accessor, final ExecutableElement method) {
+    if(accessor.field.count() > 0) {
+      out.println("    Objects.checkIndex(" + method.getParameters().get(0).getSimpleName() + ", " + accessor.field.count() + ");");
+    }
+  }
+
+  private String address(final Accessor accessor, final ExecutableElement method) {
+    final String base = "this.address + 0x" + Integer.toHexString(accessor.field.offset()) + 'L';
+
+    if(accessor.field.count() > 0) {
+      return base + " + " + method.getParameters().get(0).getSimpleName() + " * " + accessor.stride + 'L';
+    }
+
+    return base;
+  }
+
+  private String implName(final TypeElement struct) {
+    return struct.getQualifiedName() + "Impl";
+  }
+
+  private void error(final Element element, final String message) {
+    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private static final class Accessor {
+    private final ExecutableElement getter;
+    private final FieldSpec field;
+    private final TypeElement target;
+    private final int stride;
+    private final List<ExecutableElement> setters = new ArrayList<>();
+
+    private Accessor(final ExecutableElement getter, final FieldSpec field, final TypeElement target, final int stride) {
+      this.getter = getter;
+      this.field = field;
+      this.target = target;
+      this.stride = stride;
+    }
+  }
+
+  /**
+   * The values of a {@code @Field}
+   */
+  private record FieldSpec(int offset, int size, boolean signed, int count, int stride, boolean inline) { }
+}
@@ -0,0 +1,106 @@
+package legend.core.memory;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles in-memory sources with a processor, so that tests can check both what it generates and that the result
+ * compiles
+ */
+public final class TestCompiler {
+  private TestCompiler() { }
+
+  /**
+   * @param sources source code by qualified class name
+   * @param output where generated sources, resources and classes are written
+   */
+  public static Result compile(final Processor processor, final Path output, final Map<String, String> sources) {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    final List<JavaFileObject> units = new ArrayList<>();
+    for(final Map.Entry<String, String> source : sources.entrySet()) {
+      units.add(new Source(source.getKey(), source.getValue()));
+    }
+
+    try(final StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      files.setLocationFromPaths(StandardLocation.SOURCE_OUTPUT, List.of(output));
+      files.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(output));
+
+      final JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, null, null, units);
+      task.setProcessors(List.of(processor));
+      task.call();
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return new Result(output, diagnostics.getDiagnostics());
+  }
+
+  public record Result(Path output, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+    /**
+     * @return the contents of a generated file, e.g. {@code test/FooImpl.java}
+     */
+    public String read(final String path) {
+      try {
+        return Files.readString(this.output.resolve(path));
+      } catch(final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    public boolean exists(final String path) {
+      return Files.exists(this.output.resolve(path));
+    }
+
+    public List<String> errors() {
+      return this.messages(Diagnostic.Kind.ERROR);
+    }
+
+    public List<String> warnings() {
+      return this.messages(Diagnostic.Kind.WARNING);
+    }
+
+    private List<String> messages(final Diagnostic.Kind kind) {
+      final List<String> messages = new ArrayList<>();
+
+      for(final Diagnostic<? extends JavaFileObject> diagnostic : this.diagnostics) {
+        if(diagnostic.getKind() == kind) {
+          messages.add(diagnostic.getMessage(null));
+        }
+      }
+
+      return messages;
+    }
+  }
+
+  private static final class Source extends SimpleJavaFileObject {
+    private final String code;
+
+    private Source(final String name, final String code) {
+      super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+      this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+      return this.code;
+    }
+  }
+}
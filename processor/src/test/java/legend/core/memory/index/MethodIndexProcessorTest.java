@@ -0,0 +1,150 @@
+package legend.core.memory.index;
+
+import legend.core.memory.TestCompiler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MethodIndexProcessorTest {
+  /** Just enough of lod-core for the generated code to compile */
+  private static final Map<String, String> API = Map.of(
+    "legend.core.memory.Method", """
+      package legend.core.memory;
+      public @interface Method {
+        long value();
+        boolean ignoreExtraParams() default false;
+      }
+      """,
+    "legend.core.memory.EntryPoint", """
+      package legend.core.memory;
+      public @interface EntryPoint { }
+      """,
+    "legend.core.memory.MethodIndex", """
+      package legend.core.memory;
+      public interface MethodIndex {
+        void register(Registrar registrar) throws NoSuchMethodException;
+        interface Registrar {
+          void add(long address, java.lang.reflect.Method method, boolean ignoreExtraParams);
+        }
+      }
+      """
+  );
+
+  @Test
+  void indexesPublicMethods(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Overlay", """
+      package test;
+      import legend.core.memory.Method;
+      public class Overlay {
+        @Method(0x8001_0000L)
+        public static void reset() { }
+        @Method(value = 0x8001_0010L, ignoreExtraParams = true)
+        public static long add(final long a, final int[] b, final java.util.List<String> c) { return 0; }
+        public static void unbound() { }
+      }
+      """));
+    assertEquals(List.of(), result.errors());
+
+    final String index = result.read("test/Overlay_MethodIndex.java");
+    assertContains(index, "public final class Overlay_MethodIndex implements legend.core.memory.MethodIndex {");
+    assertContains(index, "registrar.add(0x80010000L, test.Overlay.class.getMethod(\"reset\"), false);");
+    assertContains(index, "registrar.add(0x80010010L, test.Overlay.class.getMethod(\"add\", long.class, int[].class, java.util.List.class), true);");
+    assertFalse(index.contains("unbound"));
+  }
+
+  @Test
+  void namesNestedClassIndexesAfterTheBinaryName(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Outer", """
+      package test;
+      import legend.core.memory.Method;
+      public class Outer {
+        public static class Inner {
+          @Method(0x10L)
+          public void run() { }
+        }
+      }
+      """));
+    assertEquals(List.of(), result.errors());
+
+    assertContains(result.read("test/Outer_Inner_MethodIndex.java"), "test.Outer.Inner.class.getMethod(\"run\")");
+  }
+
+  @Test
+  void skipsWhatItCantIndex(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Hidden", """
+      package test;
+      import legend.core.memory.Method;
+      public class Hidden {
+        @Method(0x10L)
+        static void packagePrivate() { }
+        private static class Private {
+          @Method(0x20L)
+          public void run() { }
+        }
+      }
+      """));
+    assertEquals(List.of(), result.errors());
+
+    final List<String> warnings = result.warnings();
+    assertTrue(warnings.contains("@Method on a non-public method is ignored"), warnings.toString());
+    assertTrue(warnings.contains("Can't index methods of a private, local or anonymous class - they will be scanned at runtime"), warnings.toString());
+    assertFalse(result.read("test/Hidden_MethodIndex.java").contains("registrar.add"));
+    assertFalse(result.exists("test/Hidden_Private_MethodIndex.java"));
+  }
+
+  @Test
+  void rejectsDuplicateAddresses(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Clash", """
+      package test;
+      import legend.core.memory.Method;
+      public class Clash {
+        @Method(0x10L)
+        public static void first() { }
+        @Method(0x10L)
+        public static void second() { }
+      }
+      """));
+
+    assertEquals(List.of("@Method address 10 is already used by first"), result.errors());
+  }
+
+  @Test
+  void listsEntryPoints(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of(
+      "test.B", """
+        package test;
+        @legend.core.memory.EntryPoint
+        public class B {
+          @legend.core.memory.EntryPoint
+          public static class Nested { }
+        }
+        """,
+      "test.A", """
+        package test;
+        @legend.core.memory.EntryPoint
+        public class A { }
+        """
+    ));
+    assertEquals(List.of(), result.errors());
+
+    assertEquals(List.of("test.A", "test.B", "test.B$Nested"), result.read("META-INF/legend/entry-points").lines().toList());
+  }
+
+  private static TestCompiler.Result process(final Path output, final Map<String, String> sources) {
+    final Map<String, String> all = new HashMap<>(API);
+    all.putAll(sources);
+    return TestCompiler.compile(new MethodIndexProcessor(), output, all);
+  }
+
+  private static void assertContains(final String source, final String expected) {
+    assertTrue(source.contains(expected), () -> "Expected " + expected + " in\n" + source);
+  }
+}
@@ -0,0 +1,196 @@
+package legend.core.memory.struct;
+
+import legend.core.memory.TestCompiler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructProcessorTest {
+  /** Just enough of lod-core for the generated code to compile */
+  private static final Map<String, String> API = Map.of(
+    "legend.core.memory.struct.Struct", """
+      package legend.core.memory.struct;
+      public @interface Struct {
+        int value();
+      }
+      """,
+    "legend.core.memory.struct.Field", """
+      package legend.core.memory.struct;
+      public @interface Field {
+        int offset();
+        int size() default 4;
+        boolean signed() default false;
+        int count() default 0;
+        int stride() default 0;
+        boolean inline() default false;
+      }
+      """,
+    "legend.core.memory.types.MemoryRef", """
+      package legend.core.memory.types;
+      public interface MemoryRef {
+        long getAddress();
+      }
+      """,
+    "legend.core.memory.Memory", """
+      package legend.core.memory;
+      public class Memory {
+        public long get(final long address, final int size) { return 0; }
+        public void set(final long address, final int size, final long value) { }
+      }
+      """,
+    "legend.core.Hardware", """
+      package legend.core;
+      public final class Hardware {
+        public static final legend.core.memory.Memory MEMORY = new legend.core.memory.Memory();
+      }
+      """,
+    "legend.core.MathHelper", """
+      package legend.core;
+      public final class MathHelper {
+        public static long sign(final long value, final int size) { return value; }
+      }
+      """
+  );
+
+  private static final String POINT = """
+    package test;
+    import legend.core.memory.struct.Field;
+    import legend.core.memory.struct.Struct;
+    import legend.core.memory.types.MemoryRef;
+    @Struct(0x8)
+    public interface Point extends MemoryRef {
+      @Field(offset = 0x0, size = 2, signed = true)
+      short x();
+      @Field(offset = 0x2, size = 2, signed = true)
+      short y();
+      Point y(short y);
+    }
+    """;
+
+  @Test
+  void generatesPrimitiveAccessors(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Point", POINT));
+    assertEquals(List.of(), result.errors());
+
+    final String impl = result.read("test/PointImpl.java");
+    assertContains(impl, "public final class PointImpl implements Point {");
+    assertContains(impl, "Flyweight for {@link Point}, 8 bytes long");
+    assertContains(impl, "return (short)MathHelper.sign(MEMORY.get(this.address + 0x0L, 2), 2);");
+    assertContains(impl, "return (short)MathHelper.sign(MEMORY.get(this.address + 0x2L, 2), 2);");
+    assertContains(impl, "public test.Point y(final short y) {");
+    assertContains(impl, "MEMORY.set(this.address + 0x2L, 2, y);");
+    assertContains(impl, "return this;");
+    assertFalse(impl.contains("import java.util.Objects;"), "Structs without arrays don't import Objects");
+  }
+
+  @Test
+  void generatesArraysPointersAndInlineStructs(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Point", POINT, "test.Shape", """
+      package test;
+      import legend.core.memory.struct.Field;
+      import legend.core.memory.struct.Struct;
+      import legend.core.memory.types.MemoryRef;
+      @Struct(0x40)
+      public interface Shape extends MemoryRef {
+        @Field(offset = 0x0, size = 1)
+        boolean visible();
+        void visible(boolean visible);
+        @Field(offset = 0x4)
+        long flags();
+        @Field(offset = 0x8)
+        Shape next();
+        void next(Shape next);
+        @Field(offset = 0xc, count = 4, inline = true)
+        Point point(int index);
+        @Field(offset = 0x2c, size = 2, count = 4, stride = 4)
+        int colour(int index);
+        void colour(int index, int colour);
+      }
+      """));
+    assertEquals(List.of(), result.errors());
+
+    final String impl = result.read("test/ShapeImpl.java");
+    assertFalse(impl.contains("import legend.core.MathHelper;"), "Structs without signed fields don't import MathHelper");
+    assertContains(impl, "return MEMORY.get(this.address + 0x0L, 1) != 0;");
+    assertContains(impl, "MEMORY.set(this.address + 0x0L, 1, visible ? 1 : 0);");
+    assertContains(impl, "return MEMORY.get(this.address + 0x4L, 4);");
+
+    // Pointers
+    assertContains(impl, "final long pointer = MEMORY.get(this.address + 0x8L, 4);");
+    assertContains(impl, "return pointer != 0 ? new test.ShapeImpl(pointer) : null;");
+    assertContains(impl, "MEMORY.set(this.address + 0x8L, 4, next != null ? next.getAddress() : 0);");
+
+    // Inline arrays use the struct's size as the stride
+    assertContains(impl, "Objects.checkIndex(index, 4);");
+    assertContains(impl, "return new test.PointImpl(this.address + 0xcL + index * 8L);");
+
+    // Explicit strides
+    assertContains(impl, "return (int)MEMORY.get(this.address + 0x2cL + index * 4L, 2);");
+    assertContains(impl, "MEMORY.set(this.address + 0x2cL + index * 4L, 2, colour);");
+  }
+
+  @Test
+  void rejectsInvalidLayouts(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Bad", """
+      package test;
+      import legend.core.memory.struct.Field;
+      import legend.core.memory.struct.Struct;
+      import legend.core.memory.types.MemoryRef;
+      @Struct(0x10)
+      public interface Bad extends MemoryRef {
+        @Field(offset = 0x0, size = 3)
+        int odd();
+        @Field(offset = 0x4, size = 2)
+        Bad pointer();
+        @Field(offset = 0x8, count = 2)
+        int array();
+        @Field(offset = 0xc, inline = true)
+        int inline();
+        void stray(int value);
+      }
+      """));
+
+    final List<String> errors = result.errors();
+    assertTrue(errors.contains("Fields are 1, 2 or 4 bytes"), errors.toString());
+    assertTrue(errors.contains("Pointers are 4 bytes"), errors.toString());
+    assertTrue(errors.contains("Array getters take a single int index"), errors.toString());
+    assertTrue(errors.contains("Only @Struct fields can be inline"), errors.toString());
+    assertTrue(errors.contains("Abstract method is neither a @Field getter nor a setter for one"), errors.toString());
+    assertFalse(result.exists("test/BadImpl.java"));
+  }
+
+  @Test
+  void rejectsStructsThatArentMemoryRefs(@TempDir final Path output) {
+    final TestCompiler.Result result = process(output, Map.of("test.Loose", """
+      package test;
+      import legend.core.memory.struct.Field;
+      import legend.core.memory.struct.Struct;
+      @Struct(0x4)
+      public interface Loose {
+        @Field(offset = 0x0)
+        int value();
+      }
+      """));
+
+    assertEquals(List.of("@Struct must extend MemoryRef"), result.errors());
+    assertFalse(result.exists("test/LooseImpl.java"));
+  }
+
+  private static TestCompiler.Result process(final Path output, final Map<String, String> sources) {
+    final Map<String, String> all = new HashMap<>(API);
+    all.putAll(sources);
+    return TestCompiler.compile(new StructProcessor(), output, all);
+  }
+
+  private static void assertContains(final String source, final String expected) {
+    assertTrue(source.contains(expected), () -> "Expected " + expected + " in\n" + source);
+  }
+}
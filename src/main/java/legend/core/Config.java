@@ -20,6 +20,9 @@ public final class Config {
     properties.setProperty("controller_config", "false");
     properties.setProperty("controller_guid", "");
     properties.setProperty("controller_deadzone", "0.3");
+    properties.setProperty("memory_lock_striping", "true");
+    properties.setProperty("memory_arena", "false");
+    properties.setProperty("memory_arena_file", "");
   }
 
   public static int windowWidth() {
@@ -54,6 +57,35 @@ public final class Config {
     return readFloat("controller_deadzone", 0.3f, 0.0f, 1.0f);
   }
 
+  public static boolean memoryLockStriping() {
+    return readBool("memory_lock_striping", true);
+  }
+
+  /**
+   * Whether RAM lives in one off-heap {@link legend.core.memory.MemoryArena} rather than a heap array per segment
+   */
+  public static boolean memoryArena() {
+    return readBool("memory_arena", false);
+  }
+
+  /**
+   * File to map the memory arena over, or empty for an anonymous arena
+   */
+  public static String memoryArenaFile() {
+    return properties.getProperty("memory_arena_file", "");
+  }
+
+  public static boolean rewindEnabled() {
+    return readBool("rewind_enabled", false);
+  }
+
+  /**
+   * Memory budget for rewind history in MiB (not including the copy of the latest frame)
+   */
+  public static int rewindBudget() {
+    return readInt("rewind_budget_mb", 64, 1, 4096);
+  }
+
   private static int readInt(final String key, final int defaultVal, final int min, final int max) {
     int val;
     try {
@@ -12,6 +12,7 @@ import java.util.Map;
 import static legend.core.Hardware.GATE;
 import static legend.core.Hardware.INTERRUPTS;
 import static legend.core.Hardware.MEMORY;
+import static legend.core.Hardware.SAFEPOINT;
 import static legend.core.Hardware.codeThread;
 
 public class Cpu {
@@ -67,6 +68,7 @@ public class Cpu {
     }
 
     while(this.handleInterrupts()) {
+      SAFEPOINT.poll();
       DebugHelper.sleep(0);
     }
   }
@@ -5,8 +5,13 @@ import legend.core.dma.DmaManager;
 import legend.core.gpu.Gpu;
 import legend.core.kernel.Bios;
 import legend.core.mdec.Mdec;
+import legend.core.memory.DirtyPageTracker;
 import legend.core.memory.EntryPoint;
 import legend.core.memory.Memory;
+import legend.core.memory.MemoryArena;
+import legend.core.memory.MemoryLocks;
+import legend.core.memory.Segment;
+import legend.core.memory.segments.DirectRamSegment;
 import legend.core.memory.segments.PrivilegeGate;
 import legend.core.memory.segments.RamSegment;
 import legend.core.memory.types.RunnableRef;
@@ -17,11 +22,20 @@ import org.reflections8.Reflections;
 import org.reflections8.util.ClasspathHelper;
 
 import javax.annotation.Nullable;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
 
 public final class Hardware {
   private Hardware() { }
@@ -39,6 +53,7 @@ public final class Hardware {
   public static final Timers TIMERS;
   public static final CdDrive CDROM;
   public static final Spu SPU;
+  public static final RewindBuffer REWIND;
 
   public static final Thread codeThread;
   public static final Thread hardwareThread;
@@ -49,75 +64,242 @@ public final class Hardware {
   @Nullable
   public static final Class<?> ENTRY_POINT;
 
-  public static boolean dumping;
-  public static boolean hardwareWaiting;
-  public static boolean timerWaiting;
-  public static boolean spuWaiting;
+  /** Pauses every hardware thread and the code thread, e.g. while a state is captured or restored */
+  public static final Safepoint SAFEPOINT = new Safepoint();
+
+  /** Written by the method index processor */
+  private static final String ENTRY_POINT_LIST = "META-INF/legend/entry-points";
+
+  /** Enough for every RAM segment below, each rounded up to a whole page */
+  static final int ARENA_SIZE = 0x60_0000;
+  /** Off-heap backing for the RAM segments, or null if they live on the heap (see {@link Config#memoryArena()}) */
+  @Nullable
+  public static final MemoryArena ARENA;
   private static final List<Runnable> loadStateListeners = new ArrayList<>();
 
-  private static void dumpLock() {
-    dumping = true;
+  static final int STATE_VERSION = 3;
+  /** The header followed by memory, CPU, interrupts, DMA, GPU, MDEC, CD-ROM and SPU */
+  static final int STATE_CHUNKS = 9;
+  private static final byte STATE_FULL = 0;
+  private static final byte STATE_INCREMENTAL = 1;
+
+  /** The state that was last dumped or loaded, which incremental states are built on (0 if none) */
+  private static long stateId;
+  /** The dirty page epoch at which {@link #stateId} was captured */
+  private static int stateEpoch;
+
+  public static void dump(final ByteBuffer stream) throws IOException {
+    captureState(chunk -> stream, false);
+  }
 
-    while(!hardwareWaiting || !timerWaiting || !spuWaiting) {
-      DebugHelper.sleep(1);
+  /**
+   * Writes only what changed since the last state that was dumped or loaded. The result can only be loaded on top of
+   * that state, so a chain of incremental states is restored by loading its full base followed by each link in order
+   * (see {@link #loadChain}). Falls back to a full dump if there is no base state yet.
+   */
+  public static void dumpIncremental(final ByteBuffer stream) throws IOException {
+    captureState(chunk -> stream, true);
+  }
+
+  /**
+   * Pauses the hardware and writes a state chunk by chunk - the header first, followed by each component (see
+   * {@link #STATE_CHUNKS}). Concatenating the chunks gives the same stream {@link #load} reads.
+   */
+  static void captureState(final IntFunction<ByteBuffer> chunks, final boolean incremental) throws IOException {
+    if(!SAFEPOINT.pause()) {
+      throw new IOException("Failed to capture state: not every thread could be paused");
+    }
+
+    try {
+      final boolean delta = incremental && stateId != 0;
+
+      if(incremental && !delta) {
+        LOGGER.info("No base state for incremental dump, writing a full state");
+      }
+
+      final long id = nextStateId();
+      final ByteBuffer header = chunks.apply(0);
+      writeStateHeader(header, delta ? STATE_INCREMENTAL : STATE_FULL, id);
+
+      if(delta) {
+        header.putLong(stateId);
+      }
+
+      dumpState(chunks, delta, stateEpoch);
+
+      stateId = id;
+      stateEpoch = DirtyPageTracker.advanceEpoch();
+    } finally {
+      SAFEPOINT.resume();
     }
   }
 
-  private static void dumpUnlock() {
-    dumping = false;
+  /**
+   * Writes every component to its chunk, either in full or only what changed after {@code since}. Must be called while
+   * the hardware is paused.
+   */
+  static void dumpState(final IntFunction<ByteBuffer> chunks, final boolean incremental, final int since) throws IOException {
+    if(incremental) {
+      MEMORY.dumpDelta(chunks.apply(1), since);
+    } else {
+      MEMORY.dump(chunks.apply(1));
+    }
+
+    CPU.dump(chunks.apply(2));
+    INTERRUPTS.dump(chunks.apply(3));
+    DMA.dump(chunks.apply(4));
+
+    if(incremental) {
+      GPU.dumpDelta(chunks.apply(5), since);
+    } else {
+      GPU.dump(chunks.apply(5));
+    }
+
+    MDEC.dump(chunks.apply(6));
+    CDROM.dump(chunks.apply(7));
+
+    if(incremental) {
+      SPU.dumpDelta(chunks.apply(8), since);
+    } else {
+      SPU.dump(chunks.apply(8));
+    }
   }
 
-  public static void dump(final ByteBuffer stream) throws IOException {
-    dumpLock();
+  /**
+   * Reads state written by {@link #dumpState}. Must be called while the hardware is paused.
+   */
+  static void loadState(final ByteBuffer stream, final int version, final boolean incremental) throws ClassNotFoundException, IOException {
+    // Need to acquire gate to load kernel/bios functions
+    GATE.acquire();
+
+    try {
+      if(incremental) {
+        MEMORY.loadDelta(stream, version);
+      } else {
+        MEMORY.load(stream, version);
+      }
+
+      CPU.load(stream, version);
+      INTERRUPTS.load(stream, version);
+      DMA.load(stream, version);
+
+      if(incremental) {
+        GPU.loadDelta(stream, version);
+      } else {
+        GPU.load(stream, version);
+      }
+
+      MDEC.load(stream, version);
+      CDROM.load(stream, version);
+
+      if(incremental) {
+        SPU.loadDelta(stream, version);
+      } else {
+        SPU.load(stream, version);
+      }
+    } finally {
+      GATE.release();
+    }
+  }
+
+  static void notifyLoadStateListeners() {
+    loadStateListeners.forEach(Runnable::run);
+  }
 
+  private static long nextStateId() {
+    long id;
+    do {
+      id = ThreadLocalRandom.current().nextLong();
+    } while(id == 0);
+
+    return id;
+  }
+
+  private static void writeStateHeader(final ByteBuffer stream, final byte kind, final long id) {
     stream.put((byte)'d');
     stream.put((byte)'d');
     stream.put((byte)'m');
     stream.put((byte)'p');
-    stream.put((byte)2);
-
-    MEMORY.dump(stream);
-    CPU.dump(stream);
-    INTERRUPTS.dump(stream);
-    DMA.dump(stream);
-    GPU.dump(stream);
-    MDEC.dump(stream);
-    CDROM.dump(stream);
-    SPU.dump(stream);
-
-    dumpUnlock();
+    stream.put((byte)STATE_VERSION);
+    stream.put(kind);
+    stream.putLong(id);
   }
 
   public static void load(final ByteBuffer stream) throws ClassNotFoundException, IOException {
-    dumpLock();
+    if(!SAFEPOINT.pause()) {
+      throw new IOException("Failed to load state: not every thread could be paused");
+    }
+
+    try {
+      if(stream.get() != 'd' || stream.get() != 'd' || stream.get() != 'm' || stream.get() != 'p') {
+        LOGGER.error("Failed to load state: invalid file");
+        return;
+      }
+
+      final int version = stream.get();
+
+      if(version < 0 || version > STATE_VERSION) {
+        LOGGER.error("Failed to load state: invalid version %d", version);
+      }
+
+      final byte kind = version >= 3 ? stream.get() : STATE_FULL;
+      final long id = version >= 3 ? stream.getLong() : 0;
+
+      if(kind == STATE_INCREMENTAL) {
+        final long baseId = stream.getLong();
 
-    if(stream.get() != 'd' || stream.get() != 'd' || stream.get() != 'm' || stream.get() != 'p') {
-      LOGGER.error("Failed to load state: invalid file");
-      dumpUnlock();
-      return;
+        if(stateId == 0 || baseId != stateId) {
+          LOGGER.error("Failed to load state: incremental state %016x doesn't apply to the current state", id);
+          return;
+        }
+      }
+
+      loadState(stream, version, kind == STATE_INCREMENTAL);
+
+      stateId = id;
+      stateEpoch = DirtyPageTracker.advanceEpoch();
+      REWIND.clear();
+
+      notifyLoadStateListeners();
+    } finally {
+      SAFEPOINT.resume();
     }
+  }
 
-    final int version = stream.get();
+  /**
+   * Loads a full state followed by the incremental states built on top of it, oldest first
+   */
+  public static void loadChain(final List<ByteBuffer> chain) throws ClassNotFoundException, IOException {
+    for(final ByteBuffer stream : chain) {
+      load(stream);
+    }
+  }
 
-    if(version < 0 || version > 2) {
-      LOGGER.error("Failed to load state: invalid version %d", version);
+  @Nullable
+  private static MemoryArena createArena() {
+    if(!Config.memoryArena()) {
+      return null;
     }
 
-    // Need to acquire gate to load kernel/bios functions
-    GATE.acquire();
-    MEMORY.load(stream, version);
-    CPU.load(stream, version);
-    INTERRUPTS.load(stream, version);
-    DMA.load(stream, version);
-    GPU.load(stream, version);
-    MDEC.load(stream, version);
-    CDROM.load(stream, version);
-    SPU.load(stream, version);
-    GATE.release();
+    final String file = Config.memoryArenaFile();
 
-    loadStateListeners.forEach(Runnable::run);
+    if(!file.isEmpty()) {
+      try {
+        return MemoryArena.map(Paths.get(file), ARENA_SIZE);
+      } catch(final IOException e) {
+        LOGGER.warn("Failed to map memory arena file " + file + ", falling back to an unmapped arena", e);
+      }
+    }
+
+    return MemoryArena.create(ARENA_SIZE);
+  }
+
+  private static Segment ram(final long address, final int length) {
+    if(ARENA != null) {
+      return new DirectRamSegment(address, length, ARENA);
+    }
 
-    dumpUnlock();
+    return new RamSegment(address, length);
   }
 
   public static void registerLoadStateListener(final Runnable listener) {
@@ -135,28 +317,31 @@ public final class Hardware {
       LOGGER.warn("Failed to load config", e);
     }
 
+    MEMORY.setLockMode(Config.memoryLockStriping() ? MemoryLocks.Mode.STRIPED : MemoryLocks.Mode.GLOBAL);
+    ARENA = createArena();
+
     // --- BIOS memory ------------------------
 
     // 0x80 (0x10) - Exception vector
-    MEMORY.addSegment(GATE.wrap(new RamSegment(0x80L, 0x10)));
+    MEMORY.addSegment(GATE.wrap(ram(0x80L, 0x10)));
 
     // 0x100 (0x58) - Table of tables
-    MEMORY.addSegment(GATE.wrap(new RamSegment(0x100L, 0x58)));
+    MEMORY.addSegment(GATE.wrap(ram(0x100L, 0x58)));
 
     // 0x500 (0xbb00) - Kernel code/data - relocated from ROM
-    MEMORY.addSegment(GATE.wrap(new RamSegment(0x500L, 0xbb00)));
+    MEMORY.addSegment(GATE.wrap(ram(0x500L, 0xbb00)));
 
     // 0xe000 (0x2000) - Kernel memory (ExCBs, EvCBs, TCBs)
-    MEMORY.addSegment(GATE.wrap(new RamSegment(0xe000L, 0x2000)));
+    MEMORY.addSegment(GATE.wrap(ram(0xe000L, 0x2000)));
 
     // --- User memory ------------------------
 
-    MEMORY.addSegment(new RamSegment(0x0001_0000L, 0x4f_0000));
-    MEMORY.addSegment(new RamSegment(0x1f80_0000L, 0x400));
+    MEMORY.addSegment(ram(0x0001_0000L, 0x4f_0000));
+    MEMORY.addSegment(ram(0x1f80_0000L, 0x400));
 
     // --- Bios ROM ---------------------------
 
-    MEMORY.addSegment(new RamSegment(0x1fc0_0000L, 0x8_0000));
+    MEMORY.addSegment(ram(0x1fc0_0000L, 0x8_0000));
 
     GATE.acquire();
     MEMORY.addFunctions(Bios.class);
@@ -170,6 +355,7 @@ public final class Hardware {
     TIMERS = new Timers(MEMORY);
     CDROM = new CdDrive();
     SPU = new Spu(MEMORY);
+    REWIND = new RewindBuffer(Config.rewindEnabled(), Config.rewindBudget() * 1024L * 1024L);
 
     codeThread = new Thread(Hardware::run);
     codeThread.setName("Code");
@@ -182,11 +368,16 @@ public final class Hardware {
     spuThread = new Thread(SPU);
     spuThread.setName("SPU");
 
+    SAFEPOINT.register(codeThread);
+    SAFEPOINT.register(hardwareThread);
+    SAFEPOINT.register(gpuThread);
+    SAFEPOINT.register(timerThread);
+    SAFEPOINT.register(spuThread);
+    MEMORY.setSafepoint(SAFEPOINT);
+
     final String entryPointClassName = System.getProperty("entrypoint", "");
     if(entryPointClassName.isEmpty()) {
-      LOGGER.info("Scanning for entry point class...");
-      final Reflections reflections = new Reflections(ClasspathHelper.forClassLoader());
-      final Set<Class<?>> entryPoints = reflections.getTypesAnnotatedWith(EntryPoint.class);
+      final Set<Class<?>> entryPoints = findEntryPoints();
       if(entryPoints.size() > 1) {
         throw new IllegalStateException("Multiple classes marked as entry points were found!");
       }
@@ -209,6 +400,38 @@ public final class Hardware {
     }
   }
 
+  /**
+   * Reads the entry points listed at build time, falling back to scanning the classpath if there is no list
+   */
+  private static Set<Class<?>> findEntryPoints() {
+    final Set<Class<?>> entryPoints = new LinkedHashSet<>();
+
+    try {
+      final Enumeration<URL> lists = Hardware.class.getClassLoader().getResources(ENTRY_POINT_LIST);
+
+      while(lists.hasMoreElements()) {
+        try(final BufferedReader reader = new BufferedReader(new InputStreamReader(lists.nextElement().openStream(), StandardCharsets.UTF_8))) {
+          for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if(!line.isBlank()) {
+              entryPoints.add(Class.forName(line.strip()));
+            }
+          }
+        }
+      }
+    } catch(final IOException | ClassNotFoundException e) {
+      LOGGER.warn("Failed to read entry point list", e);
+      entryPoints.clear();
+    }
+
+    if(entryPoints.isEmpty()) {
+      LOGGER.info("Scanning for entry point class...");
+      final Reflections reflections = new Reflections(ClasspathHelper.forClassLoader());
+      entryPoints.addAll(reflections.getTypesAnnotatedWith(EntryPoint.class));
+    }
+
+    return entryPoints;
+  }
+
   private static boolean running;
 
   public static boolean isAlive() {
@@ -238,12 +461,7 @@ public final class Hardware {
         SPU.stop();
       }
 
-      while(dumping) {
-        hardwareWaiting = true;
-        DebugHelper.sleep(1);
-      }
-
-      hardwareWaiting = false;
+      SAFEPOINT.poll();
     }
   }
 
@@ -0,0 +1,302 @@
+package legend.core;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import legend.core.memory.DirtyPageTracker;
+import legend.core.memory.PagedStorage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static legend.core.Hardware.GPU;
+import static legend.core.Hardware.MEMORY;
+import static legend.core.Hardware.SAFEPOINT;
+import static legend.core.Hardware.SPU;
+
+/**
+ * Keeps a bounded history of frames that can be stepped back through. A copy of the most recent frame is kept and each
+ * capture stores, for every page written since the previous capture (RAM, VRAM rows and SPU RAM), the XOR of the old
+ * and new page run-length encoded. The rest of the hardware state is small and is stored the same way as a whole. Going
+ * back N frames only touches the pages that changed during those frames.
+ */
+public class RewindBuffer {
+  private static final Logger LOGGER = LogManager.getFormatterLogger(RewindBuffer.class);
+
+  /** Rough per-entry bookkeeping cost counted against the budget */
+  private static final int ENTRY_OVERHEAD = 32;
+
+  private final boolean enabled;
+  private final long budget;
+
+  private final Deque<Frame> frames = new ArrayDeque<>();
+  private long bytesUsed;
+
+  private List<PagedStorage> storage;
+  private DirtyPageTracker[] trackers;
+  /** The pages of every storage as of the latest capture */
+  private byte[][][] pages;
+  private byte[] state;
+  private int stateLength;
+  private ByteBuffer stateBuffer = ByteBuffer.allocate(0x10000);
+  private byte[] scratch = new byte[0];
+  private boolean primed;
+  /** The dirty page epoch at which the latest capture was taken */
+  private int epoch;
+
+  public RewindBuffer(final boolean enabled, final long budget) {
+    this.enabled = enabled;
+    this.budget = budget;
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  public synchronized int getFrameCount() {
+    return this.frames.size();
+  }
+
+  public synchronized long getBytesUsed() {
+    return this.bytesUsed;
+  }
+
+  /**
+   * Drops all history, e.g. after a savestate is loaded
+   */
+  public synchronized void clear() {
+    this.frames.clear();
+    this.bytesUsed = 0;
+    this.primed = false;
+  }
+
+  /**
+   * Captures the current frame. Called by the GPU at each VBLANK.
+   */
+  public void capture() {
+    if(!this.enabled) {
+      return;
+    }
+
+    // Skip the frame rather than capture a torn one - the next capture picks up its writes
+    if(!SAFEPOINT.pause()) {
+      LOGGER.warn("Skipped rewind frame: not every thread could be paused");
+      return;
+    }
+
+    try {
+      synchronized(this) {
+        if(!this.primed || this.layoutChanged()) {
+          this.prime();
+        } else {
+          this.captureFrame();
+        }
+
+        this.epoch = DirtyPageTracker.advanceEpoch();
+      }
+    } catch(final IOException e) {
+      LOGGER.error("Failed to capture rewind frame", e);
+      this.clear();
+    } finally {
+      SAFEPOINT.resume();
+    }
+  }
+
+  /**
+   * Restores the state from {@code count} captures ago. Those frames are removed from the history.
+   *
+   * @return the number of frames actually rewound
+   */
+  public int rewind(final int count) {
+    if(!this.enabled) {
+      return 0;
+    }
+
+    if(!SAFEPOINT.pause()) {
+      LOGGER.warn("Failed to rewind: not every thread could be paused");
+      return 0;
+    }
+
+    try {
+      synchronized(this) {
+        if(!this.primed || this.layoutChanged()) {
+          return 0;
+        }
+
+        final long start = System.nanoTime();
+
+        // Throw away anything written since the latest capture
+        for(int i = 0; i < this.storage.size(); i++) {
+          final PagedStorage storage = this.storage.get(i);
+
+          for(int page = 0; page < this.trackers[i].getPageCount(); page++) {
+            if(this.trackers[i].isDirty(page, this.epoch)) {
+              storage.writePage(page, this.pages[i][page]);
+            }
+          }
+        }
+
+        int rewound = 0;
+        while(rewound < count && !this.frames.isEmpty()) {
+          final Frame frame = this.frames.pollLast();
+          this.bytesUsed -= frame.size();
+
+          for(int i = 0; i < frame.storageIndices().length; i++) {
+            final byte[] page = this.pages[frame.storageIndices()[i]][frame.pageIndices()[i]];
+            XorRle.apply(frame.pageDeltas()[i], page, page.length, page);
+            this.storage.get(frame.storageIndices()[i]).writePage(frame.pageIndices()[i], page);
+          }
+
+          if(frame.stateDelta() != null) {
+            final byte[] state = new byte[XorRle.decodedLength(frame.stateDelta())];
+            XorRle.apply(frame.stateDelta(), this.state, this.stateLength, state);
+            this.state = state;
+            this.stateLength = state.length;
+          }
+
+          rewound++;
+        }
+
+        Hardware.loadState(ByteBuffer.wrap(this.state, 0, this.stateLength), Hardware.STATE_VERSION, true);
+        this.epoch = DirtyPageTracker.advanceEpoch();
+
+        LOGGER.info("Rewound %d frames in %.2f ms", rewound, (System.nanoTime() - start) / 1_000_000.0d);
+        Hardware.notifyLoadStateListeners();
+        return rewound;
+      }
+    } catch(final ClassNotFoundException | IOException e) {
+      LOGGER.error("Failed to rewind", e);
+      this.clear();
+      return 0;
+    } finally {
+      SAFEPOINT.resume();
+    }
+  }
+
+  private boolean layoutChanged() {
+    for(int i = 0; i < this.trackers.length; i++) {
+      if(this.storage.get(i).getDirtyPages() != this.trackers[i]) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private List<PagedStorage> collectStorage() {
+    final List<PagedStorage> storage = new ArrayList<>(MEMORY.getPagedStorage());
+    storage.add(GPU.getVramStorage());
+    storage.add(SPU.getRamStorage());
+    return storage;
+  }
+
+  private void prime() throws IOException {
+    this.frames.clear();
+    this.bytesUsed = 0;
+
+    this.storage = this.collectStorage();
+    this.trackers = new DirtyPageTracker[this.storage.size()];
+    this.pages = new byte[this.storage.size()][][];
+
+    int pageSize = 0;
+    for(final PagedStorage storage : this.storage) {
+      pageSize = Math.max(pageSize, storage.getPageSize());
+    }
+
+    this.scratch = new byte[pageSize];
+
+    for(int i = 0; i < this.storage.size(); i++) {
+      final PagedStorage storage = this.storage.get(i);
+      this.trackers[i] = storage.getDirtyPages();
+      this.pages[i] = new byte[this.trackers[i].getPageCount()][];
+
+      for(int page = 0; page < this.pages[i].length; page++) {
+        final int length = storage.readPage(page, this.scratch);
+        this.pages[i][page] = new byte[length];
+        System.arraycopy(this.scratch, 0, this.pages[i][page], 0, length);
+      }
+    }
+
+    this.dumpState();
+    this.state = new byte[this.stateBuffer.position()];
+    this.stateBuffer.get(0, this.state);
+    this.stateLength = this.state.length;
+
+    this.primed = true;
+  }
+
+  private void captureFrame() throws IOException {
+    final IntList storageIndices = new IntArrayList();
+    final IntList pageIndices = new IntArrayList();
+    final List<byte[]> pageDeltas = new ArrayList<>();
+    long size = ENTRY_OVERHEAD;
+
+    for(int i = 0; i < this.storage.size(); i++) {
+      final PagedStorage storage = this.storage.get(i);
+
+      for(int page = 0; page < this.trackers[i].getPageCount(); page++) {
+        if(this.trackers[i].isDirty(page, this.epoch)) {
+          final byte[] old = this.pages[i][page];
+          final int length = storage.readPage(page, this.scratch);
+
+          // Stored backwards - applying the delta to the new page gives the old one
+          final byte[] delta = XorRle.encode(this.scratch, length, old, old.length);
+
+          if(delta != null) {
+            storageIndices.add(i);
+            pageIndices.add(page);
+            pageDeltas.add(delta);
+            size += delta.length + ENTRY_OVERHEAD;
+            System.arraycopy(this.scratch, 0, old, 0, length);
+          }
+        }
+      }
+    }
+
+    this.dumpState();
+    final byte[] state = new byte[this.stateBuffer.position()];
+    this.stateBuffer.get(0, state);
+
+    final byte[] stateDelta = XorRle.encode(state, state.length, this.state, this.stateLength);
+    this.state = state;
+    this.stateLength = state.length;
+
+    if(stateDelta != null) {
+      size += stateDelta.length;
+    }
+
+    final Frame frame = new Frame(storageIndices.toIntArray(), pageIndices.toIntArray(), pageDeltas.toArray(byte[][]::new), stateDelta, size);
+    this.frames.addLast(frame);
+    this.bytesUsed += size;
+
+    while(this.bytesUsed > this.budget && this.frames.size() > 1) {
+      this.bytesUsed -= this.frames.pollFirst().size();
+    }
+  }
+
+  /**
+   * Serializes everything except the tracked pages into {@link #stateBuffer}, growing it as needed
+   */
+  private void dumpState() throws IOException {
+    while(true) {
+      this.stateBuffer.clear();
+
+      try {
+        // An incremental dump with nothing newer than the current epoch is exactly the untracked state
+        Hardware.dumpState(chunk -> this.stateBuffer, true, Integer.MAX_VALUE);
+        return;
+      } catch(final BufferOverflowException e) {
+        this.stateBuffer = ByteBuffer.allocate(this.stateBuffer.capacity() * 2);
+      }
+    }
+  }
+
+  private record Frame(int[] storageIndices, int[] pageIndices, byte[][] pageDeltas, @Nullable byte[] stateDelta, long size) { }
+}
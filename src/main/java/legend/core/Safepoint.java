@@ -0,0 +1,247 @@
+package legend.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Stops every registered thread at a known point so that the machine's state can be read or replaced. Registered
+ * threads call {@link #poll()} regularly - a single volatile read unless a pause has been requested, in which case
+ * they park until {@link #resume()}. {@link #pause()} returns once every other live registered thread is parked. If they
+ * haven't all arrived after {@link #TIMEOUT_NANOS} it logs the ones that didn't, cancels the pause and returns false -
+ * the machine is still running, so its state mustn't be touched. Pauses nest on the same thread and only one thread
+ * can pause at a time; a thread waiting for its turn counts as parked.
+ */
+public class Safepoint {
+  private static final Logger LOGGER = LogManager.getFormatterLogger(Safepoint.class);
+
+  private static final long TIMEOUT_NANOS = 1_000_000_000L;
+  private static final long SPIN_NANOS = 50_000L;
+
+  /** Stands in for a pause generation for threads that are blocked somewhere they're known to be safe */
+  private static final long WAITING = Long.MAX_VALUE;
+
+  private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+  /** Parked threads and the pause generation they parked for */
+  private final Map<Thread, Long> parked = new ConcurrentHashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile boolean requested;
+  private volatile long generation;
+  private volatile Thread requester;
+
+  private long pauseCount;
+  private long lastLatency;
+  private long maxLatency;
+
+  public void register(final Thread thread) {
+    this.threads.add(thread);
+  }
+
+  public void unregister(final Thread thread) {
+    this.threads.remove(thread);
+  }
+
+  /**
+   * Parks the current thread if a pause has been requested. Must not be called while holding locks other threads may
+   * need during a pause.
+   */
+  public void poll() {
+    if(this.requested) {
+      this.park();
+    }
+  }
+
+  private void park() {
+    final Thread current = Thread.currentThread();
+
+    if(current == this.requester || !this.threads.contains(current)) {
+      return;
+    }
+
+    while(this.requested) {
+      final long generation = this.generation;
+      this.arrive(current, generation);
+
+      while(this.requested && this.generation == generation) {
+        LockSupport.park(this);
+      }
+    }
+
+    this.parked.remove(current);
+  }
+
+  private void arrive(final Thread thread, final long generation) {
+    this.parked.put(thread, generation);
+
+    final Thread requester = this.requester;
+    if(requester != null) {
+      LockSupport.unpark(requester);
+    }
+  }
+
+  public boolean isPaused() {
+    return this.requested;
+  }
+
+  /**
+   * @return true if every thread is paused, in which case {@link #resume()} must be called. False if the pause timed
+   * out and was cancelled.
+   */
+  public boolean pause() {
+    this.lockPolling(this.lock);
+
+    if(this.lock.getHoldCount() > 1) {
+      return true;
+    }
+
+    final Thread current = Thread.currentThread();
+    final long start = System.nanoTime();
+
+    this.requester = current;
+    this.requested = true;
+    this.generation++;
+
+    while(!this.allParked(current)) {
+      if(System.nanoTime() - start > TIMEOUT_NANOS) {
+        LOGGER.warn("Safepoint timed out waiting for %s", this.threads.stream().filter(thread -> thread != current && !this.isParked(thread)).map(Thread::getName).collect(Collectors.joining(", ")));
+        this.resume();
+        return false;
+      }
+
+      LockSupport.parkNanos(this, SPIN_NANOS);
+    }
+
+    this.lastLatency = System.nanoTime() - start;
+    this.maxLatency = Math.max(this.maxLatency, this.lastLatency);
+    this.pauseCount++;
+
+    LOGGER.debug("Safepoint reached in %d us", this.lastLatency / 1000);
+    return true;
+  }
+
+  public void resume() {
+    if(this.lock.getHoldCount() == 1) {
+      this.requested = false;
+      this.requester = null;
+
+      for(final Thread thread : this.parked.keySet()) {
+        LockSupport.unpark(thread);
+      }
+    }
+
+    this.lock.unlock();
+  }
+
+  private boolean allParked(final Thread requester) {
+    for(final Thread thread : this.threads) {
+      if(thread != requester && !this.isParked(thread)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private boolean isParked(final Thread thread) {
+    if(!thread.isAlive()) {
+      return true;
+    }
+
+    final Long generation = this.parked.get(thread);
+    return generation != null && (generation == WAITING || generation == this.generation);
+  }
+
+  /**
+   * Acquires a lock, counting as parked while waiting so that whoever holds it can still pause the machine. Pauses
+   * requested while waiting are honoured once the lock is acquired, so the lock must not be one a pausing thread needs.
+   */
+  public void lockPolling(final Lock lock) {
+    if(lock.tryLock()) {
+      return;
+    }
+
+    final boolean blocked = this.block();
+
+    while(!lock.tryLock()) {
+      LockSupport.parkNanos(this, SPIN_NANOS);
+    }
+
+    if(this.unblock(blocked)) {
+      this.poll();
+    }
+  }
+
+  /**
+   * Waits for a task to finish, counting as parked in the meantime
+   */
+  public void awaitPolling(final Future<?> future) {
+    if(future.isDone()) {
+      return;
+    }
+
+    final boolean blocked = this.block();
+
+    while(!future.isDone()) {
+      LockSupport.parkNanos(this, SPIN_NANOS);
+    }
+
+    if(this.unblock(blocked)) {
+      this.poll();
+    }
+  }
+
+  /**
+   * Counts the current thread as parked until {@link #unblock}, for a thread about to block somewhere it can't touch
+   * the machine's state. Does nothing for unregistered threads or the thread holding the pause.
+   *
+   * @return whether the thread was counted as parked, to be passed to {@link #unblock}
+   */
+  public boolean block() {
+    final Thread current = Thread.currentThread();
+
+    if(current == this.requester || !this.threads.contains(current)) {
+      return false;
+    }
+
+    this.arrive(current, WAITING);
+    return true;
+  }
+
+  /**
+   * @param blocked what {@link #block} returned
+   * @return true if a pause may have gone ahead while the thread was blocked, in which case it must let go of anything a
+   * pausing thread might need and {@link #poll()} before carrying on
+   */
+  public boolean unblock(final boolean blocked) {
+    if(!blocked) {
+      return false;
+    }
+
+    this.parked.remove(Thread.currentThread());
+    return this.requested;
+  }
+
+  public long getPauseCount() {
+    return this.pauseCount;
+  }
+
+  /**
+   * @return how long the most recent pause took to stop every thread, in nanoseconds
+   */
+  public long getLastLatency() {
+    return this.lastLatency;
+  }
+
+  public long getMaxLatency() {
+    return this.maxLatency;
+  }
+}
@@ -0,0 +1,248 @@
+package legend.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static legend.core.Hardware.SAFEPOINT;
+
+/**
+ * Compressed savestate files. While the hardware is paused each state chunk (see {@link Hardware#STATE_CHUNKS}) is
+ * copied into a staging buffer, then the chunks are deflated in parallel and written to disk on a background thread.
+ * Every chunk is compressed separately so loading can inflate them in parallel too.
+ *
+ * <p>Format: {@code ddmz}, version, chunk count, then each chunk's raw and compressed length, then the chunk data.</p>
+ */
+public final class SaveStates {
+  private SaveStates() { }
+
+  private static final Logger LOGGER = LogManager.getFormatterLogger(SaveStates.class);
+
+  private static final int VERSION = 1;
+  /**
+   * First-save staging sizes per chunk, from the components' known sizes: RAM segments plus function bindings, the CPU,
+   * interrupts and DMA registers, both copies of VRAM at 1x scale, the MDEC and CD-ROM, and SPU RAM plus its buffers
+   */
+  private static final int[] INITIAL_STAGING_SIZES = {0x100, Hardware.ARENA_SIZE + 0x10_0000, 0x1_0000, 0x1000, 0x1000, 0x40_1000, 0x1_0000, 0x1_0000, 0x10_0000};
+
+  private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "Savestate writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /** Reused between saves, sized by the largest state seen so far */
+  private static final ByteBuffer[] staging = new ByteBuffer[Hardware.STATE_CHUNKS];
+  private static final Lock LOCK = new ReentrantLock();
+  private static volatile CompletableFuture<Path> pending = CompletableFuture.completedFuture(null);
+
+  static {
+    Arrays.setAll(staging, i -> ByteBuffer.allocate(INITIAL_STAGING_SIZES[i]));
+  }
+
+  /**
+   * Captures a state and writes it to {@code path} in the background. Only the capture pauses the hardware.
+   *
+   * @param incremental see {@link Hardware#dumpIncremental}
+   * @return completes with {@code path} once the file has been written
+   */
+  public static CompletableFuture<Path> save(final Path path, final boolean incremental) throws IOException {
+    SAFEPOINT.lockPolling(LOCK);
+
+    try {
+      return capture(path, incremental);
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  private static CompletableFuture<Path> capture(final Path path, final boolean incremental) throws IOException {
+    // The staging buffers are still in use until the previous save finishes
+    SAFEPOINT.awaitPolling(pending);
+
+    // Hold one pause across retries, so that a staging buffer that turns out to be too small doesn't stop every thread
+    // again (captureState's own pause nests inside this one)
+    if(!SAFEPOINT.pause()) {
+      throw new IOException("Failed to save state: not every thread could be paused");
+    }
+
+    try {
+      final int[] lastChunk = new int[1];
+      while(true) {
+        for(final ByteBuffer buffer : staging) {
+          buffer.clear();
+        }
+
+        try {
+          Hardware.captureState(chunk -> {
+            lastChunk[0] = chunk;
+            return staging[chunk];
+          }, incremental);
+          break;
+        } catch(final BufferOverflowException e) {
+          staging[lastChunk[0]] = ByteBuffer.allocate(staging[lastChunk[0]].capacity() * 2);
+        }
+      }
+    } finally {
+      SAFEPOINT.resume();
+    }
+
+    final ByteBuffer[] chunks = new ByteBuffer[staging.length];
+    Arrays.setAll(chunks, i -> staging[i].duplicate().flip());
+
+    pending = CompletableFuture.supplyAsync(() -> {
+      try {
+        write(path, chunks);
+      } catch(final IOException e) {
+        LOGGER.error("Failed to write savestate %s", path, e);
+        throw new UncheckedIOException(e);
+      }
+
+      return path;
+    }, WRITER);
+
+    return pending;
+  }
+
+  private static void write(final Path path, final ByteBuffer[] chunks) throws IOException {
+    final long start = System.nanoTime();
+
+    final byte[][] compressed = new byte[chunks.length][];
+    IntStream.range(0, chunks.length).parallel().forEach(i -> compressed[i] = deflate(chunks[i]));
+
+    final ByteBuffer header = ByteBuffer.allocate(9 + chunks.length * 8);
+    header.put((byte)'d').put((byte)'d').put((byte)'m').put((byte)'z');
+    header.put((byte)VERSION);
+    header.putInt(chunks.length);
+
+    long raw = 0;
+    long total = 0;
+    for(int i = 0; i < chunks.length; i++) {
+      header.putInt(chunks[i].remaining());
+      header.putInt(compressed[i].length);
+      raw += chunks[i].remaining();
+      total += compressed[i].length;
+    }
+
+    header.flip();
+
+    try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      channel.write(header);
+
+      for(final byte[] chunk : compressed) {
+        channel.write(ByteBuffer.wrap(chunk));
+      }
+    }
+
+    LOGGER.info("Wrote savestate %s (%d -> %d bytes) in %.2f ms", path, raw, total, (System.nanoTime() - start) / 1_000_000.0d);
+  }
+
+  /**
+   * Loads a compressed state, or an uncompressed one written by {@link Hardware#dump}
+   */
+  public static void load(final Path path) throws IOException, ClassNotFoundException {
+    // Don't read a file that's still being written
+    SAFEPOINT.awaitPolling(pending);
+
+    final ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path));
+
+    if(file.get(0) != 'd' || file.get(1) != 'd' || file.get(2) != 'm' || file.get(3) != 'z') {
+      Hardware.load(file);
+      return;
+    }
+
+    file.position(4);
+
+    final int version = file.get();
+    if(version != VERSION) {
+      throw new IOException("Unsupported savestate version " + version);
+    }
+
+    final int count = file.getInt();
+    final int[] rawLengths = new int[count];
+    final int[] rawOffsets = new int[count];
+    final int[] compressedLengths = new int[count];
+    final int[] compressedOffsets = new int[count];
+
+    int rawOffset = 0;
+    int compressedOffset = file.position() + count * 8;
+    for(int i = 0; i < count; i++) {
+      rawLengths[i] = file.getInt();
+      compressedLengths[i] = file.getInt();
+      rawOffsets[i] = rawOffset;
+      compressedOffsets[i] = compressedOffset;
+      rawOffset += rawLengths[i];
+      compressedOffset += compressedLengths[i];
+    }
+
+    final byte[] raw = new byte[rawOffset];
+    IntStream.range(0, count).parallel().forEach(i -> inflate(file.array(), compressedOffsets[i], compressedLengths[i], raw, rawOffsets[i], rawLengths[i]));
+
+    Hardware.load(ByteBuffer.wrap(raw));
+  }
+
+  private static byte[] deflate(final ByteBuffer chunk) {
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    try {
+      deflater.setInput(chunk.duplicate());
+      deflater.finish();
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(chunk.remaining() / 4, 64));
+      final byte[] buffer = new byte[0x1_0000];
+      while(!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void inflate(final byte[] src, final int srcOffset, final int srcLength, final byte[] dest, final int destOffset, final int destLength) {
+    final Inflater inflater = new Inflater();
+
+    try {
+      inflater.setInput(src, srcOffset, srcLength);
+
+      int inflated = 0;
+      while(inflated < destLength && !inflater.finished()) {
+        final int count = inflater.inflate(dest, destOffset + inflated, destLength - inflated);
+
+        if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+
+        inflated += count;
+      }
+
+      if(inflated != destLength) {
+        throw new UncheckedIOException(new IOException("Truncated savestate chunk"));
+      }
+    } catch(final DataFormatException e) {
+      throw new UncheckedIOException(new IOException("Corrupt savestate chunk", e));
+    } finally {
+      inflater.end();
+    }
+  }
+}
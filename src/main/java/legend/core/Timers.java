@@ -10,6 +10,7 @@ import java.nio.ByteBuffer;
 
 import static legend.core.Hardware.INTERRUPTS;
 import static legend.core.Hardware.MEMORY;
+import static legend.core.Hardware.SAFEPOINT;
 
 public class Timers implements Runnable {
   public static final Value TMR_DOTCLOCK_VAL = MEMORY.ref(4, 0x1f801100L);
@@ -53,12 +54,7 @@ public class Timers implements Runnable {
         INTERRUPTS.set(InterruptType.TMR2);
       }
 
-      while(Hardware.dumping) {
-        Hardware.timerWaiting = true;
-        DebugHelper.sleep(1);
-      }
-
-      Hardware.timerWaiting = false;
+      SAFEPOINT.poll();
 
       DebugHelper.sleep(1);
     }
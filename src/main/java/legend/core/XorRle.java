@@ -0,0 +1,107 @@
+package legend.core;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * XOR delta between two byte arrays, run-length encoded as alternating runs of unchanged bytes and literal XOR bytes.
+ * Format: varint length of the result, then pairs of (varint unchanged run, varint literal count, literal bytes).
+ */
+final class XorRle {
+  private XorRle() { }
+
+  /**
+   * Encodes the delta that turns {@code from} into {@code to}. Bytes past the end of either array are treated as 0.
+   *
+   * @return the delta, or null if the arrays are identical
+   */
+  @Nullable
+  static byte[] encode(final byte[] from, final int fromLength, final byte[] to, final int toLength) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarInt(out, toLength);
+
+    boolean changed = fromLength != toLength;
+    int i = 0;
+    while(i < toLength) {
+      final int runStart = i;
+      while(i < toLength && xor(from, fromLength, to, i) == 0) {
+        i++;
+      }
+
+      final int literalStart = i;
+      while(i < toLength && xor(from, fromLength, to, i) != 0) {
+        i++;
+      }
+
+      if(i == literalStart) {
+        break;
+      }
+
+      changed = true;
+      writeVarInt(out, literalStart - runStart);
+      writeVarInt(out, i - literalStart);
+
+      for(int j = literalStart; j < i; j++) {
+        out.write(xor(from, fromLength, to, j));
+      }
+    }
+
+    return changed ? out.toByteArray() : null;
+  }
+
+  static int decodedLength(final byte[] delta) {
+    return readVarInt(delta, new int[1]);
+  }
+
+  /**
+   * Applies a delta to {@code from}, writing the result to {@code dest} (which may be {@code from})
+   */
+  static void apply(final byte[] delta, final byte[] from, final int fromLength, final byte[] dest) {
+    final int[] pos = new int[1];
+    final int length = readVarInt(delta, pos);
+
+    int i = 0;
+    while(pos[0] < delta.length) {
+      final int unchanged = readVarInt(delta, pos);
+      final int literals = readVarInt(delta, pos);
+
+      for(final int end = i + unchanged; i < end; i++) {
+        dest[i] = i < fromLength ? from[i] : 0;
+      }
+
+      for(int j = 0; j < literals; j++, i++) {
+        dest[i] = (byte)((i < fromLength ? from[i] : 0) ^ delta[pos[0]++]);
+      }
+    }
+
+    for(; i < length; i++) {
+      dest[i] = i < fromLength ? from[i] : 0;
+    }
+  }
+
+  private static int xor(final byte[] from, final int fromLength, final byte[] to, final int index) {
+    return ((index < fromLength ? from[index] : 0) ^ to[index]) & 0xff;
+  }
+
+  private static void writeVarInt(final ByteArrayOutputStream out, int value) {
+    while((value & ~0x7f) != 0) {
+      out.write(value & 0x7f | 0x80);
+      value >>>= 7;
+    }
+
+    out.write(value);
+  }
+
+  private static int readVarInt(final byte[] data, final int[] pos) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = data[pos[0]++];
+      value |= (b & 0x7f) << shift;
+      shift += 7;
+    } while((b & 0x80) != 0);
+
+    return value;
+  }
+}
@@ -67,18 +67,19 @@ public class CdDrive {
 
     final CdlLOC loc = new CdlLOC().set(pos);
 
-    for(int i = 0; i < sectorCount; i++) {
-      final byte[] data = new byte[0x800];
+    // Read outside of the memory locks, so that file I/O doesn't hold up other threads
+    final byte[] sector = new byte[0x800];
 
+    for(int i = 0; i < sectorCount; i++) {
       try {
         this.diskSync.seekSector(loc);
         this.diskSync.advance(0xc);
-        this.diskSync.read(data);
+        this.diskSync.read(sector);
       } catch(final IOException e) {
         throw new RuntimeException(e);
       }
 
-      MEMORY.setBytes(dest + i * data.length, data);
+      MEMORY.setBytes(dest + i * 0x800L, sector);
 
       loc.advance(1);
 
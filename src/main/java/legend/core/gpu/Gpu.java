@@ -6,11 +6,15 @@ import legend.core.Config;
 import legend.core.InterruptType;
 import legend.core.IoHelper;
 import legend.core.MathHelper;
+import legend.core.SaveStates;
 import legend.core.Timers;
 import legend.core.dma.DmaChannel;
+import legend.core.memory.DirtyPageTracker;
 import legend.core.memory.IllegalAddressException;
 import legend.core.memory.Memory;
+import legend.core.memory.MemoryProfilerGui;
 import legend.core.memory.MisalignedAccessException;
+import legend.core.memory.PagedStorage;
 import legend.core.memory.Segment;
 import legend.core.memory.Value;
 import legend.core.opengl.Camera;
@@ -29,9 +33,13 @@ import org.lwjgl.system.MemoryUtil;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -45,8 +53,14 @@ import java.util.stream.StreamSupport;
 import static legend.core.Hardware.DMA;
 import static legend.core.Hardware.INTERRUPTS;
 import static legend.core.Hardware.MEMORY;
+import static legend.core.Hardware.REWIND;
+import static legend.core.Hardware.SAFEPOINT;
 import static legend.core.MathHelper.colour24To15;
 import static org.lwjgl.glfw.GLFW.GLFW_JOYSTICK_LAST;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F5;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F6;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F8;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F9;
 import static org.lwjgl.glfw.GLFW.GLFW_KEY_TAB;
 import static org.lwjgl.glfw.GLFW.glfwGetCurrentContext;
 import static org.lwjgl.glfw.GLFW.glfwGetJoystickGUID;
@@ -59,6 +73,8 @@ import static org.lwjgl.opengl.GL11C.GL_TRIANGLE_STRIP;
 public class Gpu implements Runnable {
   private static final Logger LOGGER = LogManager.getFormatterLogger(Gpu.class);
 
+  private static final Path QUICKSAVE = Paths.get(".", "quicksave.ddmz");
+
   public static final Value GPU_REG0 = MEMORY.ref(4, 0x1f801810L);
   public static final Value GPU_REG1 = MEMORY.ref(4, 0x1f801814L);
 
@@ -76,11 +92,16 @@ public class Gpu implements Runnable {
   private Window window;
   private Context ctx;
   private GuiManager guiManager;
+  @Nullable
+  private MemoryProfilerGui memoryProfilerGui;
   private Shader.UniformBuffer transforms2;
   private final Matrix4f transforms = new Matrix4f();
 
   private int[] vram24 = new int[this.vramWidth * this.vramHeight];
   private int[] vram15 = new int[this.vramWidth * this.vramHeight];
+  /** Tracks writes per VRAM row */
+  private DirtyPageTracker dirtyRows = new DirtyPageTracker(this.vramHeight, 0);
+  private final PagedStorage vramStorage = new VramStorage();
 
   private boolean isVramViewer;
 
@@ -148,6 +169,43 @@ public class Gpu implements Runnable {
     return this.guiManager;
   }
 
+  /**
+   * Shows the memory heat map and starts profiling, or hides it and stops
+   */
+  private void toggleMemoryProfiler() {
+    if(this.memoryProfilerGui == null) {
+      this.memoryProfilerGui = this.guiManager.pushGui(new MemoryProfilerGui(MEMORY.startProfiling()));
+    } else {
+      MEMORY.stopProfiling();
+      this.guiManager.removeGui(this.memoryProfilerGui);
+      this.memoryProfilerGui = null;
+    }
+  }
+
+  /**
+   * Writes a savestate to {@link #QUICKSAVE} in the background
+   */
+  private void quickSave() {
+    try {
+      SaveStates.save(QUICKSAVE, false);
+    } catch(final IOException e) {
+      LOGGER.error("Failed to save state", e);
+    }
+  }
+
+  private void quickLoad() {
+    if(!Files.exists(QUICKSAVE)) {
+      LOGGER.warn("No quicksave to load");
+      return;
+    }
+
+    try {
+      SaveStates.load(QUICKSAVE);
+    } catch(final IOException | ClassNotFoundException e) {
+      LOGGER.error("Failed to load state", e);
+    }
+  }
+
   public void command00Nop() {
     LOGGER.trace("GPU NOP");
   }
@@ -171,25 +229,28 @@ public class Gpu implements Runnable {
       this.commandQueue.add(() -> {
         LOGGER.debug("Copying (%d, %d, %d, %d) from CPU to VRAM (address: %08x)", rectX, rectY, rectW, rectH, address);
 
-        MEMORY.waitForLock(() -> {
-          int i = 0;
-          for(int y = rectY; y < rectY + rectH; y += this.renderScale) {
-            for(int x = rectX; x < rectX + rectW; x += this.renderScale) {
-              final int packed = (int)MEMORY.get(address + i * 2, 2);
-              final int unpacked = MathHelper.colour15To24(packed);
-
-              for(int y1 = y; y1 < y + this.renderScale; y1++) {
-                for(int x1 = x; x1 < x + this.renderScale; x1++) {
-                  final int index = y1 * this.vramWidth + x1;
-                  this.vram24[index] = unpacked;
-                  this.vram15[index] = packed;
-                }
-              }
+        final short[] data = new short[rectW / this.renderScale * (rectH / this.renderScale)];
+        MEMORY.getShorts(address, data, 0, data.length);
 
-              i++;
+        int i = 0;
+        for(int y = rectY; y < rectY + rectH; y += this.renderScale) {
+          for(int x = rectX; x < rectX + rectW; x += this.renderScale) {
+            final int packed = data[i] & 0xffff;
+            final int unpacked = MathHelper.colour15To24(packed);
+
+            for(int y1 = y; y1 < y + this.renderScale; y1++) {
+              for(int x1 = x; x1 < x + this.renderScale; x1++) {
+                final int index = y1 * this.vramWidth + x1;
+                this.vram24[index] = unpacked;
+                this.vram15[index] = packed;
+              }
             }
+
+            i++;
           }
-        });
+        }
+
+        this.dirtyRows.mark(rectY, rectH);
       });
     }
   }
@@ -209,44 +270,47 @@ public class Gpu implements Runnable {
       this.commandQueue.add(() -> {
         LOGGER.debug("Copying (%d, %d, %d, %d) from VRAM to CPU (address: %08x)", rectX, rectY, rectW, rectH, address);
 
-        MEMORY.waitForLock(() -> {
-          int i = 0;
-          for(int y = rectY; y < rectY + rectH; y += this.renderScale) {
-            for(int x = rectX; x < rectX + rectW; x += this.renderScale) {
-              final int index = y * this.vramWidth + x;
-              MEMORY.set(address + i * 2, 2, this.vram15[index]);
-              i++;
-            }
+        final short[] data = new short[rectW / this.renderScale * (rectH / this.renderScale)];
+
+        int i = 0;
+        for(int y = rectY; y < rectY + rectH; y += this.renderScale) {
+          for(int x = rectX; x < rectX + rectW; x += this.renderScale) {
+            data[i] = (short)this.vram15[y * this.vramWidth + x];
+            i++;
           }
-        });
+        }
+
+        MEMORY.setShorts(address, data, 0, data.length);
       });
     }
   }
 
   private int tagsUploaded;
+  private final int[] packetWords = new int[0x100];
   public int uploadLinkedList(final long address) {
     this.tagsUploaded = 0;
 
-    MEMORY.waitForLock(() -> {
-      long value;
-      long a = address;
+    // Each packet is read with its own page lock so the code thread can keep writing to other pages during the walk
+    long value;
+    long a = address;
 
-      do {
-        try {
-          value = MEMORY.get(a, 4);
-          final long words = (value & 0xff00_0000L) >>> 24;
+    do {
+      try {
+        value = MEMORY.get(a, 4);
+        final int words = (int)((value & 0xff00_0000L) >>> 24);
 
-          for(int i = 1; i <= words; i++) {
-            this.queueGp0Command((int)MEMORY.get(a + i * 4L, 4));
-          }
+        MEMORY.getInts(a + 4L, this.packetWords, 0, words);
 
-          this.tagsUploaded++;
-          a = a & 0xff00_0000 | value & 0xff_ffffL;
-        } catch(final InvalidGp0CommandException e) {
-          throw new RuntimeException("Invalid GP0 packet at 0x%08x".formatted(a), e);
+        for(int i = 0; i < words; i++) {
+          this.queueGp0Command(this.packetWords[i]);
         }
-      } while((value & 0xff_ffffL) != 0xff_ffffL);
-    });
+
+        this.tagsUploaded++;
+        a = a & 0xff00_0000 | value & 0xff_ffffL;
+      } catch(final InvalidGp0CommandException e) {
+        throw new RuntimeException("Invalid GP0 packet at 0x%08x".formatted(a), e);
+      }
+    } while((value & 0xff_ffffL) != 0xff_ffffL);
 
     LOGGER.trace("GPU linked list uploaded");
 
@@ -452,6 +516,23 @@ public class Gpu implements Runnable {
           this.window.resize(this.windowWidth, this.windowHeight);
         }
       }
+
+      // Rewind one second
+      if(key == GLFW_KEY_F9) {
+        REWIND.rewind(60);
+      }
+
+      if(key == GLFW_KEY_F8) {
+        this.toggleMemoryProfiler();
+      }
+
+      if(key == GLFW_KEY_F5) {
+        this.quickSave();
+      }
+
+      if(key == GLFW_KEY_F6) {
+        this.quickLoad();
+      }
     });
 
     this.window.events.onResize((window1, width, height) -> {
@@ -575,7 +656,10 @@ public class Gpu implements Runnable {
   }
 
   public void tick() {
+    SAFEPOINT.poll();
+
     INTERRUPTS.set(InterruptType.VBLANK);
+    REWIND.capture();
 
     //Video clock is the cpu clock multiplied by 11/7.
     this.videoCycles += 100 * 11 / 7;
@@ -676,14 +760,22 @@ public class Gpu implements Runnable {
     }
 
     if(this.dmaOtc.channelControl.isBusy()) {
-      MEMORY.waitForLock(() -> {
-        for(int i = 0; i < this.dmaOtcCount - 1; i++) {
-          MEMORY.ref(4, this.dmaOtcAddress).offset(-i * 4L).setu(this.dmaOtcAddress - (i + 1) * 4L & 0xff_ffffL);
+      final Memory.BulkAccess bulk = MEMORY.bulkAccess(this.dmaOtcAddress - this.dmaOtcCount * 4L, (this.dmaOtcCount + 1) * 4);
+      try {
+        // Each entry links to the one before it - built in ascending address order so it can be written in one go
+        final int entries = Math.max(this.dmaOtcCount - 1, 0);
+        final int[] links = new int[entries];
+        for(int i = 0; i < entries; i++) {
+          links[entries - 1 - i] = (int)(this.dmaOtcAddress - (i + 1) * 4L & 0xff_ffffL);
         }
 
+        MEMORY.setInts(this.dmaOtcAddress - (entries - 1) * 4L, links, 0, entries);
+
         //TODO no$ docs seem to say this should be added here but this needs to be verified
         MEMORY.ref(4, this.dmaOtcAddress).offset(-this.dmaOtcCount * 4L).setu(0xff_ffffL);
-      });
+      } finally {
+        bulk.close();
+      }
 
       LOGGER.info("OTC DMA transfer complete");
       this.dmaOtc.transferComplete();
@@ -794,6 +886,14 @@ public class Gpu implements Runnable {
     this.status.drawingLine = this.status.drawingLine.flip();
   }
 
+  /**
+   * VRAM as one page per row - the 24-bit row followed by the 15-bit row as little-endian ints. The page count changes
+   * when VRAM is rescaled, which replaces {@link PagedStorage#getDirtyPages()}.
+   */
+  public PagedStorage getVramStorage() {
+    return this.vramStorage;
+  }
+
   public int getRenderScale() {
     return this.renderScale;
   }
@@ -873,6 +973,9 @@ public class Gpu implements Runnable {
       this.vram24 = vram24;
     }
 
+    this.dirtyRows = new DirtyPageTracker(this.vramHeight, 0);
+    this.dirtyRows.markAll();
+
     this.vramTexture.delete();
     this.vramTexture = Texture.empty(this.vramWidth, this.vramHeight);
 
@@ -1379,6 +1482,7 @@ public class Gpu implements Runnable {
     final int index = y * this.vramWidth + x;
     this.vram24[index] = pixel;
     this.vram15[index] = colour24To15(pixel);
+    this.dirtyRows.mark(y);
   }
 
   private static int interpolateCoords(final int w0, final int w1, final int w2, final int t0, final int t1, final int t2, final int area) {
@@ -1499,14 +1603,38 @@ public class Gpu implements Runnable {
   public void dump(final ByteBuffer stream) {
     IoHelper.write(stream, this.renderScale);
 
-    for(final long pixel : this.vram24) {
-      IoHelper.write(stream, pixel);
-    }
+    stream.asIntBuffer().put(this.vram24).put(this.vram15);
+    stream.position(stream.position() + (this.vram24.length + this.vram15.length) * 4);
+
+    this.dumpRegisters(stream);
+  }
+
+  /**
+   * Like {@link #dump} but only writes the VRAM rows that changed after {@code since}
+   */
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    IoHelper.write(stream, this.renderScale);
+    IoHelper.write(stream, this.dirtyRows.countDirty(since));
+
+    for(int y = 0; y < this.vramHeight; y++) {
+      if(this.dirtyRows.isDirty(y, since)) {
+        IoHelper.write(stream, y);
 
-    for(final long pixel : this.vram15) {
-      IoHelper.write(stream, pixel);
+        final int start = y * this.vramWidth;
+        for(int x = 0; x < this.vramWidth; x++) {
+          IoHelper.write(stream, this.vram24[start + x]);
+        }
+
+        for(int x = 0; x < this.vramWidth; x++) {
+          IoHelper.write(stream, this.vram15[start + x]);
+        }
+      }
     }
 
+    this.dumpRegisters(stream);
+  }
+
+  private void dumpRegisters(final ByteBuffer stream) {
     IoHelper.write(stream, this.isVramViewer);
     IoHelper.write(stream, this.windowWidth);
     IoHelper.write(stream, this.windowHeight);
@@ -1571,14 +1699,39 @@ public class Gpu implements Runnable {
 
     this.rescaleVram(renderScale);
 
-    for(int i = 0; i < this.vram24.length; i++) {
-      this.vram24[i] = IoHelper.readInt(buf);
-    }
+    buf.asIntBuffer().get(this.vram24).get(this.vram15);
+    buf.position(buf.position() + (this.vram24.length + this.vram15.length) * 4);
+
+    this.dirtyRows.markAll();
+    this.loadRegisters(buf, version);
+  }
+
+  /**
+   * Applies a delta written by {@link #dumpDelta}
+   */
+  public void loadDelta(final ByteBuffer buf, final int version) {
+    this.rescaleVram(IoHelper.readInt(buf));
+
+    final int rows = IoHelper.readInt(buf);
+    for(int i = 0; i < rows; i++) {
+      final int y = IoHelper.readInt(buf);
+      final int start = y * this.vramWidth;
 
-    for(int i = 0; i < this.vram15.length; i++) {
-      this.vram15[i] = IoHelper.readInt(buf);
+      for(int x = 0; x < this.vramWidth; x++) {
+        this.vram24[start + x] = IoHelper.readInt(buf);
+      }
+
+      for(int x = 0; x < this.vramWidth; x++) {
+        this.vram15[start + x] = IoHelper.readInt(buf);
+      }
+
+      this.dirtyRows.mark(y);
     }
 
+    this.loadRegisters(buf, version);
+  }
+
+  private void loadRegisters(final ByteBuffer buf, final int version) {
     this.isVramViewer = IoHelper.readBool(buf);
 
     if(version >= 2) {
@@ -1654,6 +1807,46 @@ public class Gpu implements Runnable {
     this.commandQueue.clear();
   }
 
+  private class VramStorage implements PagedStorage {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public DirtyPageTracker getDirtyPages() {
+      return Gpu.this.dirtyRows;
+    }
+
+    @Override
+    public int getPageSize() {
+      return Gpu.this.vramWidth * 8;
+    }
+
+    @Override
+    public int readPage(final int page, final byte[] dest) {
+      final int width = Gpu.this.vramWidth;
+      final int start = page * width;
+
+      for(int x = 0; x < width; x++) {
+        INT.set(dest, x * 4, Gpu.this.vram24[start + x]);
+        INT.set(dest, (width + x) * 4, Gpu.this.vram15[start + x]);
+      }
+
+      return width * 8;
+    }
+
+    @Override
+    public void writePage(final int page, final byte[] src) {
+      final int width = Gpu.this.vramWidth;
+      final int start = page * width;
+
+      for(int x = 0; x < width; x++) {
+        Gpu.this.vram24[start + x] = (int)INT.get(src, x * 4);
+        Gpu.this.vram15[start + x] = (int)INT.get(src, (width + x) * 4);
+      }
+
+      Gpu.this.dirtyRows.mark(page);
+    }
+  }
+
   public enum GP0_COMMAND {
     NOOP(0x00, 1, (buffer, gpu) -> () -> LOGGER.trace("GPU NOOP")),
     NOOP_4(0x04, 1, (buffer, gpu) -> () -> LOGGER.trace("GPU NOOP 4")), //TODO I'm not sure if this command is actually supposed to be executing, or if it's a bug in the game code
@@ -2,6 +2,7 @@ package legend.core.kernel;
 
 import legend.core.DebugHelper;
 import legend.core.cdrom.CdlLOC;
+import legend.core.memory.Memory;
 import legend.core.memory.Method;
 import legend.core.memory.Value;
 import legend.core.memory.types.ArrayRef;
@@ -138,7 +139,7 @@ public final class Bios {
   @Method(0xbfc00420L)
   public static void copyKernelSegment2() {
     //LAB_bfc00434
-    MEMORY.memcpy(kernelStart_a0000500.getAddress(), kernelStartRom_bfc10000.getAddress(), 0x8bf0);
+    MEMORY.copy(kernelStart_a0000500.getAddress(), kernelStartRom_bfc10000.getAddress(), 0x8bf0);
     MEMORY.addFunctions(Kernel.class);
   }
 
@@ -148,20 +149,7 @@ public final class Bios {
       return 0;
     }
 
-    MEMORY.waitForLock(() -> {
-      long dest = dst;
-      long s = size;
-      MEMORY.disableAlignmentChecks();
-      for(; s >= 8; s -= 8, dest += 8) {
-        MEMORY.set(dest, 8, 0);
-      }
-      MEMORY.enableAlignmentChecks();
-
-      for(int i = 0; i < s; i++) {
-        MEMORY.set(dst, (byte)0);
-      }
-    });
-
+    MEMORY.fill(dst, size, (byte)0);
     return dst;
   }
 
@@ -203,7 +191,7 @@ public final class Bios {
       return dst;
     }
 
-    MEMORY.memcpy(dst, src, size);
+    MEMORY.move(dst, src, size);
     return dst;
   }
 
@@ -684,12 +672,13 @@ public final class Bios {
     //LAB_bfc07aec
     //LAB_bfc07b08
     final int sectors = length / 0x800;
+    final Memory.Cursor fcbCursor = MEMORY.cursor(fcb);
 
-    CDROM.readFromDisk(new CdlLOC().unpack(MEMORY.ref(4, fcb).offset(0x24L).get() + MEMORY.ref(4, fcb).offset(0x10L).get() / 0x800L), sectors, dest);
+    CDROM.readFromDisk(new CdlLOC().unpack(fcbCursor.getU32(0x24L) + fcbCursor.getU32(0x10L) / 0x800L), sectors, dest);
 
     //LAB_bfc07b40
-    final long v = MEMORY.ref(4, fcb).offset(0x10L).get();
-    final long v0 = MEMORY.ref(4, fcb).offset(0x20L).get();
+    final long v = fcbCursor.getU32(0x10L);
+    final long v0 = fcbCursor.getU32(0x20L);
     final long v1;
     if(v0 < v + length) {
       v1 = v0 - v;
@@ -699,7 +688,7 @@ public final class Bios {
 
     //LAB_bfc07b68
     //LAB_bfc07b6c
-    MEMORY.ref(4, fcb).offset(0x10L).setu(v + v1);
+    fcbCursor.setU32(0x10L, v + v1);
 
     //LAB_bfc07b78
     return (int)v1;
@@ -6,10 +6,10 @@ import legend.core.memory.Value;
 import legend.core.memory.types.ArrayRef;
 import legend.core.memory.types.BoolRef;
 import legend.core.memory.types.Pointer;
-import legend.core.memory.types.ProcessControlBlock;
+import legend.core.memory.types.ProcessControlBlockStruct;
 import legend.core.memory.types.RunnableRef;
 import legend.core.memory.types.SupplierRef;
-import legend.core.memory.types.ThreadControlBlock;
+import legend.core.memory.types.ThreadControlBlockStruct;
 
 import javax.annotation.Nullable;
 
@@ -169,11 +169,11 @@ public final class Kernel {
 
   @Method(0xc80L)
   public static int ExceptionHandler_Impl_C06() {
-    final ThreadControlBlock tcb = ProcessControlBlockPtr_a0000108.deref().threadControlBlockPtr.deref();
+    final ThreadControlBlockStruct tcb = ProcessControlBlockStruct.at(ProcessControlBlockPtr_a0000108.getPointer()).threadControlBlock();
 
-    tcb.registers.get(4).set(CPU.getLastSyscall());
-    tcb.cop0r12Sr.set(CPU.R12_SR.get());
-    tcb.cop0r13Cause.set(CPU.R13_CAUSE.get());
+    tcb.register(4, CPU.getLastSyscall());
+    tcb.cop0r12Sr(CPU.R12_SR.get());
+    tcb.cop0r13Cause(CPU.R13_CAUSE.get());
 
     final ArrayRef<Pointer<PriorityChainEntry>> chains = ExceptionChainPtr_a0000100.deref();
 
@@ -220,10 +220,9 @@ public final class Kernel {
 
   @Method(0xf40)
   public static void ReturnFromException_Impl_B17() {
-    final ProcessControlBlock pcb = ProcessControlBlockPtr_a0000108.deref();
-    final ThreadControlBlock tcb = pcb.threadControlBlockPtr.deref();
+    final ThreadControlBlockStruct tcb = ProcessControlBlockStruct.at(ProcessControlBlockPtr_a0000108.getPointer()).threadControlBlock();
 
-    CPU.R12_SR.set(tcb.cop0r12Sr.get());
+    CPU.R12_SR.set(tcb.cop0r12Sr());
     CPU.RFE();
   }
 
@@ -558,9 +557,9 @@ public final class Kernel {
    */
   @Method(0x1a00L)
   public static int FUN_00001a00() {
-    final ProcessControlBlock pcb = ProcessControlBlockPtr_a0000108.deref();
-    final ThreadControlBlock tcb = pcb.threadControlBlockPtr.deref();
-    final long exceptionCause = tcb.cop0r13Cause.get() & 0x3cL;
+    final ProcessControlBlockStruct pcb = ProcessControlBlockStruct.at(ProcessControlBlockPtr_a0000108.getPointer());
+    final ThreadControlBlockStruct tcb = pcb.threadControlBlock();
+    final long exceptionCause = tcb.cop0r13Cause() & 0x3cL;
 
     //LAB_00001ae8
     if(exceptionCause == 0) { // Nothing
@@ -570,31 +569,31 @@ public final class Kernel {
 
     if(exceptionCause == 0x20L) { // Syscall
       //LAB_00001a2c
-      tcb.cop0r14Epc.add(0x4L);
+      tcb.cop0r14Epc(tcb.cop0r14Epc() + 0x4L);
 
-      switch((int)tcb.registers.get(4).get()) { // syscall index
+      switch((int)tcb.register(4)) { // syscall index
         case 0: // Nothing
           break;
 
         case 1: // EnterCriticalSection
-          if((tcb.cop0r12Sr.get() & 0x404L) == 0x404L) {
-            tcb.registers.get(1).set(0x1L);
+          if((tcb.cop0r12Sr() & 0x404L) == 0x404L) {
+            tcb.register(1, 0x1L);
           } else {
             //LAB_00001a80
-            tcb.registers.get(1).set(0);
+            tcb.register(1, 0);
           }
 
           //LAB_00001a84
-          tcb.cop0r12Sr.and(0xffff_fbfbL);
+          tcb.cop0r12Sr(tcb.cop0r12Sr() & 0xffff_fbfbL);
           break;
 
         case 2: // ExitCriticalSection
-          tcb.cop0r12Sr.or(0x404L);
+          tcb.cop0r12Sr(tcb.cop0r12Sr() | 0x404L);
           break;
 
         case 3:
-          pcb.threadControlBlockPtr.set(MEMORY.ref(4, tcb.registers.get(5).get()).cast(ThreadControlBlock::new));
-          tcb.registers.get(1).set(0x1L);
+          pcb.threadControlBlock(ThreadControlBlockStruct.at(tcb.register(5)));
+          tcb.register(1, 0x1L);
           break;
 
         default:
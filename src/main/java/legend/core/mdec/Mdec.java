@@ -1,6 +1,5 @@
 package legend.core.mdec;
 
-import legend.core.MathHelper;
 import legend.core.dma.DmaInterface;
 import legend.core.memory.IllegalAddressException;
 import legend.core.memory.Memory;
@@ -67,10 +66,12 @@ public class Mdec {
     DMA.mdecIn.setDmaInterface(new DmaInterface() {
       @Override
       public void blockCopy(final int size) {
-        final byte[] data = MEMORY.getBytes(DMA.mdecIn.MADR.get(), size * 4);
+        // Read the words out first - MDEC_REG0 is itself memory, so it can't be written from inside a readBuffer
+        final int[] data = new int[size];
+        MEMORY.getInts(DMA.mdecIn.MADR.get(), data, 0, size);
 
-        for(int i = 0; i < data.length; i += 4) {
-          MDEC_REG0.setu(MathHelper.get(data, i, 4));
+        for(final int word : data) {
+          MDEC_REG0.setu(word & 0xffff_ffffL);
         }
 
         DMA.mdecIn.MADR.addu(DMA.mdecIn.channelControl.getAddressStep().step * size);
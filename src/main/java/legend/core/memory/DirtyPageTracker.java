@@ -0,0 +1,189 @@
+package legend.core.memory;
+
+import legend.core.IoHelper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records the epoch in which each page of some backing storage was last written. The epoch clock is shared by every
+ * tracker, so one call to {@link #advanceEpoch()} marks a consistent point across RAM, VRAM and SPU RAM. Consumers
+ * (e.g. incremental savestates) keep the epoch they last captured and ask for the pages written after it.
+ *
+ * <p>Each page also has a generation that changes on every write, for caches that need to notice changes within an
+ * epoch. See {@link WriteSubscription}.</p>
+ */
+public class DirtyPageTracker {
+  private static final VarHandle GENERATION = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private static volatile int epoch = 1;
+
+  private final int pageBits;
+  private final int[] pages;
+  /**
+   * Published with release stores so that readers outside the memory locks see them. Racing writers may lose an
+   * increment, but the generation still changes.
+   */
+  private final int[] generations;
+
+  public DirtyPageTracker(final int length, final int pageBits) {
+    this.pageBits = pageBits;
+    this.pages = new int[(length + (1 << pageBits) - 1) >>> pageBits];
+    this.generations = new int[this.pages.length];
+  }
+
+  public static int currentEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Ends the current epoch. Should only be called while the hardware is paused.
+   *
+   * @return the epoch that just ended - pages written from now on are dirty relative to it
+   */
+  public static int advanceEpoch() {
+    final int ended = epoch;
+    epoch = ended + 1;
+    return ended;
+  }
+
+  public void mark(final int offset) {
+    final int current = epoch;
+    final int page = offset >>> this.pageBits;
+
+    this.bumpGeneration(page);
+
+    if(this.pages[page] != current) {
+      this.pages[page] = current;
+    }
+  }
+
+  public void mark(final int offset, final int length) {
+    if(length <= 0) {
+      return;
+    }
+
+    final int current = epoch;
+    final int last = offset + length - 1 >>> this.pageBits;
+
+    for(int page = offset >>> this.pageBits; page <= last; page++) {
+      this.pages[page] = current;
+      this.bumpGeneration(page);
+    }
+  }
+
+  public void markAll() {
+    Arrays.fill(this.pages, epoch);
+
+    for(int page = 0; page < this.generations.length; page++) {
+      this.bumpGeneration(page);
+    }
+  }
+
+  private void bumpGeneration(final int page) {
+    GENERATION.setRelease(this.generations, page, this.generations[page] + 1);
+  }
+
+  /**
+   * @return a value that changes whenever any page from {@code firstPage} to {@code lastPage} is written
+   */
+  public int getGeneration(final int firstPage, final int lastPage) {
+    int generation = (int)GENERATION.getAcquire(this.generations, firstPage);
+
+    for(int page = firstPage + 1; page <= lastPage; page++) {
+      generation += (int)GENERATION.getAcquire(this.generations, page);
+    }
+
+    return generation;
+  }
+
+  public int getPageBits() {
+    return this.pageBits;
+  }
+
+  public boolean isDirty(final int page, final int since) {
+    return this.pages[page] > since;
+  }
+
+  public int countDirty(final int since) {
+    int count = 0;
+    for(final int page : this.pages) {
+      if(page > since) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  public int getPageCount() {
+    return this.pages.length;
+  }
+
+  public int getPageSize() {
+    return 1 << this.pageBits;
+  }
+
+  /**
+   * Writes every page of {@code data} written after {@code since} as a count followed by (index, bytes) pairs
+   */
+  public void dumpPages(final ByteBuffer stream, final byte[] data, final int since) {
+    IoHelper.write(stream, this.countDirty(since));
+
+    for(int page = 0; page < this.pages.length; page++) {
+      if(this.isDirty(page, since)) {
+        final int offset = page << this.pageBits;
+        IoHelper.write(stream, page);
+        stream.put(data, offset, Math.min(this.getPageSize(), data.length - offset));
+      }
+    }
+  }
+
+  /**
+   * {@link #dumpPages(ByteBuffer, byte[], int)} for off-heap storage
+   */
+  public void dumpPages(final ByteBuffer stream, final ByteBuffer data, final int since) {
+    IoHelper.write(stream, this.countDirty(since));
+
+    for(int page = 0; page < this.pages.length; page++) {
+      if(this.isDirty(page, since)) {
+        final int offset = page << this.pageBits;
+        IoHelper.write(stream, page);
+        stream.put(data.slice(offset, Math.min(this.getPageSize(), data.capacity() - offset)));
+      }
+    }
+  }
+
+  /**
+   * Reads pages written by {@link #dumpPages} back into {@code data}
+   */
+  public void loadPages(final ByteBuffer stream, final byte[] data) {
+    final int count = IoHelper.readInt(stream);
+
+    for(int i = 0; i < count; i++) {
+      final int page = IoHelper.readInt(stream);
+      final int offset = page << this.pageBits;
+      final int length = Math.min(this.getPageSize(), data.length - offset);
+      stream.get(data, offset, length);
+      this.mark(offset, length);
+    }
+  }
+
+  /**
+   * {@link #loadPages(ByteBuffer, byte[])} for off-heap storage
+   */
+  public void loadPages(final ByteBuffer stream, final ByteBuffer data) {
+    final int count = IoHelper.readInt(stream);
+
+    for(int i = 0; i < count; i++) {
+      final int page = IoHelper.readInt(stream);
+      final int offset = page << this.pageBits;
+      final int length = Math.min(this.getPageSize(), data.capacity() - offset);
+      data.put(offset, stream, stream.position(), length);
+      stream.position(stream.position() + length);
+      this.mark(offset, length);
+    }
+  }
+}
@@ -1,10 +1,12 @@
 package legend.core.memory;
 
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import legend.core.Hardware;
 import legend.core.MathHelper;
+import legend.core.Safepoint;
+import legend.core.memory.segments.DirectRamSegment;
+import legend.core.memory.segments.RamSegment;
 import legend.core.memory.segments.TempSegment;
 import legend.core.memory.types.QuadConsumer;
 import org.apache.logging.log4j.LogManager;
@@ -12,12 +14,17 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.TriConsumer;
 
 import javax.annotation.Nullable;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -34,45 +41,213 @@ public class Memory {
     0xffff_ffff, 0xffff_ffff,                           // KSEG2: 1024MB
   };
 
-  private final Object lock = new Object();
+  private final MemoryLocks locks = new MemoryLocks();
 
   private final List<Segment> segments = new ArrayList<>();
+  private final PageTable pages = new PageTable(REGION_MASK);
 
   private boolean alignmentChecks = true;
 
+  /** Bytes scanned per lock when looking for a string's terminator */
+  private static final int STRING_CHUNK = 0x100;
+
   public static final long TEMP_FLAG = 0xffff_0000L;
   private static final long TEMP_MASK = 0x0000_ffffL;
 
   private final TempSegment temp = new TempSegment();
 
-  private final Set<Class<?>> overlays = new LinkedHashSet<>();
+  private final OverlayManager overlays = new OverlayManager(this);
+
+  private final StringCache strings = new StringCache(this);
+
+  private final List<Watchpoint> watchpoints = new CopyOnWriteArrayList<>();
+  private final WatchLog watchLog = new WatchLog(256);
+
+  @Nullable
+  private MemoryProfiler profiler;
 
-  public static final IntSet watches = new IntOpenHashSet();
+  /**
+   * Incremented whenever the page table changes so that cached segment lookups can be invalidated. Written under every
+   * lock after the page table is rebuilt, so a thread that reads the new version without a lock also sees the new table.
+   */
+  private volatile int layoutVersion;
 
   public Memory() {
     this.addSegment(this.temp);
   }
 
+  /**
+   * @deprecated Use {@link #watch}
+   */
+  @Deprecated
   public static void addWatch(final long address) {
-    watches.add((int)(address & 0xffffff));
+    Hardware.MEMORY.watch(address, 1, true, true, null);
   }
 
+  /**
+   * @deprecated Use {@link #unwatch}
+   */
+  @Deprecated
   public static void removeWatch(final long address) {
-    watches.remove((int)(address & 0xffffff));
+    final long masked = Hardware.MEMORY.maskAddress(address);
+
+    for(final Watchpoint watch : Hardware.MEMORY.watchpoints) {
+      if(watch.address() == masked) {
+        Hardware.MEMORY.unwatch(watch);
+      }
+    }
+  }
+
+  public Watchpoint watch(final long address, final int length, final boolean read, final boolean write, @Nullable final Watchpoint.Condition condition) {
+    final Watchpoint watch = new Watchpoint(this.maskAddress(address), length, read, write, condition);
+
+    final long stripes = this.locks.lockAll();
+    try {
+      this.watchpoints.add(watch);
+      this.rebuildPages();
+    } finally {
+      this.locks.unlock(stripes);
+    }
+
+    return watch;
+  }
+
+  public void unwatch(final Watchpoint watch) {
+    final long stripes = this.locks.lockAll();
+    try {
+      this.watchpoints.remove(watch);
+      this.rebuildPages();
+    } finally {
+      this.locks.unlock(stripes);
+    }
   }
 
+  public List<Watchpoint> getWatchpoints() {
+    return List.copyOf(this.watchpoints);
+  }
+
+  public WatchLog getWatchLog() {
+    return this.watchLog;
+  }
+
+  private void checkWatches(final long address, final int size, final long value, final boolean write) {
+    final long masked = this.maskAddress(address);
+
+    for(final Watchpoint watch : this.watchpoints) {
+      if(watch.matches(masked, size, value, write)) {
+        this.watchLog.add(new WatchLog.Hit(watch, masked, size, value, write, Thread.currentThread().getName()));
+      }
+    }
+  }
+
+  private Watchpoint[] getWatchpoints(final Segment segment) {
+    return this.watchpoints.stream()
+      .filter(watch -> watch.overlaps(segment.getAddress(), segment.getLength()))
+      .toArray(Watchpoint[]::new);
+  }
+
+  /**
+   * Starts counting accesses per page and per segment, replacing any previous profile
+   */
+  public MemoryProfiler startProfiling() {
+    final long stripes = this.locks.lockAll();
+    try {
+      this.profiler = new MemoryProfiler();
+      this.rebuildPages();
+      return this.profiler;
+    } finally {
+      this.locks.unlock(stripes);
+    }
+  }
+
+  /**
+   * Stops counting. The profiler keeps its counts so they can still be exported.
+   */
+  public void stopProfiling() {
+    final long stripes = this.locks.lockAll();
+    try {
+      this.profiler = null;
+      this.rebuildPages();
+    } finally {
+      this.locks.unlock(stripes);
+    }
+  }
+
+  @Nullable
+  public MemoryProfiler getProfiler() {
+    return this.profiler;
+  }
+
+  private void rebuildPages() {
+    this.strings.clear();
+
+    final Map<Segment, Segment> watched = new HashMap<>();
+    final Map<Segment, Segment> profiled = new HashMap<>();
+    final MemoryProfiler profiler = this.profiler;
+
+    this.pages.rebuild(this.segments, (segment, pageAddress) -> {
+      Segment decorated = segment;
+
+      for(final Watchpoint watch : this.watchpoints) {
+        if(watch.overlaps(pageAddress, PageTable.PAGE_SIZE) && watch.overlaps(segment.getAddress(), segment.getLength())) {
+          decorated = watched.computeIfAbsent(segment, key -> new WatchSegment(key, this.getWatchpoints(key), this.watchLog));
+          break;
+        }
+      }
+
+      if(profiler != null) {
+        final Segment inner = decorated;
+        decorated = profiled.computeIfAbsent(inner, key -> new ProfilingSegment(key, profiler, profiler.counters(segment)));
+      }
+
+      return decorated;
+    });
+
+    this.layoutVersion++;
+  }
+
+  public void setLockMode(final MemoryLocks.Mode mode) {
+    this.locks.setMode(mode);
+  }
+
+  /**
+   * Lets threads waiting for memory locks count as parked for a safepoint (see {@link MemoryLocks})
+   */
+  public void setSafepoint(@Nullable final Safepoint safepoint) {
+    this.locks.setSafepoint(safepoint);
+  }
+
+  /**
+   * Locks all of memory. Prefer {@link #bulkAccess} when the range being accessed is known.
+   */
   public void waitForLock(final Runnable callback) {
-    synchronized(this.lock) {
+    final long stripes = this.locks.lockAll();
+    try {
       callback.run();
+    } finally {
+      this.locks.unlock(stripes);
     }
   }
 
+  /**
+   * Locks all of memory. Prefer {@link #bulkAccess} when the range being accessed is known.
+   */
   public <T> T waitForLock(final Supplier<T> callback) {
-    synchronized(this.lock) {
+    final long stripes = this.locks.lockAll();
+    try {
       return callback.get();
+    } finally {
+      this.locks.unlock(stripes);
     }
   }
 
+  /**
+   * Holds the locks for an address range until closed. Accesses made while holding it must stay within the range.
+   */
+  public BulkAccess bulkAccess(final long address, final int length) {
+    return new BulkAccess(this.locks.lock(this.maskAddress(address), length));
+  }
+
   public void disableAlignmentChecks() {
     this.alignmentChecks = false;
   }
@@ -81,7 +256,7 @@ public class Memory {
     this.alignmentChecks = true;
   }
 
-  private void checkAlignment(final long address, final int size) {
+  void checkAlignment(final long address, final int size) {
     if(!this.alignmentChecks) {
       return;
     }
@@ -96,20 +271,30 @@ public class Memory {
     }
   }
 
-  private long maskAddress(final long address) {
+  long maskAddress(final long address) {
     final int region = (int)(address >>> 29 & 0b111);
     return address & REGION_MASK[region];
   }
 
   public void addSegment(final Segment segment) {
-    synchronized(this.lock) {
+    final long stripes = this.locks.lockAll();
+    try {
       this.segments.add(segment);
+      this.rebuildPages();
+    } finally {
+      this.locks.unlock(stripes);
     }
   }
 
-  private Segment getSegment(final long address) {
+  Segment getSegment(final long address) {
     final long masked = this.maskAddress(address);
 
+    final Segment page = this.pages.get(address);
+    if(page != null && page.accepts(masked)) {
+      return page;
+    }
+
+    // Slow path for addresses that share a page slot with another segment
     for(final Segment segment : this.segments) {
       if(segment.accepts(masked)) {
         return segment;
@@ -120,112 +305,427 @@ public class Memory {
   }
 
   public byte get(final long address) {
-    if(watches.contains((int)address & 0xffffff)) {
-      LOGGER.error(Long.toHexString(address) + " read", new Throwable());
-    }
-
-    synchronized(this.lock) {
+    final ReentrantLock lock = this.locks.lock(this.maskAddress(address));
+    try {
       final Segment segment = this.getSegment(address);
       return segment.get((int)(this.maskAddress(address) - segment.getAddress()));
+    } finally {
+      lock.unlock();
     }
   }
 
   public long get(final long address, final int size) {
     this.checkAlignment(address, size);
 
-    if(watches.contains((int)address & 0xffffff)) {
-      LOGGER.error(Long.toHexString(address) + " read", new Throwable());
-    }
-
-    synchronized(this.lock) {
+    final ReentrantLock lock = this.locks.lock(this.maskAddress(address));
+    try {
       final Segment segment = this.getSegment(address);
       return segment.get((int)(this.maskAddress(address) - segment.getAddress()), size);
+    } finally {
+      lock.unlock();
     }
   }
 
   public void set(final long address, final byte data) {
-    synchronized(this.lock) {
+    final ReentrantLock lock = this.locks.lock(this.maskAddress(address));
+    try {
       final Segment segment = this.getSegment(address);
       segment.set((int)(this.maskAddress(address) - segment.getAddress()), data);
-    }
-
-    if(watches.contains((int)address & 0xffffff)) {
-      LOGGER.error(Long.toHexString(address) + " set to " + Long.toHexString(data), new Throwable());
+    } finally {
+      lock.unlock();
     }
   }
 
   public void set(final long address, final int size, final long data) {
     this.checkAlignment(address, size);
 
-    synchronized(this.lock) {
+    final ReentrantLock lock = this.locks.lock(this.maskAddress(address));
+    try {
       final Segment segment = this.getSegment(address);
       final int addr = (int)(this.maskAddress(address) - segment.getAddress());
       segment.removeFunction(addr);
       segment.set(addr, size, data);
-    }
-
-    if(watches.contains((int)address & 0xffffff)) {
-      LOGGER.error(Long.toHexString(address) + " set to " + Long.toHexString(data), new Throwable());
+    } finally {
+      lock.unlock();
     }
   }
 
   public byte[] getBytes(final long address, final int size) {
-    synchronized(this.lock) {
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(address, size, 0, false);
+    }
+
+    final long stripes = this.locks.lock(this.maskAddress(address), size);
+    try {
       final Segment segment = this.getSegment(address);
       return segment.getBytes((int)(this.maskAddress(address) - segment.getAddress()), size);
+    } finally {
+      this.locks.unlock(stripes);
     }
   }
 
+  /**
+   * Reads a NUL-terminated Latin-1 string, scanning at most {@code maxLength} bytes for the terminator. The scan is
+   * done a chunk at a time so that long limits don't lock every stripe.
+   *
+   * @return the string, or null if there was no terminator within {@code maxLength} bytes
+   * @throws IllegalAddressException if the string runs off the end of its segment
+   */
+  @Nullable
+  public String getString(final long address, final int maxLength) {
+    final long masked = this.maskAddress(address);
+    final Segment segment = this.getSegment(address);
+    final int offset = (int)(masked - segment.getAddress());
+    final int limit = Math.min(maxLength, segment.getLength() - offset);
+
+    int length = -1;
+    for(int scanned = 0; scanned < limit && length == -1; scanned += STRING_CHUNK) {
+      final int chunk = Math.min(STRING_CHUNK, limit - scanned);
+      final long stripes = this.locks.lock(masked + scanned, chunk);
+      try {
+        final int index = segment.indexOf(offset + scanned, chunk, (byte)0);
+
+        if(index != -1) {
+          length = scanned + index;
+        }
+      } finally {
+        this.locks.unlock(stripes);
+      }
+    }
+
+    if(length == -1) {
+      if(limit < maxLength) {
+        throw new IllegalAddressException("String at " + Long.toHexString(address) + " runs off the end of its segment");
+      }
+
+      return null;
+    }
+
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(address, length + 1, 0, false);
+    }
+
+    final long stripes = this.locks.lock(masked, length);
+    try {
+      return segment.getString(offset, length);
+    } finally {
+      this.locks.unlock(stripes);
+    }
+  }
+
+  /**
+   * {@link #getString(long, int)}, but served from a small cache while the string's pages are unwritten
+   */
+  @Nullable
+  public String getCachedString(final long address, final int maxLength) {
+    return this.strings.get(address, maxLength);
+  }
+
   public void getBytes(final long address, final byte[] dest, final int offset, final int size) {
-    if(watches.contains((int)address & 0xffffff)) {
-      LOGGER.error(Long.toHexString(address) + " read", new Throwable());
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(address, size, 0, false);
     }
 
-    synchronized(this.lock) {
+    final long stripes = this.locks.lock(this.maskAddress(address), size);
+    try {
       final Segment segment = this.getSegment(address);
       segment.getBytes((int)(this.maskAddress(address) - segment.getAddress()), dest, offset, size);
+    } finally {
+      this.locks.unlock(stripes);
     }
   }
 
+  /**
+   * Lends {@code length} bytes at {@code address} to {@code reader} as a little-endian buffer. RAM is lent in place;
+   * anything else is copied first. The buffer is only valid during the call, which runs under the range's locks and so
+   * mustn't access memory itself.
+   *
+   * @throws IllegalAddressException if the range runs off the end of its segment
+   */
+  public void readBuffer(final long address, final int length, final Consumer<ByteBuffer> reader) {
+    final Segment segment = this.getBufferSegment(address, length);
+    final int offset = (int)(this.maskAddress(address) - segment.getAddress());
+
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(address, length, 0, false);
+    }
+
+    final long stripes = this.locks.lock(this.maskAddress(address), length);
+    try {
+      ByteBuffer buffer = segment.slice(offset, length);
+      if(buffer == null) {
+        buffer = ByteBuffer.wrap(segment.getBytes(offset, length)).order(ByteOrder.LITTLE_ENDIAN);
+      }
+
+      reader.accept(buffer);
+    } finally {
+      this.locks.unlock(stripes);
+    }
+  }
+
+  /**
+   * Lends {@code length} bytes at {@code address} to {@code writer} as a little-endian buffer, e.g. so that a device
+   * can transfer straight into RAM. Functions bound in the range are unbound and its pages are marked dirty once the
+   * writer returns. The same restrictions as {@link #readBuffer} apply.
+   *
+   * @throws IllegalAddressException if the range runs off the end of its segment
+   */
+  public void writeBuffer(final long address, final int length, final Consumer<ByteBuffer> writer) {
+    final Segment segment = this.getBufferSegment(address, length);
+    final int offset = (int)(this.maskAddress(address) - segment.getAddress());
+
+    final long stripes = this.locks.lock(this.maskAddress(address), length);
+    try {
+      final ByteBuffer slice = segment.slice(offset, length);
+      if(slice != null) {
+        try {
+          writer.accept(slice);
+        } finally {
+          segment.markWritten(offset, length);
+        }
+      } else {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        writer.accept(buffer);
+        segment.setBytes(offset, buffer.array());
+      }
+    } finally {
+      this.locks.unlock(stripes);
+    }
+
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(address, length, 0, true);
+    }
+  }
+
+  /**
+   * Buffers can't be split across segments, so lent ranges have to fit in one
+   */
+  private Segment getBufferSegment(final long address, final int length) {
+    final Segment segment = this.getSegment(address);
+    if(this.maskAddress(address) + length > segment.getAddress() + segment.getLength()) {
+      throw new IllegalAddressException("Buffer of " + length + " bytes at " + Long.toHexString(address) + " runs off the end of its segment");
+    }
+
+    return segment;
+  }
+
   public void setBytes(final long address, final byte[] data) {
     this.setBytes(address, data, 0, data.length);
   }
 
   public void setBytes(final long address, final byte[] data, final int offset, final int size) {
-    synchronized(this.lock) {
+    final long stripes = this.locks.lock(this.maskAddress(address), size);
+    try {
       final Segment segment = this.getSegment(address);
       segment.setBytes((int)(this.maskAddress(address) - segment.getAddress()), data, offset, size);
+    } finally {
+      this.locks.unlock(stripes);
+    }
+
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(address, size, MathHelper.get(data, offset, Math.min(size, 4)), true);
+    }
+  }
+
+  /**
+   * Sets {@code length} bytes to {@code value}, splitting the range across segments as needed
+   */
+  public void fill(final long address, final int length, final byte value) {
+    if(length <= 0) {
+      return;
+    }
+
+    final long stripes = this.locks.lock(this.maskAddress(address), length);
+    try {
+      for(int done = 0; done < length; ) {
+        final Segment segment = this.getSegment(address + done);
+        final int offset = (int)(this.maskAddress(address + done) - segment.getAddress());
+        final int count = Math.min(length - done, segment.getLength() - offset);
+        segment.fill(offset, count, value);
+        done += count;
+      }
+    } finally {
+      this.locks.unlock(stripes);
     }
 
-    if(watches.contains((int)address & 0xffffff)) {
-      LOGGER.error(Long.toHexString(address) + " set to " + Long.toHexString(MathHelper.get(data, 0, 4)), new Throwable());
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(address, length, value & 0xffL, true);
     }
   }
 
+  /**
+   * Copies {@code length} bytes like C's memcpy. Overlapping ranges are only safe within a single segment - use
+   * {@link #move} for those.
+   */
+  public void copy(final long dest, final long src, final int length) {
+    this.transfer(dest, src, length, false);
+  }
+
+  /**
+   * @deprecated Use {@link #copy}, or {@link #move} for overlapping ranges
+   */
+  @Deprecated
   public void memcpy(final long dest, final long src, final int length) {
-    synchronized(this.lock) {
-      final Segment srcSegment = this.getSegment(src);
-      Segment destSegment = this.getSegment(dest);
+    this.copy(dest, src, length);
+  }
+
+  /**
+   * Copies {@code length} bytes like C's memmove, so the ranges may overlap
+   */
+  public void move(final long dest, final long src, final int length) {
+    final long maskedDest = this.maskAddress(dest);
+    final long maskedSrc = this.maskAddress(src);
+    this.transfer(dest, src, length, maskedDest > maskedSrc && maskedDest < maskedSrc + length);
+  }
+
+  /**
+   * Copies a segment-sized piece at a time. Each piece is a single {@link System#arraycopy} for array-backed segments.
+   *
+   * @param backwards copy the last piece first, for a destination that overlaps the end of the source
+   */
+  private void transfer(final long dest, final long src, final int length, final boolean backwards) {
+    if(length <= 0) {
+      return;
+    }
 
-      if(destSegment == srcSegment) {
-        srcSegment.memcpy((int)(this.maskAddress(dest) - srcSegment.getAddress()), (int)(this.maskAddress(src) - srcSegment.getAddress()), length);
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(src, length, 0, false);
+    }
+
+    final long stripes = this.locks.lock(this.maskAddress(dest), this.maskAddress(src), length);
+    try {
+      if(backwards) {
+        for(int end = length; end > 0; ) {
+          final Segment srcSegment = this.getSegment(src + end - 1);
+          final Segment destSegment = this.getSegment(dest + end - 1);
+          final int srcEnd = (int)(this.maskAddress(src + end - 1) - srcSegment.getAddress()) + 1;
+          final int destEnd = (int)(this.maskAddress(dest + end - 1) - destSegment.getAddress()) + 1;
+          final int count = Math.min(end, Math.min(srcEnd, destEnd));
+          this.transfer(destSegment, destEnd - count, srcSegment, srcEnd - count, count);
+          end -= count;
+        }
       } else {
-        final byte[] data = srcSegment.getBytes((int)(this.maskAddress(src) - srcSegment.getAddress()), length);
+        for(int done = 0; done < length; ) {
+          final Segment srcSegment = this.getSegment(src + done);
+          final Segment destSegment = this.getSegment(dest + done);
+          final int srcOffset = (int)(this.maskAddress(src + done) - srcSegment.getAddress());
+          final int destOffset = (int)(this.maskAddress(dest + done) - destSegment.getAddress());
+          final int count = Math.min(length - done, Math.min(srcSegment.getLength() - srcOffset, destSegment.getLength() - destOffset));
+          this.transfer(destSegment, destOffset, srcSegment, srcOffset, count);
+          done += count;
+        }
+      }
+    } finally {
+      this.locks.unlock(stripes);
+    }
 
-        int offset = 0;
-        while(offset < data.length) {
-          final int copyLen = Math.min(data.length, destSegment.getLength());
-          destSegment.setBytes((int)(this.maskAddress(dest + offset) - destSegment.getAddress()), data, offset, copyLen);
-          offset += copyLen;
+    if(!this.watchpoints.isEmpty()) {
+      this.checkWatches(dest, length, 0, true);
+    }
+  }
+
+  private void transfer(final Segment dest, final int destOffset, final Segment src, final int srcOffset, final int length) {
+    if(dest == src) {
+      src.memcpy(destOffset, srcOffset, length);
+    } else {
+      src.copyTo(srcOffset, dest, destOffset, length);
+    }
+  }
+
+  public void getShorts(final long address, final short[] dest, final int offset, final int count) {
+    this.getShorts(address, dest, offset, count, 2);
+  }
+
+  /**
+   * Reads {@code count} 16-bit values starting at {@code address}, {@code stride} bytes apart
+   */
+  public void getShorts(final long address, final short[] dest, final int offset, final int count, final int stride) {
+    this.transfer(address, 2, count, stride, (segment, segmentOffset, index, length) -> segment.getShorts(segmentOffset, dest, offset + index, length, stride));
+  }
+
+  public void getInts(final long address, final int[] dest, final int offset, final int count) {
+    this.getInts(address, dest, offset, count, 4);
+  }
+
+  /**
+   * Reads {@code count} 32-bit values starting at {@code address}, {@code stride} bytes apart
+   */
+  public void getInts(final long address, final int[] dest, final int offset, final int count, final int stride) {
+    this.transfer(address, 4, count, stride, (segment, segmentOffset, index, length) -> segment.getInts(segmentOffset, dest, offset + index, length, stride));
+  }
+
+  public void setShorts(final long address, final short[] src, final int offset, final int count) {
+    this.setShorts(address, src, offset, count, 2);
+  }
 
-          if(offset < data.length) {
-            destSegment = this.getSegment(dest + offset);
-          }
+  /**
+   * Writes {@code count} 16-bit values starting at {@code address}, {@code stride} bytes apart
+   */
+  public void setShorts(final long address, final short[] src, final int offset, final int count, final int stride) {
+    this.transfer(address, 2, count, stride, (segment, segmentOffset, index, length) -> segment.setShorts(segmentOffset, src, offset + index, length, stride));
+  }
+
+  public void setInts(final long address, final int[] src, final int offset, final int count) {
+    this.setInts(address, src, offset, count, 4);
+  }
+
+  /**
+   * Writes {@code count} 32-bit values starting at {@code address}, {@code stride} bytes apart
+   */
+  public void setInts(final long address, final int[] src, final int offset, final int count, final int stride) {
+    this.transfer(address, 4, count, stride, (segment, segmentOffset, index, length) -> segment.setInts(segmentOffset, src, offset + index, length, stride));
+  }
+
+  /**
+   * Splits a strided transfer into one call per segment (or per page while watchpoints are set, so that only watched
+   * pages are routed through their watch decorators)
+   */
+  private void transfer(final long address, final int size, final int count, final int stride, final Transfer transfer) {
+    if(count <= 0) {
+      return;
+    }
+
+    if(stride < size) {
+      throw new IllegalArgumentException("Stride " + stride + " is smaller than element size " + size);
+    }
+
+    this.checkAlignment(address, size);
+
+    if(this.alignmentChecks && (stride & size - 1) != 0) {
+      throw new MisalignedAccessException("Misaligned stride " + stride + " for size " + size);
+    }
+
+    final long stripes = this.locks.lock(this.maskAddress(address), (count - 1) * stride + size);
+    try {
+      int index = 0;
+      while(index < count) {
+        final long elementAddress = address + (long)index * stride;
+        final long masked = this.maskAddress(elementAddress);
+        final Segment segment = this.getSegment(elementAddress);
+
+        long end = segment.getAddress() + segment.getLength();
+        if(!this.watchpoints.isEmpty()) {
+          end = Math.min(end, (masked & -PageTable.PAGE_SIZE) + PageTable.PAGE_SIZE);
+        }
+
+        if(end - masked < size) {
+          throw new IllegalAddressException("Element at " + Long.toHexString(elementAddress) + " straddles a segment boundary");
         }
+
+        final int length = (int)Math.min(count - index, (end - masked - size) / stride + 1);
+        transfer.transfer(segment, (int)(masked - segment.getAddress()), index, length);
+        index += length;
       }
+    } finally {
+      this.locks.unlock(stripes);
     }
   }
 
+  @FunctionalInterface
+  private interface Transfer {
+    void transfer(final Segment segment, final int segmentOffset, final int index, final int length);
+  }
+
   public Value ref(final int byteSize, final long address) {
     this.checkAlignment(address, byteSize);
     return new MemoryValue(byteSize, address);
@@ -239,6 +739,47 @@ public class Memory {
     return constructor.apply(this.ref(byteSize, address));
   }
 
+  public Cursor cursor(final long address) {
+    return new Cursor(address);
+  }
+
+  /**
+   * A view of {@code count} consecutive 32-bit values starting at {@code address}
+   */
+  public IntView intView(final long address, final int count) {
+    return new IntView(address, count);
+  }
+
+  /**
+   * A view of {@code count} consecutive 16-bit values starting at {@code address}
+   */
+  public ShortView shortView(final long address, final int count) {
+    return new ShortView(address, count);
+  }
+
+  /**
+   * A view of {@code count} consecutive bytes starting at {@code address}
+   */
+  public ByteView byteView(final long address, final int count) {
+    return new ByteView(address, count);
+  }
+
+  /**
+   * Subscribes to writes to a range so that a cache of it can be validated cheaply. Ranges that aren't entirely within
+   * write-tracked storage always report a change.
+   */
+  public WriteSubscription subscribe(final long address, final int length) {
+    final Segment segment = this.getSegment(address);
+    final PagedStorage storage = segment.getPagedStorage();
+    final long offset = this.maskAddress(address) - segment.getAddress();
+
+    if(storage == null || offset + length > segment.getLength()) {
+      return new WriteSubscription(null, 0, 0);
+    }
+
+    return new WriteSubscription(storage.getDirtyPages(), (int)offset, length);
+  }
+
   public TemporaryReservation temp() {
     return this.temp(4);
   }
@@ -251,6 +792,14 @@ public class Memory {
     this.temp.release((int)(address & TEMP_MASK), length);
   }
 
+  public TempSegment.Stats getTempStats() {
+    return this.temp.getStats();
+  }
+
+  public void resetTempHighWaterMark() {
+    this.temp.resetHighWaterMark();
+  }
+
   public void dump(final ByteBuffer stream) {
     for(final Segment segment : this.segments) {
       segment.dump(stream);
@@ -261,43 +810,85 @@ public class Memory {
     for(final Segment segment : this.segments) {
       segment.load(stream);
     }
+
+    this.overlaysRestored();
   }
 
-  private record MethodInfo(java.lang.reflect.Method method, boolean ignoreExtraParams) { }
+  /**
+   * @return the storage behind every segment that tracks its writes per page
+   */
+  public List<PagedStorage> getPagedStorage() {
+    final List<PagedStorage> storage = new ArrayList<>();
 
-  public Set<Class<?>> getOverlays() {
-    return this.overlays;
+    for(final Segment segment : this.segments) {
+      final PagedStorage paged = segment.getPagedStorage();
+
+      if(paged != null) {
+        storage.add(paged);
+      }
+    }
+
+    return storage;
   }
 
-  public void addFunctions(final Class<?> cls) {
-    LOGGER.info("Adding function references from %s", cls);
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    for(final Segment segment : this.segments) {
+      segment.dumpDelta(stream, since);
+    }
+  }
 
-    this.overlays.remove(cls); // Ensure that when a duplicate overlay is added, it moves to the top
-    this.overlays.add(cls);
+  public void loadDelta(final ByteBuffer stream, final int version) throws ClassNotFoundException {
+    for(final Segment segment : this.segments) {
+      segment.loadDelta(stream);
+    }
 
-    final Long2ObjectMap<MethodInfo> methods = new Long2ObjectOpenHashMap<>();
+    this.overlaysRestored();
+  }
 
-    for(final java.lang.reflect.Method method : cls.getMethods()) {
-      if(method.isAnnotationPresent(Method.class)) {
-        final Method address = method.getAnnotation(Method.class);
-        final long addr = this.maskAddress(address.value());
+  private void overlaysRestored() {
+    final long stripes = this.locks.lockAll();
+    try {
+      this.overlays.restored();
+    } finally {
+      this.locks.unlock(stripes);
+    }
+  }
 
-        if(methods.containsKey(addr)) {
-          throw new RuntimeException(cls + " contains two methods at address " + addr);
-        }
+  public Set<Class<?>> getOverlays() {
+    return this.overlays.getInstalled();
+  }
 
-        methods.put(addr, new MethodInfo(method, address.ignoreExtraParams()));
-      }
+  /**
+   * @return the most recently added overlay with a function at {@code address}, or null if there is none
+   */
+  @Nullable
+  public Class<?> getOverlayAt(final long address) {
+    final long stripes = this.locks.lockAll();
+    try {
+      return this.overlays.getOwner(address);
+    } finally {
+      this.locks.unlock(stripes);
     }
+  }
 
-    if(methods.isEmpty()) {
-      throw new RuntimeException(cls + " contained no methods with Method annotations");
+  public void addFunctions(final Class<?> cls) {
+    final long stripes = this.locks.lockAll();
+    try {
+      this.overlays.install(cls);
+    } finally {
+      this.locks.unlock(stripes);
     }
+  }
 
-    synchronized(this.lock) {
-      for(final Long2ObjectMap.Entry<MethodInfo> entry : methods.long2ObjectEntrySet()) {
-        this.setFunction(entry.getLongKey(), entry.getValue().method, null, entry.getValue().ignoreExtraParams);
-      }
+  /**
+   * Unbinds the functions added by {@link #addFunctions}, except those that a later overlay has replaced
+   */
+  public void removeFunctions(final Class<?> cls) {
+    final long stripes = this.locks.lockAll();
+    try {
+      this.overlays.uninstall(cls);
+    } finally {
+      this.locks.unlock(stripes);
     }
   }
 
@@ -326,6 +917,7 @@ public class Memory {
     private final long address;
     private Segment segment;
     private int segmentOffset;
+    private int layoutVersion;
 
     public MemoryValue(final int byteSize, final long address) {
       super(byteSize);
@@ -338,7 +930,8 @@ public class Memory {
     }
 
     private Segment getSegment() {
-      if(this.segment == null) {
+      if(this.segment == null || this.layoutVersion != Memory.this.layoutVersion) {
+        this.layoutVersion = Memory.this.layoutVersion;
         this.segment = Memory.this.getSegment(this.address);
         this.segmentOffset = (int)(Memory.this.maskAddress(this.address) - this.segment.getAddress());
       }
@@ -394,12 +987,11 @@ public class Memory {
 
     @Override
     public long get() {
-      if(watches.contains((int)this.address & 0xffffff)) {
-        LOGGER.error(Long.toHexString(this.address) + " read", new Throwable());
-      }
-
-      synchronized(Memory.this.lock) {
+      final ReentrantLock lock = Memory.this.locks.lock(Memory.this.maskAddress(this.address));
+      try {
         return this.getSegment().get(this.segmentOffset, this.getSize());
+      } finally {
+        lock.unlock();
       }
     }
 
@@ -408,53 +1000,54 @@ public class Memory {
       return MathHelper.sign(this.get(), this.getSize());
     }
 
+    @Override
+    public String getString() {
+      if(this.getSize() != 1) {
+        throw new RuntimeException("Byte size for string values must be set to 1");
+      }
+
+      final String string = Memory.this.getString(this.address, Integer.MAX_VALUE);
+
+      if(string == null) {
+        throw new IllegalAddressException("String at " + Long.toHexString(this.address) + " runs off the end of its segment");
+      }
+
+      return string;
+    }
+
     @Override
     public Object call(final Object... params) {
-      try {
-        final MethodBinding binding = this.getSegment().getFunction(this.segmentOffset);
-        final java.lang.reflect.Method method = binding.method();
-        final Object[] finalParams;
-
-        if(method.getParameterCount() < params.length && binding.ignoreExtraParams()) {
-          finalParams = new Object[method.getParameterCount()];
-          System.arraycopy(params, 0, finalParams, 0, finalParams.length);
-        } else {
-          finalParams = params;
-        }
+      // Dynamic calls are the code thread's safepoint
+      Hardware.SAFEPOINT.poll();
 
-        return binding.method().invoke(binding.instance(), finalParams);
-      } catch(final IllegalArgumentException e) {
+      final MethodBinding binding = this.getSegment().getFunction(this.segmentOffset);
+
+      try {
+        return binding.invoker().invoke(params);
+      } catch(final IllegalArgumentException | ClassCastException | NullPointerException e) {
+        // Wrong parameter count, wrong parameter type, or null for a primitive parameter
         LOGGER.error("Bad dynamic method call to %08x", this.address);
         LOGGER.error("Params:");
 
         for(final Object param : params) {
-          LOGGER.error("%s: %s", param.getClass(), param);
+          LOGGER.error("%s: %s", param != null ? param.getClass() : null, param);
         }
 
         throw e;
-      } catch(final IllegalAccessException e) {
+      } catch(final RuntimeException | Error e) {
+        throw e;
+      } catch(final Throwable e) {
         throw new RuntimeException(e);
-      } catch(final InvocationTargetException e) {
-        if(e.getTargetException() instanceof RuntimeException) {
-          throw (RuntimeException)e.getTargetException();
-        }
-
-        if(e.getTargetException() instanceof Error) {
-          throw (Error)e.getTargetException();
-        }
-
-        throw new RuntimeException(e.getTargetException());
       }
     }
 
     @Override
     public Value set(final long value) {
-      synchronized(Memory.this.lock) {
+      final ReentrantLock lock = Memory.this.locks.lock(Memory.this.maskAddress(this.address));
+      try {
         this.getSegment().set(this.segmentOffset, this.getSize(), value);
-      }
-
-      if(watches.contains((int)this.address & 0xffffff)) {
-        LOGGER.error(Long.toHexString(this.address) + " set to " + Long.toHexString(value), new Throwable());
+      } finally {
+        lock.unlock();
       }
 
       return this;
@@ -569,6 +1162,547 @@ public class Memory {
     }
   }
 
+  /**
+   * A reusable, mutable view of memory at a base address. Unlike {@link MemoryValue}, offsetting a cursor doesn't
+   * allocate, and the resolved segment is cached for as long as accesses stay within the same page of it. Cursors are
+   * not thread safe.
+   */
+  public final class Cursor {
+    private long address;
+    private long maskedAddress;
+
+    @Nullable
+    private Segment segment;
+    private long windowStart;
+    private long windowEnd;
+    private int layoutVersion;
+
+    private Cursor(final long address) {
+      this.at(address);
+    }
+
+    public Cursor at(final long address) {
+      this.address = address;
+      this.maskedAddress = Memory.this.maskAddress(address);
+      return this;
+    }
+
+    public Cursor advance(final long amount) {
+      return this.at(this.address + amount);
+    }
+
+    public long getAddress() {
+      return this.address;
+    }
+
+    private Segment resolve(final long masked, final int size) {
+      if(this.segment == null || masked < this.windowStart || masked + size > this.windowEnd || this.layoutVersion != Memory.this.layoutVersion) {
+        this.layoutVersion = Memory.this.layoutVersion;
+        this.segment = Memory.this.getSegment(masked);
+
+        final long pageStart = masked & -PageTable.PAGE_SIZE;
+        this.windowStart = Math.max(pageStart, this.segment.getAddress());
+        this.windowEnd = Math.min(pageStart + PageTable.PAGE_SIZE, this.segment.getAddress() + this.segment.getLength());
+      }
+
+      return this.segment;
+    }
+
+    private long read(final long offset, final int size) {
+      Memory.this.checkAlignment(this.address + offset, size);
+
+      final long masked = this.maskedAddress + offset;
+      final ReentrantLock lock = Memory.this.locks.lock(masked);
+      try {
+        final Segment segment = this.resolve(masked, size);
+        return segment.get((int)(masked - segment.getAddress()), size);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private Cursor write(final long offset, final int size, final long value) {
+      Memory.this.checkAlignment(this.address + offset, size);
+
+      final long masked = this.maskedAddress + offset;
+      final ReentrantLock lock = Memory.this.locks.lock(masked);
+      try {
+        final Segment segment = this.resolve(masked, size);
+        final int segmentOffset = (int)(masked - segment.getAddress());
+        segment.removeFunction(segmentOffset);
+        segment.set(segmentOffset, size, value);
+      } finally {
+        lock.unlock();
+      }
+
+      return this;
+    }
+
+    public int getU8(final long offset) {
+      return (int)this.read(offset, 1);
+    }
+
+    public byte getS8(final long offset) {
+      return (byte)this.read(offset, 1);
+    }
+
+    public int getU16(final long offset) {
+      return (int)this.read(offset, 2);
+    }
+
+    public short getS16(final long offset) {
+      return (short)this.read(offset, 2);
+    }
+
+    public long getU32(final long offset) {
+      return this.read(offset, 4);
+    }
+
+    public int getS32(final long offset) {
+      return (int)this.read(offset, 4);
+    }
+
+    public Cursor setU8(final long offset, final int value) {
+      return this.write(offset, 1, value & 0xffL);
+    }
+
+    public Cursor setS8(final long offset, final byte value) {
+      return this.write(offset, 1, value & 0xffL);
+    }
+
+    public Cursor setU16(final long offset, final int value) {
+      return this.write(offset, 2, value & 0xffffL);
+    }
+
+    public Cursor setS16(final long offset, final short value) {
+      return this.write(offset, 2, value & 0xffffL);
+    }
+
+    public Cursor setU32(final long offset, final long value) {
+      return this.write(offset, 4, value & 0xffff_ffffL);
+    }
+
+    public Cursor setS32(final long offset, final int value) {
+      return this.write(offset, 4, value & 0xffff_ffffL);
+    }
+
+    /**
+     * Creates a {@link Value} at the cursor's current address for APIs that need one
+     */
+    public Value ref(final int size, final long offset) {
+      return Memory.this.ref(size, this.address + offset);
+    }
+
+    @Override
+    public String toString() {
+      return "Cursor @ " + Long.toHexString(this.address);
+    }
+  }
+
+  /**
+   * A fixed run of primitives in one segment, for loops over tables that would otherwise need a {@link Value} per
+   * element. Alignment and the segment bounds are checked when the view is created, so element accesses only check the
+   * index, and the segment lookup is cached like {@link Cursor}'s. Bulk operations go through {@link Memory}'s
+   * transfers.
+   *
+   * <p>When every page of the view maps straight to one {@link RamSegment} or {@link DirectRamSegment} (no watchpoints,
+   * profiling or privileged pages), element accesses skip the page table and memory locks and index the backing store
+   * directly. Elements are still read and written whole, and writes over bound functions take the locked path. See
+   * {@link IntView} for what that means for other threads.</p>
+   */
+  private abstract class PrimitiveView {
+    final long address;
+    private final long maskedAddress;
+    final int count;
+    private final int size;
+
+    @Nullable
+    private Segment segment;
+    private long windowStart;
+    private long windowEnd;
+    private int layoutVersion;
+
+    /** Published as a whole so that threads sharing the view never see half of an update */
+    @Nullable
+    private volatile Direct direct;
+
+    private PrimitiveView(final long address, final int count, final int size) {
+      if(count < 0) {
+        throw new IllegalArgumentException("Negative count " + count);
+      }
+
+      Memory.this.checkAlignment(address, size);
+
+      this.address = address;
+      this.maskedAddress = Memory.this.maskAddress(address);
+      this.count = count;
+      this.size = size;
+
+      final Segment segment = Memory.this.getSegment(address);
+      if(this.maskedAddress + (long)count * size > segment.getAddress() + segment.getLength()) {
+        throw new IllegalAddressException("View of " + count + " elements at " + Long.toHexString(address) + " runs off the end of its segment");
+      }
+    }
+
+    public long getAddress() {
+      return this.address;
+    }
+
+    public int length() {
+      return this.count;
+    }
+
+    private Segment resolve(final long masked) {
+      if(this.segment == null || masked < this.windowStart || masked >= this.windowEnd || this.layoutVersion != Memory.this.layoutVersion) {
+        this.layoutVersion = Memory.this.layoutVersion;
+        this.segment = Memory.this.getSegment(masked);
+
+        final long pageStart = masked & -PageTable.PAGE_SIZE;
+        this.windowStart = Math.max(pageStart, this.segment.getAddress());
+        this.windowEnd = Math.min(pageStart + PageTable.PAGE_SIZE, this.segment.getAddress() + this.segment.getLength());
+      }
+
+      return this.segment;
+    }
+
+    /**
+     * @return the RAM behind this view under the current page table, or null if elements have to go through
+     * {@link #read}/{@link #write}
+     */
+    @Nullable
+    final Direct direct() {
+      // Read the version before the page table, so that a result built from a table that is being rebuilt is already stale
+      final int layoutVersion = Memory.this.layoutVersion;
+      Direct direct = this.direct;
+
+      if(direct == null || direct.layoutVersion != layoutVersion) {
+        direct = this.findDirect(layoutVersion);
+        this.direct = direct;
+      }
+
+      return direct.ram != null || direct.directRam != null ? direct : null;
+    }
+
+    private Direct findDirect(final int layoutVersion) {
+      final Segment segment = Memory.this.getSegment(this.maskedAddress);
+      if(segment.getClass() != RamSegment.class && segment.getClass() != DirectRamSegment.class) {
+        return new Direct(layoutVersion, null, null, 0);
+      }
+
+      // Watchpoints and privileged ranges decorate single pages, so every page has to be the bare segment
+      final long end = this.maskedAddress + (long)this.count * this.size;
+      for(long page = (this.maskedAddress & -PageTable.PAGE_SIZE) + PageTable.PAGE_SIZE; page < end; page += PageTable.PAGE_SIZE) {
+        if(Memory.this.getSegment(page) != segment) {
+          return new Direct(layoutVersion, null, null, 0);
+        }
+      }
+
+      final int base = (int)(this.maskedAddress - segment.getAddress());
+
+      if(segment.getClass() == RamSegment.class) {
+        return new Direct(layoutVersion, (RamSegment)segment, null, base);
+      }
+
+      return new Direct(layoutVersion, null, (DirectRamSegment)segment, base);
+    }
+
+    final long read(final int index) {
+      Objects.checkIndex(index, this.count);
+
+      final long masked = this.maskedAddress + (long)index * this.size;
+      final ReentrantLock lock = Memory.this.locks.lock(masked);
+      try {
+        final Segment segment = this.resolve(masked);
+        return segment.get((int)(masked - segment.getAddress()), this.size);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    final void write(final int index, final long value) {
+      Objects.checkIndex(index, this.count);
+
+      final long masked = this.maskedAddress + (long)index * this.size;
+      final ReentrantLock lock = Memory.this.locks.lock(masked);
+      try {
+        final Segment segment = this.resolve(masked);
+        final int segmentOffset = (int)(masked - segment.getAddress());
+        segment.removeFunction(segmentOffset);
+        segment.set(segmentOffset, this.size, value);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * @return the address of element {@code start}, after checking that {@code length} elements from it are in the view
+     */
+    final long range(final int start, final int length) {
+      Objects.checkFromIndexSize(start, length, this.count);
+      return this.address + (long)start * this.size;
+    }
+
+    @Override
+    public String toString() {
+      return this.getClass().getSimpleName() + '[' + this.count + "] @ " + Long.toHexString(this.address);
+    }
+  }
+
+  /**
+   * Undecorated RAM behind a whole {@link PrimitiveView}; exactly one of {@code ram} and {@code directRam} is set if the
+   * view can use it
+   *
+   * @param base offset of element 0 in the segment
+   */
+  private record Direct(int layoutVersion, @Nullable RamSegment ram, @Nullable DirectRamSegment directRam, int base) { }
+
+  /**
+   * Views may be shared between threads, but element accesses over plain RAM don't take the memory locks. They don't
+   * wait for another thread's {@link BulkAccess} or {@link #waitForLock} callback, so a view mustn't be used on memory
+   * that another thread is holding a lock to keep still.
+   */
+  public final class IntView extends PrimitiveView {
+    private IntView(final long address, final int count) {
+      super(address, count, 4);
+    }
+
+    public int get(final int index) {
+      Objects.checkIndex(index, this.count);
+
+      final Direct direct = this.direct();
+      if(direct != null) {
+        final int offset = direct.base + index * 4;
+        return direct.ram != null ? direct.ram.getIntUnchecked(offset) : direct.directRam.getIntUnchecked(offset);
+      }
+
+      return (int)this.read(index);
+    }
+
+    public long getUnsigned(final int index) {
+      return this.get(index) & 0xffff_ffffL;
+    }
+
+    public void set(final int index, final int value) {
+      Objects.checkIndex(index, this.count);
+
+      final Direct direct = this.direct();
+      if(direct != null) {
+        final int offset = direct.base + index * 4;
+
+        if(direct.ram != null && !direct.ram.isFunction(offset)) {
+          direct.ram.setIntUnchecked(offset, value);
+          return;
+        }
+
+        if(direct.directRam != null && !direct.directRam.isFunction(offset)) {
+          direct.directRam.setIntUnchecked(offset, value);
+          return;
+        }
+      }
+
+      this.write(index, value & 0xffff_ffffL);
+    }
+
+    public void fill(final int value) {
+      if(value == (value & 0xff) * 0x0101_0101) {
+        Memory.this.fill(this.address, this.count * 4, (byte)value);
+      } else {
+        final int[] values = new int[this.count];
+        Arrays.fill(values, value);
+        Memory.this.setInts(this.address, values, 0, this.count);
+      }
+    }
+
+    public int[] toArray() {
+      final int[] values = new int[this.count];
+      this.copyTo(values, 0, 0, this.count);
+      return values;
+    }
+
+    public void copyTo(final int[] dest) {
+      this.copyTo(dest, 0, 0, this.count);
+    }
+
+    public void copyTo(final int[] dest, final int destOffset, final int start, final int length) {
+      Memory.this.getInts(this.range(start, length), dest, destOffset, length);
+    }
+
+    public void copyFrom(final int[] src) {
+      this.copyFrom(src, 0, 0, this.count);
+    }
+
+    public void copyFrom(final int[] src, final int srcOffset, final int start, final int length) {
+      Memory.this.setInts(this.range(start, length), src, srcOffset, length);
+    }
+  }
+
+  /**
+   * Like {@link IntView}, element accesses over plain RAM don't take the memory locks
+   */
+  public final class ShortView extends PrimitiveView {
+    private ShortView(final long address, final int count) {
+      super(address, count, 2);
+    }
+
+    public int get(final int index) {
+      Objects.checkIndex(index, this.count);
+
+      final Direct direct = this.direct();
+      if(direct != null) {
+        final int offset = direct.base + index * 2;
+        return direct.ram != null ? direct.ram.getShortUnchecked(offset) : direct.directRam.getShortUnchecked(offset);
+      }
+
+      return (int)this.read(index);
+    }
+
+    public short getSigned(final int index) {
+      return (short)this.get(index);
+    }
+
+    public void set(final int index, final int value) {
+      Objects.checkIndex(index, this.count);
+
+      final Direct direct = this.direct();
+      if(direct != null) {
+        final int offset = direct.base + index * 2;
+
+        if(direct.ram != null && !direct.ram.isFunction(offset)) {
+          direct.ram.setShortUnchecked(offset, value);
+          return;
+        }
+
+        if(direct.directRam != null && !direct.directRam.isFunction(offset)) {
+          direct.directRam.setShortUnchecked(offset, value);
+          return;
+        }
+      }
+
+      this.write(index, value & 0xffffL);
+    }
+
+    public void fill(final int value) {
+      if((value >>> 8 & 0xff) == (value & 0xff)) {
+        Memory.this.fill(this.address, this.count * 2, (byte)value);
+      } else {
+        final short[] values = new short[this.count];
+        Arrays.fill(values, (short)value);
+        Memory.this.setShorts(this.address, values, 0, this.count);
+      }
+    }
+
+    public short[] toArray() {
+      final short[] values = new short[this.count];
+      this.copyTo(values, 0, 0, this.count);
+      return values;
+    }
+
+    public void copyTo(final short[] dest) {
+      this.copyTo(dest, 0, 0, this.count);
+    }
+
+    public void copyTo(final short[] dest, final int destOffset, final int start, final int length) {
+      Memory.this.getShorts(this.range(start, length), dest, destOffset, length);
+    }
+
+    public void copyFrom(final short[] src) {
+      this.copyFrom(src, 0, 0, this.count);
+    }
+
+    public void copyFrom(final short[] src, final int srcOffset, final int start, final int length) {
+      Memory.this.setShorts(this.range(start, length), src, srcOffset, length);
+    }
+  }
+
+  /**
+   * Like {@link IntView}, element accesses over plain RAM don't take the memory locks
+   */
+  public final class ByteView extends PrimitiveView {
+    private ByteView(final long address, final int count) {
+      super(address, count, 1);
+    }
+
+    public int get(final int index) {
+      Objects.checkIndex(index, this.count);
+
+      final Direct direct = this.direct();
+      if(direct != null) {
+        final int offset = direct.base + index;
+        return (direct.ram != null ? direct.ram.get(offset) : direct.directRam.get(offset)) & 0xff;
+      }
+
+      return (int)this.read(index);
+    }
+
+    public byte getSigned(final int index) {
+      return (byte)this.get(index);
+    }
+
+    public void set(final int index, final int value) {
+      Objects.checkIndex(index, this.count);
+
+      final Direct direct = this.direct();
+      if(direct != null) {
+        final int offset = direct.base + index;
+
+        if(direct.ram != null && !direct.ram.isFunction(offset)) {
+          direct.ram.set(offset, (byte)value);
+          return;
+        }
+
+        if(direct.directRam != null && !direct.directRam.isFunction(offset)) {
+          direct.directRam.set(offset, (byte)value);
+          return;
+        }
+      }
+
+      this.write(index, value & 0xffL);
+    }
+
+    public void fill(final int value) {
+      Memory.this.fill(this.address, this.count, (byte)value);
+    }
+
+    public byte[] toArray() {
+      final byte[] values = new byte[this.count];
+      this.copyTo(values, 0, 0, this.count);
+      return values;
+    }
+
+    public void copyTo(final byte[] dest) {
+      this.copyTo(dest, 0, 0, this.count);
+    }
+
+    public void copyTo(final byte[] dest, final int destOffset, final int start, final int length) {
+      Memory.this.getBytes(this.range(start, length), dest, destOffset, length);
+    }
+
+    public void copyFrom(final byte[] src) {
+      this.copyFrom(src, 0, 0, this.count);
+    }
+
+    public void copyFrom(final byte[] src, final int srcOffset, final int start, final int length) {
+      Memory.this.setBytes(this.range(start, length), src, srcOffset, length);
+    }
+  }
+
+  public final class BulkAccess implements AutoCloseable {
+    private final long stripes;
+    private boolean closed;
+
+    private BulkAccess(final long stripes) {
+      this.stripes = stripes;
+    }
+
+    @Override
+    public void close() {
+      if(!this.closed) {
+        this.closed = true;
+        Memory.this.locks.unlock(this.stripes);
+      }
+    }
+  }
+
   public final class TemporaryReservation {
     public final long address;
     public final int length;
@@ -588,6 +1722,10 @@ public class Memory {
     }
 
     public void release() {
+      if(this.released) {
+        throw new IllegalStateException("Temporary reservation was already released");
+      }
+
       this.released = true;
       Memory.this.releaseTemp(this.address, this.length);
     }
@@ -0,0 +1,72 @@
+package legend.core.memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One contiguous off-heap block that emulated memory is carved out of, so that it doesn't live in many heap arrays.
+ * Allocations are page-aligned and never move, so each one stays at the same offset for the life of the arena.
+ *
+ * <p>The block can be mapped over a file. The file then holds a live image of everything allocated from the arena, and
+ * {@link #sync()} flushes it to disk.</p>
+ */
+public final class MemoryArena {
+  public static MemoryArena create(final int capacity) {
+    return new MemoryArena(ByteBuffer.allocateDirect(capacity));
+  }
+
+  /**
+   * Maps the arena over {@code file}, creating or growing it to {@code capacity} bytes. Existing contents are kept.
+   */
+  public static MemoryArena map(final Path file, final int capacity) throws IOException {
+    try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+      return new MemoryArena(channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+    }
+  }
+
+  private final ByteBuffer buffer;
+  private int allocated;
+
+  private MemoryArena(final ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * @return a little-endian view of the next {@code length} bytes of the arena
+   */
+  public synchronized ByteBuffer allocate(final int length) {
+    if(length > this.buffer.capacity() - this.allocated) {
+      throw new IllegalStateException("Memory arena exhausted - " + length + " bytes requested, " + (this.buffer.capacity() - this.allocated) + " free");
+    }
+
+    final ByteBuffer slice = this.buffer.slice(this.allocated, length).order(ByteOrder.LITTLE_ENDIAN);
+    this.allocated = Math.min(this.allocated + (length + PageTable.PAGE_SIZE - 1 & -PageTable.PAGE_SIZE), this.buffer.capacity());
+    return slice;
+  }
+
+  public int getCapacity() {
+    return this.buffer.capacity();
+  }
+
+  public synchronized int getAllocated() {
+    return this.allocated;
+  }
+
+  public boolean isMapped() {
+    return this.buffer instanceof MappedByteBuffer;
+  }
+
+  /**
+   * Flushes a file-mapped arena to disk. Does nothing for an arena that isn't mapped.
+   */
+  public void sync() {
+    if(this.buffer instanceof MappedByteBuffer) {
+      ((MappedByteBuffer)this.buffer).force();
+    }
+  }
+}
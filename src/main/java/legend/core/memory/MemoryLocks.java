@@ -0,0 +1,187 @@
+package legend.core.memory;
+
+import legend.core.Safepoint;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Page-striped locks for {@link Memory}. In {@link Mode#STRIPED} mode, the default, each 4 KiB page maps to one of 64
+ * locks so that threads touching unrelated pages don't serialize. In {@link Mode#GLOBAL} mode every address shares one
+ * lock, matching the original behaviour. Multiple stripes are always acquired in ascending order.
+ * <p>
+ * A thread that has to wait for a stripe while holding no others counts as parked for the {@link Safepoint}, so that
+ * contention doesn't hold up a pause. If a pause is requested while it waits, it lets go of the stripes and polls
+ * before trying again.
+ */
+public class MemoryLocks {
+  private static final int STRIPE_COUNT = 64;
+  private static final long ALL_STRIPES = -1L;
+
+  private final ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT];
+  private volatile Mode mode = Mode.STRIPED;
+  @Nullable
+  private volatile Safepoint safepoint;
+
+  public MemoryLocks() {
+    for(int i = 0; i < this.stripes.length; i++) {
+      this.stripes[i] = new ReentrantLock();
+    }
+  }
+
+  public Mode getMode() {
+    return this.mode;
+  }
+
+  /**
+   * Must be set while no locks are held, e.g. before any other threads start accessing memory
+   */
+  public void setMode(final Mode mode) {
+    this.mode = mode;
+  }
+
+  public void setSafepoint(@Nullable final Safepoint safepoint) {
+    this.safepoint = safepoint;
+  }
+
+  private int stripe(final long address) {
+    if(this.mode == Mode.GLOBAL) {
+      return 0;
+    }
+
+    return (int)(address >>> PageTable.PAGE_BITS) & STRIPE_COUNT - 1;
+  }
+
+  private long stripes(final long address, final int length) {
+    if(this.mode == Mode.GLOBAL) {
+      return 1L;
+    }
+
+    final long firstPage = address >>> PageTable.PAGE_BITS;
+    final long lastPage = address + Math.max(length, 1) - 1 >>> PageTable.PAGE_BITS;
+
+    if(lastPage - firstPage >= STRIPE_COUNT - 1) {
+      return ALL_STRIPES;
+    }
+
+    long mask = 0;
+    for(long page = firstPage; page <= lastPage; page++) {
+      mask |= 1L << (page & STRIPE_COUNT - 1);
+    }
+
+    return mask;
+  }
+
+  /**
+   * Locks the stripe for a single (masked) address
+   */
+  public ReentrantLock lock(final long address) {
+    final int stripe = this.stripe(address);
+    final ReentrantLock lock = this.stripes[stripe];
+
+    if(!lock.tryLock()) {
+      this.lockContended(1L << stripe, stripe);
+    }
+
+    return lock;
+  }
+
+  /**
+   * Locks every stripe covering a (masked) address range
+   *
+   * @return the locked stripes, to be passed to {@link #unlock(long)}
+   */
+  public long lock(final long address, final int length) {
+    return this.lockStripes(this.stripes(address, length));
+  }
+
+  /**
+   * Locks every stripe covering either of two (masked) address ranges
+   *
+   * @return the locked stripes, to be passed to {@link #unlock(long)}
+   */
+  public long lock(final long address1, final long address2, final int length) {
+    return this.lockStripes(this.stripes(address1, length) | this.stripes(address2, length));
+  }
+
+  /**
+   * @return the locked stripes, to be passed to {@link #unlock(long)}
+   */
+  public long lockAll() {
+    return this.lockStripes(this.mode == Mode.GLOBAL ? 1L : ALL_STRIPES);
+  }
+
+  private long lockStripes(final long mask) {
+    for(int i = 0; i < STRIPE_COUNT; i++) {
+      if((mask & 1L << i) != 0 && !this.stripes[i].tryLock()) {
+        this.lockContended(mask, i);
+        break;
+      }
+    }
+
+    return mask;
+  }
+
+  /**
+   * Finishes locking {@code mask}, of which the stripes below {@code first} are already held and {@code first} is held
+   * by another thread
+   */
+  private void lockContended(final long mask, final int first) {
+    final Safepoint safepoint = this.safepoint;
+
+    // A thread already holding other stripes can't let go of them to poll, so it has to count as running
+    if(safepoint == null || this.holdsOtherStripes(mask, first)) {
+      this.lockFrom(mask, first);
+      return;
+    }
+
+    int next = first;
+    while(true) {
+      final boolean blocked = safepoint.block();
+      this.lockFrom(mask, next);
+
+      if(!safepoint.unblock(blocked)) {
+        return;
+      }
+
+      this.unlock(mask);
+      safepoint.poll();
+      next = 0;
+    }
+  }
+
+  private void lockFrom(final long mask, final int first) {
+    for(int i = first; i < STRIPE_COUNT; i++) {
+      if((mask & 1L << i) != 0) {
+        this.stripes[i].lock();
+      }
+    }
+  }
+
+  private boolean holdsOtherStripes(final long mask, final int first) {
+    for(int i = 0; i < STRIPE_COUNT; i++) {
+      final int held = i < first && (mask & 1L << i) != 0 ? 1 : 0;
+
+      if(this.stripes[i].getHoldCount() > held) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  public void unlock(final long mask) {
+    for(int i = STRIPE_COUNT - 1; i >= 0; i--) {
+      if((mask & 1L << i) != 0) {
+        this.stripes[i].unlock();
+      }
+    }
+  }
+
+  public enum Mode {
+    /** One lock for all of memory */
+    GLOBAL,
+    /** One lock per 4 KiB page stripe */
+    STRIPED,
+  }
+}
@@ -0,0 +1,257 @@
+package legend.core.memory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts reads and writes per 4 KiB page and per {@link Segment} while installed with {@link Memory#startProfiling}.
+ * Counting is done by {@link ProfilingSegment}s that only exist in the page table while profiling, so a disabled
+ * profiler costs nothing. Accesses can optionally be attributed to the {@link Method} function that made them - that
+ * requires a stack walk, so only one access in {@link #SAMPLE_INTERVAL} is sampled and function counts are estimates.
+ */
+public class MemoryProfiler {
+  private static final Logger LOGGER = LogManager.getFormatterLogger(MemoryProfiler.class);
+
+  public static final int SAMPLE_INTERVAL = 64;
+
+  private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+  /** The {@link Method} address of each function in a class, by name */
+  private static final ClassValue<Map<String, Long>> FUNCTIONS = new ClassValue<>() {
+    @Override
+    protected Map<String, Long> computeValue(final Class<?> type) {
+      final Map<String, Long> functions = new HashMap<>();
+
+      for(final MethodRegistry.Entry entry : MethodRegistry.get(type)) {
+        functions.putIfAbsent(entry.method().getName(), entry.address());
+      }
+
+      return functions;
+    }
+  };
+
+  private final Map<Segment, SegmentCounters> segments = new ConcurrentHashMap<>();
+  private final Map<Long, FunctionCounters> functions = new ConcurrentHashMap<>();
+  private volatile boolean attributing;
+  private volatile long startTime = System.nanoTime();
+
+  MemoryProfiler() { }
+
+  public boolean isAttributing() {
+    return this.attributing;
+  }
+
+  public void setAttributing(final boolean attributing) {
+    this.attributing = attributing;
+  }
+
+  /**
+   * Zeroes every counter
+   */
+  public void reset() {
+    this.segments.values().forEach(SegmentCounters::reset);
+    this.functions.clear();
+    this.startTime = System.nanoTime();
+  }
+
+  /**
+   * @return how long the profiler has been counting, in nanoseconds
+   */
+  public long getElapsed() {
+    return System.nanoTime() - this.startTime;
+  }
+
+  SegmentCounters counters(final Segment segment) {
+    return this.segments.computeIfAbsent(segment, SegmentCounters::new);
+  }
+
+  void attribute(final boolean write) {
+    if(!this.attributing || ThreadLocalRandom.current().nextInt(SAMPLE_INTERVAL) != 0) {
+      return;
+    }
+
+    final StackWalker.StackFrame caller = WALKER.walk(frames -> frames
+      .filter(frame -> FUNCTIONS.get(frame.getDeclaringClass()).containsKey(frame.getMethodName()))
+      .findFirst()
+      .orElse(null)
+    );
+
+    if(caller == null) {
+      return;
+    }
+
+    final long address = FUNCTIONS.get(caller.getDeclaringClass()).get(caller.getMethodName());
+    final FunctionCounters counters = this.functions.computeIfAbsent(address, key -> new FunctionCounters(key, caller.getDeclaringClass().getSimpleName() + '.' + caller.getMethodName()));
+
+    if(write) {
+      counters.writes.increment();
+    } else {
+      counters.reads.increment();
+    }
+  }
+
+  /**
+   * @return a snapshot of every page that has been profiled, sorted by address
+   */
+  public List<PageProfile> getPages() {
+    final List<PageProfile> pages = new ArrayList<>();
+
+    for(final SegmentCounters counters : this.segments.values()) {
+      for(int page = 0; page < counters.reads.length; page++) {
+        pages.add(new PageProfile(counters.segment.getAddress() + ((long)page << PageTable.PAGE_BITS), counters.name, counters.reads[page].sum(), counters.writes[page].sum()));
+      }
+    }
+
+    pages.sort(Comparator.comparingLong(PageProfile::address));
+    return pages;
+  }
+
+  /**
+   * @return a snapshot of the totals for each segment, sorted by address
+   */
+  public List<SegmentProfile> getSegments() {
+    final List<SegmentProfile> segments = new ArrayList<>();
+
+    for(final SegmentCounters counters : this.segments.values()) {
+      long reads = 0;
+      long writes = 0;
+      for(int page = 0; page < counters.reads.length; page++) {
+        reads += counters.reads[page].sum();
+        writes += counters.writes[page].sum();
+      }
+
+      segments.add(new SegmentProfile(counters.segment.getAddress(), counters.segment.getLength(), counters.name, reads, writes));
+    }
+
+    segments.sort(Comparator.comparingLong(SegmentProfile::address));
+    return segments;
+  }
+
+  /**
+   * @return estimated access counts for each function seen while attributing, busiest first
+   */
+  public List<FunctionProfile> getFunctions() {
+    final List<FunctionProfile> functions = new ArrayList<>();
+
+    for(final FunctionCounters counters : this.functions.values()) {
+      functions.add(new FunctionProfile(counters.address, counters.name, counters.reads.sum() * SAMPLE_INTERVAL, counters.writes.sum() * SAMPLE_INTERVAL));
+    }
+
+    functions.sort(Comparator.comparingLong((FunctionProfile function) -> function.reads() + function.writes()).reversed());
+    return functions;
+  }
+
+  /**
+   * Writes the profile as JSON if the file name ends in .json, otherwise as CSV
+   */
+  public void export(final Path path) throws IOException {
+    try(final Writer writer = Files.newBufferedWriter(path)) {
+      if(path.getFileName().toString().endsWith(".json")) {
+        this.writeJson(writer);
+      } else {
+        this.writeCsv(writer);
+      }
+    }
+
+    LOGGER.info("Exported memory profile to %s", path);
+  }
+
+  /**
+   * One row per page, followed by one row per function if any were attributed
+   */
+  public void writeCsv(final Writer writer) throws IOException {
+    writer.write("type,address,name,reads,writes\n");
+
+    for(final PageProfile page : this.getPages()) {
+      writer.write("page,%08x,%s,%d,%d\n".formatted(page.address(), page.segment(), page.reads(), page.writes()));
+    }
+
+    for(final FunctionProfile function : this.getFunctions()) {
+      writer.write("function,%08x,%s,%d,%d\n".formatted(function.address(), function.name(), function.reads(), function.writes()));
+    }
+  }
+
+  public void writeJson(final Writer writer) throws IOException {
+    writer.write("{\n  \"elapsedNanos\": %d,\n  \"sampleInterval\": %d,\n".formatted(this.getElapsed(), SAMPLE_INTERVAL));
+
+    writer.write("  \"segments\": [");
+    final List<SegmentProfile> segments = this.getSegments();
+    for(int i = 0; i < segments.size(); i++) {
+      final SegmentProfile segment = segments.get(i);
+      writer.write("%s\n    {\"address\": %d, \"length\": %d, \"name\": \"%s\", \"reads\": %d, \"writes\": %d}".formatted(i == 0 ? "" : ",", segment.address(), segment.length(), segment.name(), segment.reads(), segment.writes()));
+    }
+
+    writer.write("\n  ],\n  \"pages\": [");
+    final List<PageProfile> pages = this.getPages();
+    for(int i = 0; i < pages.size(); i++) {
+      final PageProfile page = pages.get(i);
+      writer.write("%s\n    {\"address\": %d, \"segment\": \"%s\", \"reads\": %d, \"writes\": %d}".formatted(i == 0 ? "" : ",", page.address(), page.segment(), page.reads(), page.writes()));
+    }
+
+    writer.write("\n  ],\n  \"functions\": [");
+    final List<FunctionProfile> functions = this.getFunctions();
+    for(int i = 0; i < functions.size(); i++) {
+      final FunctionProfile function = functions.get(i);
+      writer.write("%s\n    {\"address\": %d, \"name\": \"%s\", \"reads\": %d, \"writes\": %d}".formatted(i == 0 ? "" : ",", function.address(), function.name(), function.reads(), function.writes()));
+    }
+
+    writer.write("\n  ]\n}\n");
+  }
+
+  static final class SegmentCounters {
+    private final Segment segment;
+    private final String name;
+    final LongAdder[] reads;
+    final LongAdder[] writes;
+
+    private SegmentCounters(final Segment segment) {
+      this.segment = segment;
+      this.name = segment.getClass().getSimpleName();
+
+      final int pages = Math.max(1, (segment.getLength() + PageTable.PAGE_SIZE - 1) >>> PageTable.PAGE_BITS);
+      this.reads = new LongAdder[pages];
+      this.writes = new LongAdder[pages];
+
+      for(int page = 0; page < pages; page++) {
+        this.reads[page] = new LongAdder();
+        this.writes[page] = new LongAdder();
+      }
+    }
+
+    private void reset() {
+      for(int page = 0; page < this.reads.length; page++) {
+        this.reads[page].reset();
+        this.writes[page].reset();
+      }
+    }
+  }
+
+  private static final class FunctionCounters {
+    private final long address;
+    private final String name;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    private FunctionCounters(final long address, final String name) {
+      this.address = address;
+      this.name = name;
+    }
+  }
+
+  public record PageProfile(long address, String segment, long reads, long writes) { }
+  public record SegmentProfile(long address, int length, String name, long reads, long writes) { }
+  public record FunctionProfile(long address, String name, long reads, long writes) { }
+}
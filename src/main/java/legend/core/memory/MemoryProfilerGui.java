@@ -0,0 +1,110 @@
+package legend.core.memory;
+
+import legend.core.opengl.Gui;
+import legend.core.opengl.GuiManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.lwjgl.nuklear.NkColor;
+import org.lwjgl.nuklear.NkCommandBuffer;
+import org.lwjgl.nuklear.NkRect;
+import org.lwjgl.system.MemoryStack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.lwjgl.nuklear.Nuklear.nk_fill_rect;
+import static org.lwjgl.nuklear.Nuklear.nk_input_is_mouse_hovering_rect;
+import static org.lwjgl.nuklear.Nuklear.nk_rect;
+import static org.lwjgl.nuklear.Nuklear.nk_rgb;
+import static org.lwjgl.nuklear.Nuklear.nk_tooltip;
+import static org.lwjgl.nuklear.Nuklear.nk_widget;
+import static org.lwjgl.nuklear.Nuklear.nk_window_get_canvas;
+
+/**
+ * Heat map of a running {@link MemoryProfiler}, one cell per page in address order. Brightness is the log of the access
+ * count relative to the busiest page; reads are blue and writes are red.
+ */
+public class MemoryProfilerGui extends Gui {
+  private static final Logger LOGGER = LogManager.getFormatterLogger(MemoryProfilerGui.class);
+
+  private static final int COLUMNS = 64;
+  private static final int CELL_SIZE = 6;
+  private static final int TOP_FUNCTIONS = 8;
+
+  private final MemoryProfiler profiler;
+
+  public MemoryProfilerGui(final MemoryProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  @Override
+  protected void draw(final GuiManager manager, final MemoryStack stack) {
+    final List<MemoryProfiler.PageProfile> pages = this.profiler.getPages();
+    final int rows = (pages.size() + COLUMNS - 1) / COLUMNS;
+
+    this.window(manager, stack, "Memory profiler", 10, 10, COLUMNS * CELL_SIZE + 30, rows * CELL_SIZE + 220 + TOP_FUNCTIONS * 20, () -> {
+      long reads = 0;
+      long writes = 0;
+      long max = 1;
+      for(final MemoryProfiler.PageProfile page : pages) {
+        reads += page.reads();
+        writes += page.writes();
+        max = Math.max(max, Math.max(page.reads(), page.writes()));
+      }
+
+      this.row(manager, 20, 1);
+      this.label(manager, "%.1f s, %d reads, %d writes".formatted(this.profiler.getElapsed() / 1_000_000_000.0d, reads, writes));
+
+      this.row(manager, 24, 4);
+      this.button(manager, "Reset", this.profiler::reset);
+      this.button(manager, this.profiler.isAttributing() ? "Stop attributing" : "Attribute", () -> this.profiler.setAttributing(!this.profiler.isAttributing()));
+      this.button(manager, "Export CSV", () -> this.export(Paths.get(".", "memory-profile.csv")));
+      this.button(manager, "Export JSON", () -> this.export(Paths.get(".", "memory-profile.json")));
+
+      this.row(manager, rows * CELL_SIZE, 1);
+      this.drawHeatMap(manager, stack, pages, max);
+
+      final List<MemoryProfiler.FunctionProfile> functions = this.profiler.getFunctions();
+      for(int i = 0; i < Math.min(functions.size(), TOP_FUNCTIONS); i++) {
+        final MemoryProfiler.FunctionProfile function = functions.get(i);
+        this.row(manager, 16, 1);
+        this.label(manager, "%08x %s: ~%d reads, ~%d writes".formatted(function.address(), function.name(), function.reads(), function.writes()));
+      }
+    });
+  }
+
+  private void drawHeatMap(final GuiManager manager, final MemoryStack stack, final List<MemoryProfiler.PageProfile> pages, final long max) {
+    final NkRect bounds = NkRect.mallocStack(stack);
+    if(nk_widget(bounds, manager.ctx) == 0) {
+      return;
+    }
+
+    final NkCommandBuffer canvas = nk_window_get_canvas(manager.ctx);
+    final NkRect cell = NkRect.mallocStack(stack);
+    final NkColor colour = NkColor.mallocStack(stack);
+    final double scale = Math.log1p(max);
+
+    for(int i = 0; i < pages.size(); i++) {
+      final MemoryProfiler.PageProfile page = pages.get(i);
+      nk_rect(bounds.x() + i % COLUMNS * CELL_SIZE, bounds.y() + i / COLUMNS * CELL_SIZE, CELL_SIZE - 1, CELL_SIZE - 1, cell);
+
+      final int red = (int)(Math.log1p(page.writes()) / scale * 255);
+      final int blue = (int)(Math.log1p(page.reads()) / scale * 255);
+      nk_fill_rect(canvas, cell, 0.0f, nk_rgb(red, Math.min(red, blue) / 2, blue, colour));
+
+      if(nk_input_is_mouse_hovering_rect(manager.ctx.input(), cell)) {
+        nk_tooltip(manager.ctx, "%08x %s: %d reads, %d writes".formatted(page.address(), page.segment(), page.reads(), page.writes()));
+      }
+    }
+  }
+
+  private void export(final Path path) {
+    try {
+      this.profiler.export(path);
+    } catch(final IOException e) {
+      LOGGER.error("Failed to export memory profile", e);
+    }
+  }
+}
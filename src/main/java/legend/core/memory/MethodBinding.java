@@ -3,5 +3,8 @@ package legend.core.memory;
 import javax.annotation.Nullable;
 import java.lang.reflect.Method;
 
-public record MethodBinding(Method method, @Nullable Object instance, boolean ignoreExtraParams) {
+public record MethodBinding(Method method, @Nullable Object instance, boolean ignoreExtraParams, MethodInvoker invoker) {
+  public MethodBinding(final Method method, @Nullable final Object instance, final boolean ignoreExtraParams) {
+    this(method, instance, ignoreExtraParams, MethodInvoker.create(method, instance, ignoreExtraParams));
+  }
 }
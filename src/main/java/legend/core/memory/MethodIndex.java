@@ -0,0 +1,15 @@
+package legend.core.memory;
+
+/**
+ * Implemented by the classes that the method index processor generates for each class with {@link Method}s, named
+ * {@code <class>_MethodIndex}. Looking methods up by name and signature avoids scanning every method of the class and
+ * reading its annotations at runtime. See {@link MethodRegistry}.
+ */
+public interface MethodIndex {
+  void register(Registrar registrar) throws NoSuchMethodException;
+
+  @FunctionalInterface
+  interface Registrar {
+    void add(long address, java.lang.reflect.Method method, boolean ignoreExtraParams);
+  }
+}
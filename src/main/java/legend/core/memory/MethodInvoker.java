@@ -0,0 +1,367 @@
+package legend.core.memory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Calls a bound function without going through {@link Method#invoke} on every call. Arities 0-4 get a class spun by
+ * {@link LambdaMetafactory} that calls the function directly, so the JIT can inline it, and no parameter array needs to
+ * be spread or copied, which also means extra parameters are dropped for free. Other functions fall back to a
+ * spreading {@link MethodHandle}.
+ *
+ * <p>Boxed primitives are widened like {@link Method#invoke} does, e.g. an {@link Integer} passed for a {@code long}.
+ * Arguments of the wrong type throw {@link ClassCastException}, or {@link NullPointerException} for a null
+ * primitive.</p>
+ */
+public abstract class MethodInvoker {
+  private static final Logger LOGGER = LogManager.getFormatterLogger(MethodInvoker.class);
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /** Converts a boxed primitive to the box of a (possibly wider) primitive, keyed by the target box */
+  private static final Map<Class<?>, MethodHandle> WIDENERS = Map.of(
+    Boolean.class, widener(boolean.class),
+    Byte.class, widener(byte.class),
+    Short.class, widener(short.class),
+    Character.class, widener(char.class),
+    Integer.class, widener(int.class),
+    Long.class, widener(long.class),
+    Float.class, widener(float.class),
+    Double.class, widener(double.class)
+  );
+
+  private static final Class<?>[] CALLS = {Call0.class, Call1.class, Call2.class, Call3.class, Call4.class};
+  private static final Class<?>[] RUNS = {Run0.class, Run1.class, Run2.class, Run3.class, Run4.class};
+
+  public static MethodInvoker create(final Method method, @Nullable final Object instance, final boolean ignoreExtraParams) {
+    method.setAccessible(true);
+
+    MethodHandle handle;
+    try {
+      handle = LOOKUP.unreflect(method).asFixedArity();
+    } catch(final IllegalAccessException e) {
+      throw new RuntimeException("Failed to bind " + method, e);
+    }
+
+    final int arity = method.getParameterCount();
+
+    if(arity < CALLS.length) {
+      final Object fn = spin(method, handle, instance);
+
+      if(fn != null) {
+        final Class<?>[] boxes = boxes(method);
+
+        return switch(arity) {
+          case 0 -> fn instanceof Call0 ? new Arity0((Call0)fn, ignoreExtraParams) : new VoidArity0((Run0)fn, ignoreExtraParams);
+          case 1 -> fn instanceof Call1 ? new Arity1((Call1)fn, boxes, ignoreExtraParams) : new VoidArity1((Run1)fn, boxes, ignoreExtraParams);
+          case 2 -> fn instanceof Call2 ? new Arity2((Call2)fn, boxes, ignoreExtraParams) : new VoidArity2((Run2)fn, boxes, ignoreExtraParams);
+          case 3 -> fn instanceof Call3 ? new Arity3((Call3)fn, boxes, ignoreExtraParams) : new VoidArity3((Run3)fn, boxes, ignoreExtraParams);
+          default -> fn instanceof Call4 ? new Arity4((Call4)fn, boxes, ignoreExtraParams) : new VoidArity4((Run4)fn, boxes, ignoreExtraParams);
+        };
+      }
+    }
+
+    if(instance != null) {
+      handle = handle.bindTo(instance);
+    }
+
+    // asType unboxes and widens the same way Method.invoke does
+    return new Spread(handle.asType(MethodType.genericMethodType(arity)), arity, ignoreExtraParams);
+  }
+
+  private static MethodHandle widener(final Class<?> primitive) {
+    return MethodHandles.identity(primitive).asType(MethodType.methodType(Object.class, Object.class));
+  }
+
+  /**
+   * @return the box type of each primitive parameter, or null for reference parameters
+   */
+  private static Class<?>[] boxes(final Method method) {
+    final Class<?>[] types = method.getParameterTypes();
+    final Class<?>[] boxes = new Class<?>[types.length];
+
+    for(int i = 0; i < types.length; i++) {
+      if(types[i].isPrimitive()) {
+        boxes[i] = MethodType.methodType(types[i]).wrap().returnType();
+      }
+    }
+
+    return boxes;
+  }
+
+  /**
+   * The spun classes only unbox their exact box type, so anything else is converted first
+   *
+   * @param box the parameter's box type, or null if it isn't a primitive
+   */
+  private static Object arg(final Object param, @Nullable final Class<?> box) throws Throwable {
+    if(box == null || param == null || param.getClass() == box) {
+      return param;
+    }
+
+    return (Object)WIDENERS.get(box).invokeExact(param);
+  }
+
+  /**
+   * @return a {@code CallN}/{@code RunN} that calls {@code method} directly, or null if it can't be linked from here
+   * (e.g. it isn't public, or its class belongs to a class loader that can't be seen from this one)
+   */
+  @Nullable
+  private static Object spin(final Method method, final MethodHandle handle, @Nullable final Object instance) {
+    final Class<?> owner = method.getDeclaringClass();
+
+    try {
+      if(Class.forName(owner.getName(), false, MethodInvoker.class.getClassLoader()) != owner) {
+        return null;
+      }
+    } catch(final ClassNotFoundException e) {
+      return null;
+    }
+
+    try {
+      final int arity = method.getParameterCount();
+      final boolean isVoid = method.getReturnType() == void.class;
+      final Class<?> fn = isVoid ? RUNS[arity] : CALLS[arity];
+
+      // Boxed, so that the spun class casts and unboxes each Object argument
+      MethodType instantiated = handle.type().wrap();
+      if(instance != null) {
+        instantiated = instantiated.dropParameterTypes(0, 1);
+      }
+
+      if(isVoid) {
+        instantiated = instantiated.changeReturnType(void.class);
+      }
+
+      final MethodType erased = instantiated.erase().changeReturnType(isVoid ? void.class : Object.class);
+      final MethodType factory = instance != null ? MethodType.methodType(fn, owner) : MethodType.methodType(fn);
+      final MethodHandle target = LambdaMetafactory.metafactory(LOOKUP, isVoid ? "run" : "call", factory, erased, handle, instantiated).getTarget();
+
+      return instance != null ? target.invoke(instance) : target.invoke();
+    } catch(final Error e) {
+      throw e;
+    } catch(final Throwable e) {
+      LOGGER.warn("Failed to spin an invoker for %s, falling back to a method handle", method, e);
+      return null;
+    }
+  }
+
+  protected final int arity;
+  private final boolean ignoreExtraParams;
+
+  private MethodInvoker(final int arity, final boolean ignoreExtraParams) {
+    this.arity = arity;
+    this.ignoreExtraParams = ignoreExtraParams;
+  }
+
+  public Object invoke(final Object... params) throws Throwable {
+    if(params.length != this.arity && (params.length < this.arity || !this.ignoreExtraParams)) {
+      throw new IllegalArgumentException("Wrong number of arguments: expected " + this.arity + ", got " + params.length);
+    }
+
+    return this.invokeExact(params);
+  }
+
+  protected abstract Object invokeExact(final Object[] params) throws Throwable;
+
+  interface Call0 { Object call() throws Throwable; }
+  interface Call1 { Object call(Object a) throws Throwable; }
+  interface Call2 { Object call(Object a, Object b) throws Throwable; }
+  interface Call3 { Object call(Object a, Object b, Object c) throws Throwable; }
+  interface Call4 { Object call(Object a, Object b, Object c, Object d) throws Throwable; }
+
+  interface Run0 { void run() throws Throwable; }
+  interface Run1 { void run(Object a) throws Throwable; }
+  interface Run2 { void run(Object a, Object b) throws Throwable; }
+  interface Run3 { void run(Object a, Object b, Object c) throws Throwable; }
+  interface Run4 { void run(Object a, Object b, Object c, Object d) throws Throwable; }
+
+  private static final class Arity0 extends MethodInvoker {
+    private final Call0 fn;
+
+    private Arity0(final Call0 fn, final boolean ignoreExtraParams) {
+      super(0, ignoreExtraParams);
+      this.fn = fn;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      return this.fn.call();
+    }
+  }
+
+  private static final class Arity1 extends MethodInvoker {
+    private final Call1 fn;
+    private final Class<?>[] boxes;
+
+    private Arity1(final Call1 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(1, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      return this.fn.call(arg(params[0], this.boxes[0]));
+    }
+  }
+
+  private static final class Arity2 extends MethodInvoker {
+    private final Call2 fn;
+    private final Class<?>[] boxes;
+
+    private Arity2(final Call2 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(2, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      return this.fn.call(arg(params[0], this.boxes[0]), arg(params[1], this.boxes[1]));
+    }
+  }
+
+  private static final class Arity3 extends MethodInvoker {
+    private final Call3 fn;
+    private final Class<?>[] boxes;
+
+    private Arity3(final Call3 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(3, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      return this.fn.call(arg(params[0], this.boxes[0]), arg(params[1], this.boxes[1]), arg(params[2], this.boxes[2]));
+    }
+  }
+
+  private static final class Arity4 extends MethodInvoker {
+    private final Call4 fn;
+    private final Class<?>[] boxes;
+
+    private Arity4(final Call4 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(4, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      return this.fn.call(arg(params[0], this.boxes[0]), arg(params[1], this.boxes[1]), arg(params[2], this.boxes[2]), arg(params[3], this.boxes[3]));
+    }
+  }
+
+  private static final class VoidArity0 extends MethodInvoker {
+    private final Run0 fn;
+
+    private VoidArity0(final Run0 fn, final boolean ignoreExtraParams) {
+      super(0, ignoreExtraParams);
+      this.fn = fn;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      this.fn.run();
+      return null;
+    }
+  }
+
+  private static final class VoidArity1 extends MethodInvoker {
+    private final Run1 fn;
+    private final Class<?>[] boxes;
+
+    private VoidArity1(final Run1 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(1, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      this.fn.run(arg(params[0], this.boxes[0]));
+      return null;
+    }
+  }
+
+  private static final class VoidArity2 extends MethodInvoker {
+    private final Run2 fn;
+    private final Class<?>[] boxes;
+
+    private VoidArity2(final Run2 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(2, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      this.fn.run(arg(params[0], this.boxes[0]), arg(params[1], this.boxes[1]));
+      return null;
+    }
+  }
+
+  private static final class VoidArity3 extends MethodInvoker {
+    private final Run3 fn;
+    private final Class<?>[] boxes;
+
+    private VoidArity3(final Run3 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(3, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      this.fn.run(arg(params[0], this.boxes[0]), arg(params[1], this.boxes[1]), arg(params[2], this.boxes[2]));
+      return null;
+    }
+  }
+
+  private static final class VoidArity4 extends MethodInvoker {
+    private final Run4 fn;
+    private final Class<?>[] boxes;
+
+    private VoidArity4(final Run4 fn, final Class<?>[] boxes, final boolean ignoreExtraParams) {
+      super(4, ignoreExtraParams);
+      this.fn = fn;
+      this.boxes = boxes;
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      this.fn.run(arg(params[0], this.boxes[0]), arg(params[1], this.boxes[1]), arg(params[2], this.boxes[2]), arg(params[3], this.boxes[3]));
+      return null;
+    }
+  }
+
+  private static final class Spread extends MethodInvoker {
+    private final MethodHandle spreader;
+
+    private Spread(final MethodHandle handle, final int arity, final boolean ignoreExtraParams) {
+      super(arity, ignoreExtraParams);
+      this.spreader = handle.asSpreader(Object[].class, arity);
+    }
+
+    @Override
+    protected Object invokeExact(final Object[] params) throws Throwable {
+      if(params.length == this.arity) {
+        return this.spreader.invokeExact(params);
+      }
+
+      final Object[] finalParams = new Object[this.arity];
+      System.arraycopy(params, 0, finalParams, 0, finalParams.length);
+      return this.spreader.invokeExact(finalParams);
+    }
+  }
+}
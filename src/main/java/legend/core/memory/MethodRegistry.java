@@ -0,0 +1,64 @@
+package legend.core.memory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link Method}s of each class, read from its generated {@link MethodIndex} once and then cached. Classes that
+ * weren't compiled with the processor fall back to a reflective scan.
+ */
+public final class MethodRegistry {
+  private MethodRegistry() { }
+
+  private static final Logger LOGGER = LogManager.getFormatterLogger(MethodRegistry.class);
+
+  private static final String INDEX_SUFFIX = "_MethodIndex";
+
+  private static final ClassValue<List<Entry>> ENTRIES = new ClassValue<>() {
+    @Override
+    protected List<Entry> computeValue(final Class<?> type) {
+      final List<Entry> entries = new ArrayList<>();
+
+      try {
+        final Class<?> index = Class.forName(indexName(type), true, type.getClassLoader());
+        ((MethodIndex)index.getDeclaredConstructor().newInstance()).register((address, method, ignoreExtraParams) -> entries.add(new Entry(address, method, ignoreExtraParams)));
+        return List.copyOf(entries);
+      } catch(final ClassNotFoundException e) {
+        LOGGER.debug("No method index for %s, scanning it instead", type);
+      } catch(final NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+        LOGGER.warn("Method index for " + type + " is stale, scanning it instead", e);
+      }
+
+      entries.clear();
+
+      for(final java.lang.reflect.Method method : type.getMethods()) {
+        final Method annotation = method.getAnnotation(Method.class);
+
+        if(annotation != null) {
+          entries.add(new Entry(annotation.value(), method, annotation.ignoreExtraParams()));
+        }
+      }
+
+      return List.copyOf(entries);
+    }
+  };
+
+  /**
+   * @return the {@link Method}s among {@code cls}' public methods, including inherited ones
+   */
+  public static List<Entry> get(final Class<?> cls) {
+    return ENTRIES.get(cls);
+  }
+
+  private static String indexName(final Class<?> cls) {
+    final String name = cls.getName();
+    final int split = name.lastIndexOf('.') + 1;
+    return name.substring(0, split) + name.substring(split).replace('$', '_') + INDEX_SUFFIX;
+  }
+
+  public record Entry(long address, java.lang.reflect.Method method, boolean ignoreExtraParams) { }
+}
@@ -0,0 +1,210 @@
+package legend.core.memory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Installs the functions of overlay classes into memory. Each class' binding table - its functions grouped by
+ * segment, with their {@link MethodBinding}s already created - is built the first time it's installed and reused after
+ * that, so swapping overlays back and forth doesn't repeat any reflection. Must be used under {@link Memory}'s locks.
+ */
+final class OverlayManager {
+  private static final Logger LOGGER = LogManager.getFormatterLogger(OverlayManager.class);
+
+  private final Memory memory;
+  private final Map<Class<?>, Table> tables = new HashMap<>();
+  /** In install order, so the last one wins where overlays overlap */
+  private final Set<Class<?>> installed = new LinkedHashSet<>();
+
+  OverlayManager(final Memory memory) {
+    this.memory = memory;
+  }
+
+  void install(final Class<?> cls) {
+    LOGGER.info("Adding function references from %s", cls);
+
+    Table table = this.tables.get(cls);
+    if(table == null || !table.isValid()) {
+      table = this.build(cls);
+      this.tables.put(cls, table);
+    }
+
+    for(final Group group : table.groups) {
+      this.memory.getSegment(group.address).setFunctions(group.offsets, group.bindings);
+    }
+
+    this.installed.remove(cls); // Ensure that when a duplicate overlay is added, it moves to the top
+    this.installed.add(cls);
+  }
+
+  /**
+   * Unbinds the functions of an overlay, except those that another overlay has bound over since. This also works for
+   * overlays whose functions were bound by loading a state rather than by {@link #install}.
+   */
+  void uninstall(final Class<?> cls) {
+    Table table = this.tables.get(cls);
+    if(table == null || !table.isValid()) {
+      table = this.build(cls);
+      this.tables.put(cls, table);
+    }
+
+    this.installed.remove(cls);
+
+    LOGGER.info("Removing function references from %s", cls);
+
+    for(final Group group : table.groups) {
+      this.memory.getSegment(group.address).removeFunctions(group.offsets, group.bindings);
+    }
+  }
+
+  /**
+   * Works out which known overlays are still installed after loading a state replaced every binding. Their order is
+   * kept where possible.
+   */
+  void restored() {
+    final Set<Class<?>> candidates = new LinkedHashSet<>(this.installed);
+    candidates.addAll(this.tables.keySet());
+
+    this.installed.clear();
+
+    for(final Class<?> cls : candidates) {
+      final Table table = this.tables.get(cls);
+
+      if(table != null && table.isValid() && table.isBound()) {
+        this.installed.add(cls);
+      }
+    }
+  }
+
+  Set<Class<?>> getInstalled() {
+    return Collections.unmodifiableSet(this.installed);
+  }
+
+  /**
+   * @return the most recently installed overlay whose function is bound at {@code address}, or null if there is none
+   */
+  @Nullable
+  Class<?> getOwner(final long address) {
+    final long masked = this.memory.maskAddress(address);
+    final List<Class<?>> installed = new ArrayList<>(this.installed);
+
+    for(int i = installed.size() - 1; i >= 0; i--) {
+      if(this.tables.get(installed.get(i)).isBoundAt(masked)) {
+        return installed.get(i);
+      }
+    }
+
+    return null;
+  }
+
+  private Table build(final Class<?> cls) {
+    // Keyed by address, since the page table can hand out several decorators of one segment
+    final Map<Long, List<MethodRegistry.Entry>> bySegment = new HashMap<>();
+    final Map<Long, MethodRegistry.Entry> addresses = new HashMap<>();
+
+    for(final MethodRegistry.Entry entry : MethodRegistry.get(cls)) {
+      this.memory.checkAlignment(entry.address(), 4);
+
+      final long masked = this.memory.maskAddress(entry.address());
+      if(addresses.putIfAbsent(masked, entry) != null) {
+        throw new RuntimeException(cls + " contains two methods at address " + masked);
+      }
+
+      bySegment.computeIfAbsent(this.memory.getSegment(entry.address()).getAddress(), key -> new ArrayList<>()).add(entry);
+    }
+
+    if(bySegment.isEmpty()) {
+      throw new RuntimeException(cls + " contained no methods with Method annotations");
+    }
+
+    final List<Group> groups = new ArrayList<>();
+    for(final Map.Entry<Long, List<MethodRegistry.Entry>> entry : bySegment.entrySet()) {
+      final long segmentAddress = entry.getKey();
+      final List<MethodRegistry.Entry> entries = new ArrayList<>(entry.getValue());
+      entries.sort((a, b) -> Long.compare(this.memory.maskAddress(a.address()), this.memory.maskAddress(b.address())));
+
+      final int[] offsets = new int[entries.size()];
+      final MethodBinding[] bindings = new MethodBinding[entries.size()];
+
+      for(int i = 0; i < entries.size(); i++) {
+        final MethodRegistry.Entry method = entries.get(i);
+        method.method().setAccessible(true);
+        offsets[i] = (int)(this.memory.maskAddress(method.address()) - segmentAddress);
+        bindings[i] = new MethodBinding(method.method(), null, method.ignoreExtraParams());
+      }
+
+      groups.add(new Group(segmentAddress, this.memory.getSegment(segmentAddress).getLength(), offsets, bindings));
+    }
+
+    return new Table(groups.toArray(Group[]::new));
+  }
+
+  private final class Table {
+    private final Group[] groups;
+
+    private Table(final Group[] groups) {
+      this.groups = groups;
+    }
+
+    /**
+     * @return false if the segments the table was built against have since been replaced
+     */
+    private boolean isValid() {
+      for(final Group group : this.groups) {
+        final Segment segment = OverlayManager.this.memory.getSegment(group.address);
+
+        if(segment.getAddress() != group.address || segment.getLength() != group.length) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * @return true if any of the table's functions are bound - overlays that others have partly bound over are still
+     * installed
+     */
+    private boolean isBound() {
+      for(final Group group : this.groups) {
+        if(OverlayManager.this.memory.getSegment(group.address).hasAnyFunction(group.offsets, group.bindings)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    /**
+     * @return true if the table has a function at {@code address} and it's still bound there
+     */
+    private boolean isBoundAt(final long address) {
+      for(final Group group : this.groups) {
+        if(address >= group.address && address < group.address + group.length) {
+          final int index = Arrays.binarySearch(group.offsets, (int)(address - group.address));
+
+          if(index >= 0) {
+            return OverlayManager.this.memory.getSegment(group.address).hasAnyFunction(new int[] {group.offsets[index]}, new MethodBinding[] {group.bindings[index]});
+          }
+        }
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * The functions in one segment, sorted by offset
+   */
+  private record Group(long address, int length, int[] offsets, MethodBinding[] bindings) { }
+}
@@ -0,0 +1,140 @@
+package legend.core.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps 4 KiB pages to the segment that owns them. Pages shared by multiple segments (e.g. I/O) are split into 16-byte
+ * slots. KSEG0/KSEG1 share the KUSEG directories, so the address doesn't need to be masked first. The result is only a
+ * hint - callers still need to check {@link Segment#accepts}.
+ */
+public class PageTable {
+  public static final int PAGE_BITS = 12;
+  public static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+  private static final int DIRECTORY_BITS = 10;
+  private static final int DIRECTORY_SHIFT = PAGE_BITS + DIRECTORY_BITS;
+  private static final int DIRECTORY_COUNT = 1 << 32 - DIRECTORY_SHIFT;
+  private static final int PAGES_PER_DIRECTORY = 1 << DIRECTORY_BITS;
+
+  private static final int SLOT_BITS = 4;
+  private static final int SLOTS_PER_PAGE = 1 << PAGE_BITS - SLOT_BITS;
+
+  private final int[] regionMask;
+
+  /** Indexed by unmasked address - each page is either a {@link Segment} or a {@link Segment}[] of slots */
+  private Object[][] directories = new Object[DIRECTORY_COUNT][];
+
+  public PageTable(final int[] regionMask) {
+    this.regionMask = regionMask;
+  }
+
+  public Segment get(final long address) {
+    final Object[] directory = this.directories[(int)(address >>> DIRECTORY_SHIFT) & DIRECTORY_COUNT - 1];
+
+    if(directory == null) {
+      return null;
+    }
+
+    final Object page = directory[(int)(address >>> PAGE_BITS) & PAGES_PER_DIRECTORY - 1];
+
+    if(page instanceof Segment) {
+      return (Segment)page;
+    }
+
+    if(page != null) {
+      return ((Segment[])page)[(int)(address >>> SLOT_BITS) & SLOTS_PER_PAGE - 1];
+    }
+
+    return null;
+  }
+
+  public void rebuild(final List<Segment> segments, final Decorator decorator) {
+    final Object[][] masked = new Object[DIRECTORY_COUNT][];
+
+    for(final Segment segment : segments) {
+      final long start = segment.getAddress();
+      final long end = start + segment.getLength() - 1;
+
+      if(segment.getLength() <= 0 || (end & ~0xffff_ffffL) != 0) {
+        continue;
+      }
+
+      for(long page = start >>> PAGE_BITS; page <= end >>> PAGE_BITS; page++) {
+        final int directoryIndex = (int)(page >>> DIRECTORY_BITS);
+        final int pageIndex = (int)(page & PAGES_PER_DIRECTORY - 1);
+
+        if(masked[directoryIndex] == null) {
+          masked[directoryIndex] = new Object[PAGES_PER_DIRECTORY];
+        }
+
+        final Object[] directory = masked[directoryIndex];
+        final Object existing = directory[pageIndex];
+        final Segment decorated = decorator.decorate(segment, page << PAGE_BITS);
+
+        if(existing == null) {
+          directory[pageIndex] = decorated;
+        } else if(existing instanceof SharedPage) {
+          ((SharedPage)existing).add(decorated);
+        } else {
+          final SharedPage shared = new SharedPage();
+          shared.add((Segment)existing);
+          shared.add(decorated);
+          directory[pageIndex] = shared;
+        }
+      }
+    }
+
+    // Split shared pages into slots
+    for(int directoryIndex = 0; directoryIndex < DIRECTORY_COUNT; directoryIndex++) {
+      final Object[] directory = masked[directoryIndex];
+
+      if(directory == null) {
+        continue;
+      }
+
+      for(int pageIndex = 0; pageIndex < PAGES_PER_DIRECTORY; pageIndex++) {
+        if(directory[pageIndex] instanceof SharedPage) {
+          final SharedPage shared = (SharedPage)directory[pageIndex];
+          final long pageAddress = ((long)directoryIndex << DIRECTORY_SHIFT) + ((long)pageIndex << PAGE_BITS);
+          final Segment[] slots = new Segment[SLOTS_PER_PAGE];
+
+          for(final Segment segment : shared) {
+            final long start = Math.max(segment.getAddress(), pageAddress) - pageAddress;
+            final long end = Math.min(segment.getAddress() + segment.getLength(), pageAddress + PAGE_SIZE) - pageAddress;
+
+            for(int slot = (int)(start >>> SLOT_BITS); slot <= (int)(end - 1 >>> SLOT_BITS); slot++) {
+              // Earlier segments take priority, same as a linear scan
+              if(slots[slot] == null) {
+                slots[slot] = segment;
+              }
+            }
+          }
+
+          directory[pageIndex] = slots;
+        }
+      }
+    }
+
+    // Fold the region mirrors into the table
+    final Object[][] directories = new Object[DIRECTORY_COUNT][];
+    for(int directoryIndex = 0; directoryIndex < DIRECTORY_COUNT; directoryIndex++) {
+      final long address = (long)directoryIndex << DIRECTORY_SHIFT;
+      final long maskedAddress = address & this.regionMask[(int)(address >>> 29 & 0b111)] & 0xffff_ffffL;
+      directories[directoryIndex] = masked[(int)(maskedAddress >>> DIRECTORY_SHIFT)];
+    }
+
+    this.directories = directories;
+  }
+
+  /** The segments of a page that more than one segment maps to, before it's split into slots */
+  private static final class SharedPage extends ArrayList<Segment> { }
+
+  @FunctionalInterface
+  public interface Decorator {
+    /**
+     * @return the segment to use for accesses to this page - either the segment itself or a wrapper around it
+     */
+    Segment decorate(final Segment segment, final long pageAddress);
+  }
+}
@@ -0,0 +1,23 @@
+package legend.core.memory;
+
+/**
+ * Storage whose writes are tracked per page by a {@link DirtyPageTracker}, with raw access to whole pages
+ */
+public interface PagedStorage {
+  DirtyPageTracker getDirtyPages();
+
+  /**
+   * @return the size of a page in bytes as returned by {@link #readPage}
+   */
+  int getPageSize();
+
+  /**
+   * @return the number of bytes copied into {@code dest}
+   */
+  int readPage(final int page, final byte[] dest);
+
+  /**
+   * Overwrites a page with raw data. Doesn't unbind functions - the caller is expected to restore them separately.
+   */
+  void writePage(final int page, final byte[] src);
+}
@@ -0,0 +1,229 @@
+package legend.core.memory;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Only installed in the page table while a {@link MemoryProfiler} is running. Single accesses count once against their
+ * page; range operations count once against every page they touch.
+ */
+final class ProfilingSegment extends Segment {
+  private final Segment segment;
+  private final MemoryProfiler profiler;
+  private final MemoryProfiler.SegmentCounters counters;
+
+  ProfilingSegment(final Segment segment, final MemoryProfiler profiler, final MemoryProfiler.SegmentCounters counters) {
+    super(segment.getAddress(), segment.getLength(), false);
+    this.segment = segment;
+    this.profiler = profiler;
+    this.counters = counters;
+  }
+
+  private void read(final int offset) {
+    this.counters.reads[offset >>> PageTable.PAGE_BITS].increment();
+    this.profiler.attribute(false);
+  }
+
+  private void write(final int offset) {
+    this.counters.writes[offset >>> PageTable.PAGE_BITS].increment();
+    this.profiler.attribute(true);
+  }
+
+  private void read(final int offset, final int length) {
+    for(int page = offset >>> PageTable.PAGE_BITS; page <= offset + Math.max(length, 1) - 1 >>> PageTable.PAGE_BITS; page++) {
+      this.counters.reads[page].increment();
+    }
+
+    this.profiler.attribute(false);
+  }
+
+  private void write(final int offset, final int length) {
+    for(int page = offset >>> PageTable.PAGE_BITS; page <= offset + Math.max(length, 1) - 1 >>> PageTable.PAGE_BITS; page++) {
+      this.counters.writes[page].increment();
+    }
+
+    this.profiler.attribute(true);
+  }
+
+  @Override
+  public byte get(final int offset) {
+    this.read(offset);
+    return this.segment.get(offset);
+  }
+
+  @Override
+  public long get(final int offset, final int size) {
+    this.read(offset);
+    return this.segment.get(offset, size);
+  }
+
+  @Override
+  public void set(final int offset, final byte value) {
+    this.write(offset);
+    this.segment.set(offset, value);
+  }
+
+  @Override
+  public void set(final int offset, final int size, final long value) {
+    this.write(offset);
+    this.segment.set(offset, size, value);
+  }
+
+  @Override
+  public int indexOf(final int offset, final int length, final byte value) {
+    final int index = this.segment.indexOf(offset, length, value);
+    this.read(offset, index != -1 ? index + 1 : length);
+    return index;
+  }
+
+  @Override
+  public String getString(final int offset, final int length) {
+    return this.segment.getString(offset, length);
+  }
+
+  @Override
+  public ByteBuffer slice(final int offset, final int length) {
+    this.read(offset, length);
+    return this.segment.slice(offset, length);
+  }
+
+  @Override
+  public void markWritten(final int offset, final int length) {
+    this.write(offset, length);
+    this.segment.markWritten(offset, length);
+  }
+
+  @Override
+  public byte[] getBytes(final int offset, final int size) {
+    this.read(offset, size);
+    return this.segment.getBytes(offset, size);
+  }
+
+  @Override
+  public void getBytes(final int offset, final byte[] dest, final int dataOffset, final int dataSize) {
+    this.read(offset, dataSize);
+    this.segment.getBytes(offset, dest, dataOffset, dataSize);
+  }
+
+  @Override
+  public void setBytes(final int offset, final byte[] data) {
+    this.write(offset, data.length);
+    this.segment.setBytes(offset, data);
+  }
+
+  @Override
+  public void setBytes(final int offset, final byte[] data, final int dataOffset, final int dataLength) {
+    this.write(offset, dataLength);
+    this.segment.setBytes(offset, data, dataOffset, dataLength);
+  }
+
+  @Override
+  public void memcpy(final int dest, final int src, final int length) {
+    this.read(src, length);
+    this.write(dest, length);
+    this.segment.memcpy(dest, src, length);
+  }
+
+  @Override
+  public void copyTo(final int offset, final Segment dest, final int destOffset, final int length) {
+    this.read(offset, length);
+    this.segment.copyTo(offset, dest, destOffset, length);
+  }
+
+  @Override
+  public void fill(final int offset, final int length, final byte value) {
+    this.write(offset, length);
+    this.segment.fill(offset, length, value);
+  }
+
+  @Override
+  public void getShorts(final int offset, final short[] dest, final int destOffset, final int count, final int stride) {
+    this.read(offset, (count - 1) * stride + 2);
+    this.segment.getShorts(offset, dest, destOffset, count, stride);
+  }
+
+  @Override
+  public void getInts(final int offset, final int[] dest, final int destOffset, final int count, final int stride) {
+    this.read(offset, (count - 1) * stride + 4);
+    this.segment.getInts(offset, dest, destOffset, count, stride);
+  }
+
+  @Override
+  public void setShorts(final int offset, final short[] src, final int srcOffset, final int count, final int stride) {
+    this.write(offset, (count - 1) * stride + 2);
+    this.segment.setShorts(offset, src, srcOffset, count, stride);
+  }
+
+  @Override
+  public void setInts(final int offset, final int[] src, final int srcOffset, final int count, final int stride) {
+    this.write(offset, (count - 1) * stride + 4);
+    this.segment.setInts(offset, src, srcOffset, count, stride);
+  }
+
+  @Override
+  protected void setFunction(final int offset, final Method function, @Nullable final Object instance, final boolean ignoreExtraParams) {
+    this.segment.setFunction(offset, function, instance, ignoreExtraParams);
+  }
+
+  @Override
+  protected void setFunctions(final int[] offsets, final MethodBinding[] bindings) {
+    this.segment.setFunctions(offsets, bindings);
+  }
+
+  @Override
+  protected void removeFunctions(final int[] offsets, final MethodBinding[] bindings) {
+    this.segment.removeFunctions(offsets, bindings);
+  }
+
+  @Override
+  protected boolean hasAnyFunction(final int[] offsets, final MethodBinding[] bindings) {
+    return this.segment.hasAnyFunction(offsets, bindings);
+  }
+
+  @Override
+  protected void removeFunction(final int offset) {
+    this.segment.removeFunction(offset);
+  }
+
+  @Override
+  public void removeFunctions(final int start, final int end) {
+    this.segment.removeFunctions(start, end);
+  }
+
+  @Override
+  protected MethodBinding getFunction(final int offset) {
+    return this.segment.getFunction(offset);
+  }
+
+  @Override
+  protected boolean isFunction(final int offset) {
+    return this.segment.isFunction(offset);
+  }
+
+  @Override
+  public void dump(final ByteBuffer stream) {
+    this.segment.dump(stream);
+  }
+
+  @Override
+  public void load(final ByteBuffer stream) throws ClassNotFoundException {
+    this.segment.load(stream);
+  }
+
+  @Nullable
+  @Override
+  public PagedStorage getPagedStorage() {
+    return this.segment.getPagedStorage();
+  }
+
+  @Override
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    this.segment.dumpDelta(stream, since);
+  }
+
+  @Override
+  public void loadDelta(final ByteBuffer stream) throws ClassNotFoundException {
+    this.segment.loadDelta(stream);
+  }
+}
@@ -9,6 +9,9 @@ import org.apache.logging.log4j.Logger;
 import javax.annotation.Nullable;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 public abstract class Segment {
   private static final Logger LOGGER = LogManager.getFormatterLogger(Segment.class);
@@ -16,11 +19,24 @@ public abstract class Segment {
   private final long address;
   private final int length;
 
-  private final Long2ObjectMap<MethodBinding> functions = new Long2ObjectOpenHashMap<>();
+  /** Null for segments that forward every function operation to another segment */
+  private final Long2ObjectMap<MethodBinding> functions;
+  /** One bit per aligned word that has a function bound to it, so that writes don't need to probe the map */
+  private final long[] functionWords;
 
   public Segment(final long address, final int length) {
+    this(address, length, true);
+  }
+
+  /**
+   * @param bindsFunctions false if the subclass overrides every function operation to forward it to another segment,
+   * in which case this segment doesn't allocate a function table of its own
+   */
+  protected Segment(final long address, final int length, final boolean bindsFunctions) {
     this.address = address;
     this.length = length;
+    this.functions = bindsFunctions ? new Long2ObjectOpenHashMap<>() : null;
+    this.functionWords = bindsFunctions ? new long[(length + 3 >>> 2) + 63 >>> 6] : null;
   }
 
   public long getAddress() {
@@ -40,6 +56,48 @@ public abstract class Segment {
   public abstract void set(final int offset, final byte value);
   public abstract void set(final int offset, final int size, final long value);
 
+  /**
+   * @return the position of the first {@code value} in the {@code length} bytes from {@code offset}, relative to
+   * {@code offset}, or -1
+   */
+  public int indexOf(final int offset, final int length, final byte value) {
+    for(int i = 0; i < length; i++) {
+      if(this.get(offset + i) == value) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Decodes {@code length} bytes as Latin-1
+   */
+  public String getString(final int offset, final int length) {
+    final char[] chars = new char[length];
+    for(int i = 0; i < length; i++) {
+      chars[i] = (char)(this.get(offset + i) & 0xff);
+    }
+
+    return new String(chars);
+  }
+
+  /**
+   * @return a little-endian view of this segment's backing storage, or null if it has none. Writes through the view
+   * aren't tracked until {@link #markWritten} is called.
+   */
+  @Nullable
+  public ByteBuffer slice(final int offset, final int length) {
+    return null;
+  }
+
+  /**
+   * Records a write made through a {@link #slice}, unbinding any functions it overwrote
+   */
+  public void markWritten(final int offset, final int length) {
+    this.removeFunctions(offset, offset + length);
+  }
+
   public byte[] getBytes(final int offset, final int size) {
     throw new UnsupportedOperationException("This memory segment does not support direct reads (address: " + Long.toHexString(this.getAddress() + offset) + ')');
   }
@@ -60,18 +118,133 @@ public abstract class Segment {
     throw new UnsupportedOperationException("This memory segment does not support memcpy (address: " + Long.toHexString(this.getAddress() + dest) + ')');
   }
 
+  /**
+   * Copies {@code length} bytes from this segment into {@code dest}, which may be another segment
+   */
+  public void copyTo(final int offset, final Segment dest, final int destOffset, final int length) {
+    dest.setBytes(destOffset, this.getBytes(offset, length));
+  }
+
+  public void fill(final int offset, final int length, final byte value) {
+    for(int i = 0; i < length; i++) {
+      this.set(offset + i, value);
+    }
+  }
+
+  public void getShorts(final int offset, final short[] dest, final int destOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      dest[destOffset + i] = (short)this.get(offset + i * stride, 2);
+    }
+  }
+
+  public void getInts(final int offset, final int[] dest, final int destOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      dest[destOffset + i] = (int)this.get(offset + i * stride, 4);
+    }
+  }
+
+  public void setShorts(final int offset, final short[] src, final int srcOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      this.removeFunction(offset + i * stride);
+      this.set(offset + i * stride, 2, src[srcOffset + i] & 0xffffL);
+    }
+  }
+
+  public void setInts(final int offset, final int[] src, final int srcOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      this.removeFunction(offset + i * stride);
+      this.set(offset + i * stride, 4, src[srcOffset + i] & 0xffff_ffffL);
+    }
+  }
+
   protected void setFunction(final int offset, final Method function, @Nullable final Object instance, final boolean ignoreExtraParams) {
     function.setAccessible(true);
 
     this.functions.put(offset, new MethodBinding(function, instance, ignoreExtraParams));
+    this.functionWords[offset >>> 8] |= 1L << (offset >>> 2);
+  }
+
+  /**
+   * Binds a table of functions in one pass. {@code offsets} and {@code bindings} are parallel arrays.
+   */
+  protected void setFunctions(final int[] offsets, final MethodBinding[] bindings) {
+    for(int i = 0; i < offsets.length; i++) {
+      this.functions.put(offsets[i], bindings[i]);
+      this.functionWords[offsets[i] >>> 8] |= 1L << (offsets[i] >>> 2);
+    }
+  }
+
+  /**
+   * Unbinds the functions of a table passed to {@link #setFunctions}, except those that have since been rebound to
+   * another method. Bindings are compared by method since loading a state recreates them.
+   */
+  protected void removeFunctions(final int[] offsets, final MethodBinding[] bindings) {
+    for(int i = 0; i < offsets.length; i++) {
+      final MethodBinding bound = this.functions.get(offsets[i]);
+
+      if(bound != null && bound.method().equals(bindings[i].method())) {
+        this.removeFunctionWord(offsets[i] >>> 2);
+      }
+    }
   }
 
+  /**
+   * @return true if any function of a table passed to {@link #setFunctions} is still bound to the same method
+   */
+  protected boolean hasAnyFunction(final int[] offsets, final MethodBinding[] bindings) {
+    for(int i = 0; i < offsets.length; i++) {
+      final MethodBinding bound = this.functions.get(offsets[i]);
+
+      if(bound != null && bound.method().equals(bindings[i].method())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Removes any function bound to the word containing {@code offset}
+   */
   protected void removeFunction(final int offset) {
-    this.functions.remove(offset);
+    final int word = offset >>> 2;
+
+    if((this.functionWords[word >>> 6] & 1L << word) != 0) {
+      this.removeFunctionWord(word);
+    }
   }
 
+  /**
+   * Removes any functions bound to words overlapping {@code start} (inclusive) to {@code end} (exclusive)
+   */
   public void removeFunctions(final int start, final int end) {
-    this.functions.long2ObjectEntrySet().removeIf(entry -> entry.getLongKey() >= start && entry.getLongKey() < end);
+    if(this.functions.isEmpty() || end <= start) {
+      return;
+    }
+
+    final int firstWord = start >>> 2;
+    final int lastWord = end - 1 >>> 2;
+
+    for(int index = firstWord >>> 6; index <= lastWord >>> 6; index++) {
+      long bits = this.functionWords[index];
+
+      while(bits != 0) {
+        final int word = index << 6 | Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+
+        if(word >= firstWord && word <= lastWord) {
+          this.removeFunctionWord(word);
+        }
+      }
+    }
+  }
+
+  private void removeFunctionWord(final int word) {
+    this.functionWords[word >>> 6] &= ~(1L << word);
+
+    for(int i = 0; i < 4; i++) {
+      this.functions.remove(word << 2 | i);
+    }
   }
 
   protected MethodBinding getFunction(final int offset) {
@@ -85,7 +258,8 @@ public abstract class Segment {
   }
 
   protected boolean isFunction(final int offset) {
-    return this.functions.containsKey(offset & 0xffff_fffcL);
+    final int word = offset >>> 2;
+    return (this.functionWords[word >>> 6] & 1L << word) != 0;
   }
 
   public void dump(final ByteBuffer stream) {
@@ -107,25 +281,58 @@ public abstract class Segment {
 
   public void load(final ByteBuffer stream) throws ClassNotFoundException {
     this.functions.clear();
+    Arrays.fill(this.functionWords, 0);
+
+    // Index each class' methods once rather than looking through them for every binding
+    final Map<String, Long2ObjectMap<MethodRegistry.Entry>> classMethods = new HashMap<>();
 
     final int count = IoHelper.readInt(stream);
-    outer:
     for(int i = 0; i < count; i++) {
       final long address = IoHelper.readLong(stream);
       final String className = IoHelper.readString(stream);
 
-      final Class<?> cls = Class.forName(className);
-      for(final java.lang.reflect.Method method : cls.getMethods()) {
-        if(method.isAnnotationPresent(legend.core.memory.Method.class)) {
-          final legend.core.memory.Method annotation = method.getAnnotation(legend.core.memory.Method.class);
-          if((annotation.value() & 0xff_ffffL) == this.address + address) {
-            this.functions.put(address, new MethodBinding(method,  null, annotation.ignoreExtraParams()));
-            continue outer;
-          }
+      Long2ObjectMap<MethodRegistry.Entry> methods = classMethods.get(className);
+      if(methods == null) {
+        methods = new Long2ObjectOpenHashMap<>();
+
+        for(final MethodRegistry.Entry entry : MethodRegistry.get(Class.forName(className))) {
+          methods.putIfAbsent(entry.address() & 0xff_ffffL, entry);
         }
+
+        classMethods.put(className, methods);
+      }
+
+      final MethodRegistry.Entry entry = methods.get(this.address + address);
+      if(entry != null) {
+        this.functions.put(address, new MethodBinding(entry.method(), null, entry.ignoreExtraParams()));
+        this.functionWords[(int)address >>> 8] |= 1L << ((int)address >>> 2);
+        continue;
       }
 
       LOGGER.warn("WARNING: failed to find method %08x", address);
     }
   }
+
+  /**
+   * @return the page-tracked storage behind this segment, or null if it doesn't track writes
+   */
+  @Nullable
+  public PagedStorage getPagedStorage() {
+    return null;
+  }
+
+  /**
+   * Writes the parts of this segment that changed after {@code since} (see {@link DirtyPageTracker}). Segments that
+   * don't track their writes dump everything.
+   */
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    this.dump(stream);
+  }
+
+  /**
+   * Applies a delta written by {@link #dumpDelta}
+   */
+  public void loadDelta(final ByteBuffer stream) throws ClassNotFoundException {
+    this.load(stream);
+  }
 }
@@ -0,0 +1,55 @@
+package legend.core.memory;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Direct-mapped cache of strings read from memory. Each entry holds a {@link WriteSubscription} for the string and its
+ * terminator, so a hit costs a page generation check rather than a scan. Strings outside write-tracked storage, or
+ * longer than {@link #WINDOW}, are never hits.
+ */
+final class StringCache {
+  /** Must be a power of two */
+  private static final int SIZE = 128;
+  /** Subscriptions cover the rest of the string's page and the next one, since the length isn't known until it's read */
+  private static final int WINDOW = PageTable.PAGE_SIZE * 2;
+
+  private final Memory memory;
+  /** Each slot holds one immutable entry, so a racing reader sees either the old or the new entry */
+  private final Object[] entries = new Object[SIZE];
+
+  StringCache(final Memory memory) {
+    this.memory = memory;
+  }
+
+  @Nullable
+  String get(final long address, final int maxLength) {
+    final int slot = (int)(address ^ address >>> 7) & SIZE - 1;
+
+    final Entry entry = (Entry)this.entries[slot];
+    if(entry != null && entry.address == address && entry.maxLength == maxLength && !entry.writes.hasChanged()) {
+      return entry.string;
+    }
+
+    // Acknowledge before reading so that a racing write invalidates the entry
+    final long masked = this.memory.maskAddress(address);
+    final Segment segment = this.memory.getSegment(address);
+    final long window = Math.min(Math.min(maxLength + 1L, WINDOW - (masked & PageTable.PAGE_SIZE - 1)), segment.getAddress() + segment.getLength() - masked);
+    final WriteSubscription writes = this.memory.subscribe(address, (int)window);
+    writes.acknowledge();
+
+    final String string = this.memory.getString(address, maxLength);
+
+    if(string != null && string.length() < window) {
+      this.entries[slot] = new Entry(address, maxLength, string, writes);
+    }
+
+    return string;
+  }
+
+  void clear() {
+    Arrays.fill(this.entries, null);
+  }
+
+  private record Entry(long address, int maxLength, String string, WriteSubscription writes) { }
+}
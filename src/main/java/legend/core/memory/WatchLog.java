@@ -0,0 +1,59 @@
+package legend.core.memory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer of the most recent watchpoint hits
+ */
+public class WatchLog {
+  private static final Logger LOGGER = LogManager.getFormatterLogger(WatchLog.class);
+
+  private final Hit[] hits;
+  private int next;
+  private int count;
+
+  public WatchLog(final int capacity) {
+    this.hits = new Hit[capacity];
+  }
+
+  public synchronized void add(final Hit hit) {
+    this.hits[this.next] = hit;
+    this.next = (this.next + 1) % this.hits.length;
+    this.count = Math.min(this.count + 1, this.hits.length);
+
+    LOGGER.info("%s", hit);
+  }
+
+  /**
+   * @return the logged hits, oldest first
+   */
+  public synchronized List<Hit> getHits() {
+    final List<Hit> hits = new ArrayList<>(this.count);
+
+    for(int i = 0; i < this.count; i++) {
+      hits.add(this.hits[(this.next - this.count + i + this.hits.length) % this.hits.length]);
+    }
+
+    return hits;
+  }
+
+  public synchronized void clear() {
+    this.next = 0;
+    this.count = 0;
+  }
+
+  public record Hit(Watchpoint watch, long address, int size, long value, boolean write, String thread) {
+    @Override
+    public String toString() {
+      if(this.write) {
+        return "%08x (%d bytes) set to %x on %s".formatted(this.address, this.size, this.value, this.thread);
+      }
+
+      return "%08x (%d bytes) read %x on %s".formatted(this.address, this.size, this.value, this.thread);
+    }
+  }
+}
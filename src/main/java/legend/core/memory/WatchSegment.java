@@ -0,0 +1,179 @@
+package legend.core.memory;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Only installed in the page table for pages that contain a watched address, so unwatched pages don't pay for it.
+ * Range operations (getBytes, setBytes, memcpy) are checked by {@link Memory} instead.
+ */
+final class WatchSegment extends Segment {
+  private final Segment segment;
+  private final Watchpoint[] watches;
+  private final WatchLog log;
+
+  WatchSegment(final Segment segment, final Watchpoint[] watches, final WatchLog log) {
+    super(segment.getAddress(), segment.getLength(), false);
+    this.segment = segment;
+    this.watches = watches;
+    this.log = log;
+  }
+
+  private void check(final int offset, final int size, final long value, final boolean write) {
+    final long address = this.getAddress() + offset;
+
+    for(final Watchpoint watch : this.watches) {
+      if(watch.matches(address, size, value, write)) {
+        this.log.add(new WatchLog.Hit(watch, address, size, value, write, Thread.currentThread().getName()));
+      }
+    }
+  }
+
+  @Override
+  public byte get(final int offset) {
+    final byte value = this.segment.get(offset);
+    this.check(offset, 1, value & 0xffL, false);
+    return value;
+  }
+
+  @Override
+  public long get(final int offset, final int size) {
+    final long value = this.segment.get(offset, size);
+    this.check(offset, size, value, false);
+    return value;
+  }
+
+  @Override
+  public void set(final int offset, final byte value) {
+    this.segment.set(offset, value);
+    this.check(offset, 1, value & 0xffL, true);
+  }
+
+  @Override
+  public void set(final int offset, final int size, final long value) {
+    this.segment.set(offset, size, value);
+    this.check(offset, size, value, true);
+  }
+
+  @Override
+  public int indexOf(final int offset, final int length, final byte value) {
+    return this.segment.indexOf(offset, length, value);
+  }
+
+  @Override
+  public String getString(final int offset, final int length) {
+    return this.segment.getString(offset, length);
+  }
+
+  @Override
+  public ByteBuffer slice(final int offset, final int length) {
+    return this.segment.slice(offset, length);
+  }
+
+  @Override
+  public void markWritten(final int offset, final int length) {
+    this.segment.markWritten(offset, length);
+  }
+
+  @Override
+  public byte[] getBytes(final int offset, final int size) {
+    return this.segment.getBytes(offset, size);
+  }
+
+  @Override
+  public void getBytes(final int offset, final byte[] dest, final int dataOffset, final int dataSize) {
+    this.segment.getBytes(offset, dest, dataOffset, dataSize);
+  }
+
+  @Override
+  public void setBytes(final int offset, final byte[] data) {
+    this.segment.setBytes(offset, data);
+  }
+
+  @Override
+  public void setBytes(final int offset, final byte[] data, final int dataOffset, final int dataLength) {
+    this.segment.setBytes(offset, data, dataOffset, dataLength);
+  }
+
+  @Override
+  public void memcpy(final int dest, final int src, final int length) {
+    this.segment.memcpy(dest, src, length);
+  }
+
+  @Override
+  public void copyTo(final int offset, final Segment dest, final int destOffset, final int length) {
+    this.segment.copyTo(offset, dest, destOffset, length);
+  }
+
+  @Override
+  public void fill(final int offset, final int length, final byte value) {
+    this.segment.fill(offset, length, value);
+  }
+
+  @Override
+  protected void setFunction(final int offset, final Method function, @Nullable final Object instance, final boolean ignoreExtraParams) {
+    this.segment.setFunction(offset, function, instance, ignoreExtraParams);
+  }
+
+  @Override
+  protected void setFunctions(final int[] offsets, final MethodBinding[] bindings) {
+    this.segment.setFunctions(offsets, bindings);
+  }
+
+  @Override
+  protected void removeFunctions(final int[] offsets, final MethodBinding[] bindings) {
+    this.segment.removeFunctions(offsets, bindings);
+  }
+
+  @Override
+  protected boolean hasAnyFunction(final int[] offsets, final MethodBinding[] bindings) {
+    return this.segment.hasAnyFunction(offsets, bindings);
+  }
+
+  @Override
+  protected void removeFunction(final int offset) {
+    this.segment.removeFunction(offset);
+  }
+
+  @Override
+  public void removeFunctions(final int start, final int end) {
+    this.segment.removeFunctions(start, end);
+  }
+
+  @Override
+  protected MethodBinding getFunction(final int offset) {
+    return this.segment.getFunction(offset);
+  }
+
+  @Override
+  protected boolean isFunction(final int offset) {
+    return this.segment.isFunction(offset);
+  }
+
+  @Override
+  public void dump(final ByteBuffer stream) {
+    this.segment.dump(stream);
+  }
+
+  @Override
+  public void load(final ByteBuffer stream) throws ClassNotFoundException {
+    this.segment.load(stream);
+  }
+
+  @Nullable
+  @Override
+  public PagedStorage getPagedStorage() {
+    return this.segment.getPagedStorage();
+  }
+
+  @Override
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    this.segment.dumpDelta(stream, since);
+  }
+
+  @Override
+  public void loadDelta(final ByteBuffer stream) throws ClassNotFoundException {
+    this.segment.loadDelta(stream);
+  }
+}
@@ -0,0 +1,25 @@
+package legend.core.memory;
+
+import javax.annotation.Nullable;
+
+/**
+ * A watched (masked) address range. Reads and/or writes that overlap it are recorded in the {@link WatchLog}.
+ */
+public record Watchpoint(long address, int length, boolean read, boolean write, @Nullable Condition condition) {
+  public boolean overlaps(final long address, final int size) {
+    return address < this.address + this.length && this.address < address + size;
+  }
+
+  public boolean matches(final long address, final int size, final long value, final boolean write) {
+    if(write ? !this.write : !this.read) {
+      return false;
+    }
+
+    return this.overlaps(address, size) && (this.condition == null || this.condition.test(address, value));
+  }
+
+  @FunctionalInterface
+  public interface Condition {
+    boolean test(final long address, final long value);
+  }
+}
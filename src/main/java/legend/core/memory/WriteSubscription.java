@@ -0,0 +1,44 @@
+package legend.core.memory;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tells a cache whether an address range may have been written since it was last acknowledged. Checking costs one
+ * counter compare per page in the range. Ranges outside write-tracked storage always report a change.
+ *
+ * <p>Call {@link #acknowledge()} <i>before</i> reading the data being cached, so that a write that races the read is
+ * still reported.</p>
+ */
+public final class WriteSubscription {
+  @Nullable
+  private final DirtyPageTracker tracker;
+  private final int firstPage;
+  private final int lastPage;
+  private int generation;
+
+  WriteSubscription(@Nullable final DirtyPageTracker tracker, final int offset, final int length) {
+    this.tracker = tracker;
+
+    if(tracker != null) {
+      this.firstPage = offset >>> tracker.getPageBits();
+      this.lastPage = offset + Math.max(length, 1) - 1 >>> tracker.getPageBits();
+      this.generation = tracker.getGeneration(this.firstPage, this.lastPage) - 1;
+    } else {
+      this.firstPage = 0;
+      this.lastPage = 0;
+    }
+  }
+
+  /**
+   * @return true if the range may have been written since the last {@link #acknowledge()}, or if it never was
+   */
+  public boolean hasChanged() {
+    return this.tracker == null || this.tracker.getGeneration(this.firstPage, this.lastPage) != this.generation;
+  }
+
+  public void acknowledge() {
+    if(this.tracker != null) {
+      this.generation = this.tracker.getGeneration(this.firstPage, this.lastPage);
+    }
+  }
+}
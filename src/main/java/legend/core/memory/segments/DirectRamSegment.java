@@ -0,0 +1,272 @@
+package legend.core.memory.segments;
+
+import legend.core.MathHelper;
+import legend.core.memory.DirtyPageTracker;
+import legend.core.memory.MemoryArena;
+import legend.core.memory.PageTable;
+import legend.core.memory.PagedStorage;
+import legend.core.memory.Segment;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link RamSegment} backed by off-heap memory from a {@link MemoryArena} instead of a heap array
+ */
+public class DirectRamSegment extends Segment implements PagedStorage {
+  private final ByteBuffer data;
+  private final DirtyPageTracker dirtyPages;
+
+  public DirectRamSegment(final long address, final int length, final MemoryArena arena) {
+    super(address, length);
+    this.data = arena.allocate(length);
+    this.dirtyPages = new DirtyPageTracker(length, PageTable.PAGE_BITS);
+  }
+
+  @Override
+  public DirtyPageTracker getDirtyPages() {
+    return this.dirtyPages;
+  }
+
+  @Override
+  public PagedStorage getPagedStorage() {
+    return this;
+  }
+
+  @Override
+  public int getPageSize() {
+    return PageTable.PAGE_SIZE;
+  }
+
+  @Override
+  public int readPage(final int page, final byte[] dest) {
+    final int offset = page << PageTable.PAGE_BITS;
+    final int length = Math.min(PageTable.PAGE_SIZE, this.data.capacity() - offset);
+    this.data.get(offset, dest, 0, length);
+    return length;
+  }
+
+  @Override
+  public void writePage(final int page, final byte[] src) {
+    final int offset = page << PageTable.PAGE_BITS;
+    final int length = Math.min(PageTable.PAGE_SIZE, this.data.capacity() - offset);
+    this.data.put(offset, src, 0, length);
+    this.dirtyPages.mark(offset, length);
+  }
+
+  @Override
+  public byte get(final int offset) {
+    return this.data.get(offset);
+  }
+
+  @Override
+  public long get(final int offset, final int size) {
+    return switch(size) {
+      case 1 -> this.data.get(offset) & 0xffL;
+      case 2 -> this.data.getShort(offset) & 0xffffL;
+      case 4 -> this.data.getInt(offset) & 0xffff_ffffL;
+      case 8 -> this.data.getLong(offset);
+      default -> {
+        final byte[] bytes = new byte[size];
+        this.data.get(offset, bytes);
+        yield MathHelper.get(bytes, 0, size);
+      }
+    };
+  }
+
+  @Override
+  public void set(final int offset, final byte value) {
+    this.removeFunction(offset & 0xffff_fffc);
+    this.dirtyPages.mark(offset);
+    this.data.put(offset, value);
+  }
+
+  @Override
+  public void set(final int offset, final int size, final long value) {
+    // Use more efficient method to set a single byte
+    if(size == 1) {
+      this.set(offset, (byte)value);
+      return;
+    }
+
+    // Misaligned writes can straddle two words and, with alignment checks disabled, two pages
+    this.removeFunction(offset);
+    this.removeFunction(offset + size - 1);
+    this.dirtyPages.mark(offset, size);
+
+    switch(size) {
+      case 2 -> this.data.putShort(offset, (short)value);
+      case 4 -> this.data.putInt(offset, (int)value);
+      case 8 -> this.data.putLong(offset, value);
+      default -> {
+        final byte[] bytes = new byte[size];
+        MathHelper.set(bytes, 0, size, value);
+        this.data.put(offset, bytes);
+      }
+    }
+  }
+
+  /**
+   * Reads an unsigned 16-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public int getShortUnchecked(final int offset) {
+    return this.data.getShort(offset) & 0xffff;
+  }
+
+  /**
+   * Reads a 32-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public int getIntUnchecked(final int offset) {
+    return this.data.getInt(offset);
+  }
+
+  /**
+   * Writes a 16-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public void setShortUnchecked(final int offset, final int value) {
+    this.removeFunction(offset & 0xffff_fffc);
+    this.dirtyPages.mark(offset, 2);
+    this.data.putShort(offset, (short)value);
+  }
+
+  /**
+   * Writes a 32-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public void setIntUnchecked(final int offset, final int value) {
+    this.removeFunction(offset);
+    this.dirtyPages.mark(offset, 4);
+    this.data.putInt(offset, value);
+  }
+
+  @Override
+  public void getShorts(final int offset, final short[] dest, final int destOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      dest[destOffset + i] = this.data.getShort(offset + i * stride);
+    }
+  }
+
+  @Override
+  public void getInts(final int offset, final int[] dest, final int destOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      dest[destOffset + i] = this.data.getInt(offset + i * stride);
+    }
+  }
+
+  @Override
+  public void setShorts(final int offset, final short[] src, final int srcOffset, final int count, final int stride) {
+    this.removeFunctions(offset, offset + (count - 1) * stride + 2);
+    this.dirtyPages.mark(offset, (count - 1) * stride + 2);
+
+    for(int i = 0; i < count; i++) {
+      this.data.putShort(offset + i * stride, src[srcOffset + i]);
+    }
+  }
+
+  @Override
+  public void setInts(final int offset, final int[] src, final int srcOffset, final int count, final int stride) {
+    this.removeFunctions(offset, offset + (count - 1) * stride + 4);
+    this.dirtyPages.mark(offset, (count - 1) * stride + 4);
+
+    for(int i = 0; i < count; i++) {
+      this.data.putInt(offset + i * stride, src[srcOffset + i]);
+    }
+  }
+
+  @Override
+  public ByteBuffer slice(final int offset, final int length) {
+    return this.data.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Override
+  public void markWritten(final int offset, final int length) {
+    this.removeFunctions(offset, offset + length);
+    this.dirtyPages.mark(offset, length);
+  }
+
+  @Override
+  public int indexOf(final int offset, final int length, final byte value) {
+    for(int i = 0; i < length; i++) {
+      if(this.data.get(offset + i) == value) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  @Override
+  public String getString(final int offset, final int length) {
+    return new String(this.getBytes(offset, length), StandardCharsets.ISO_8859_1);
+  }
+
+  @Override
+  public byte[] getBytes(final int offset, final int size) {
+    final byte[] data = new byte[size];
+    this.data.get(offset, data);
+    return data;
+  }
+
+  @Override
+  public void getBytes(final int offset, final byte[] dest, final int dataOffset, final int dataSize) {
+    this.data.get(offset, dest, dataOffset, dataSize);
+  }
+
+  @Override
+  public void setBytes(final int offset, final byte[] data) {
+    this.removeFunctions(offset, offset + data.length);
+    this.dirtyPages.mark(offset, data.length);
+    this.data.put(offset, data);
+  }
+
+  @Override
+  public void setBytes(final int offset, final byte[] data, final int dataOffset, final int dataLength) {
+    this.removeFunctions(offset, offset + dataLength);
+    this.dirtyPages.mark(offset, dataLength);
+    this.data.put(offset, data, dataOffset, dataLength);
+  }
+
+  @Override
+  public void memcpy(final int dest, final int src, final int length) {
+    this.removeFunctions(dest, dest + length);
+    this.dirtyPages.mark(dest, length);
+    // Overlap-safe, like System.arraycopy
+    this.data.put(dest, this.data, src, length);
+  }
+
+  @Override
+  public void fill(final int offset, final int length, final byte value) {
+    this.removeFunctions(offset, offset + length);
+    this.dirtyPages.mark(offset, length);
+
+    for(int i = 0; i < length; i++) {
+      this.data.put(offset + i, value);
+    }
+  }
+
+  @Override
+  public void dump(final ByteBuffer stream) {
+    super.dump(stream);
+    stream.put(this.data.slice(0, this.data.capacity()));
+  }
+
+  @Override
+  public void load(final ByteBuffer stream) throws ClassNotFoundException {
+    super.load(stream);
+    this.data.put(0, stream, stream.position(), this.data.capacity());
+    stream.position(stream.position() + this.data.capacity());
+    this.dirtyPages.markAll();
+  }
+
+  @Override
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    super.dump(stream);
+    this.dirtyPages.dumpPages(stream, this.data, since);
+  }
+
+  @Override
+  public void loadDelta(final ByteBuffer stream) throws ClassNotFoundException {
+    super.load(stream);
+    this.dirtyPages.loadPages(stream, this.data);
+  }
+}
@@ -1,6 +1,7 @@
 package legend.core.memory.segments;
 
 import legend.core.memory.MethodBinding;
+import legend.core.memory.PagedStorage;
 import legend.core.memory.Segment;
 
 import javax.annotation.Nullable;
@@ -37,6 +38,37 @@ public class PrivilegedSegment extends Segment {
     return this.segment.get(offset, size);
   }
 
+  @Override
+  public int indexOf(final int offset, final int length, final byte value) {
+    if(!this.readable) {
+      this.gate.test(this.getAddress() + offset);
+    }
+
+    return this.segment.indexOf(offset, length, value);
+  }
+
+  @Override
+  public String getString(final int offset, final int length) {
+    if(!this.readable) {
+      this.gate.test(this.getAddress() + offset);
+    }
+
+    return this.segment.getString(offset, length);
+  }
+
+  @Override
+  public ByteBuffer slice(final int offset, final int length) {
+    // Slices can be written through, so they're always gated
+    this.gate.test(this.getAddress() + offset);
+    return this.segment.slice(offset, length);
+  }
+
+  @Override
+  public void markWritten(final int offset, final int length) {
+    this.removeFunctions(offset, offset + length);
+    this.segment.markWritten(offset, length);
+  }
+
   @Override
   public byte[] getBytes(final int offset, final int size) {
     if(!this.readable) {
@@ -85,12 +117,68 @@ public class PrivilegedSegment extends Segment {
     this.segment.memcpy(dest, src, length);
   }
 
+  @Override
+  public void copyTo(final int offset, final Segment dest, final int destOffset, final int length) {
+    if(!this.readable) {
+      this.gate.test(this.getAddress() + offset);
+    }
+
+    this.segment.copyTo(offset, dest, destOffset, length);
+  }
+
+  @Override
+  public void fill(final int offset, final int length, final byte value) {
+    this.gate.test(this.getAddress() + offset);
+    this.segment.fill(offset, length, value);
+  }
+
+  @Override
+  public void getShorts(final int offset, final short[] dest, final int destOffset, final int count, final int stride) {
+    if(!this.readable) {
+      this.gate.test(this.getAddress() + offset);
+    }
+
+    this.segment.getShorts(offset, dest, destOffset, count, stride);
+  }
+
+  @Override
+  public void getInts(final int offset, final int[] dest, final int destOffset, final int count, final int stride) {
+    if(!this.readable) {
+      this.gate.test(this.getAddress() + offset);
+    }
+
+    this.segment.getInts(offset, dest, destOffset, count, stride);
+  }
+
+  @Override
+  public void setShorts(final int offset, final short[] src, final int srcOffset, final int count, final int stride) {
+    this.gate.test(this.getAddress() + offset);
+    this.removeFunctions(offset, offset + (count - 1) * stride + 2);
+    this.segment.setShorts(offset, src, srcOffset, count, stride);
+  }
+
+  @Override
+  public void setInts(final int offset, final int[] src, final int srcOffset, final int count, final int stride) {
+    this.gate.test(this.getAddress() + offset);
+    this.removeFunctions(offset, offset + (count - 1) * stride + 4);
+    this.segment.setInts(offset, src, srcOffset, count, stride);
+  }
+
   @Override
   protected void setFunction(final int offset, final Method function, @Nullable final Object instance, final boolean ignoreExtraParams) {
     this.gate.test(this.getAddress() + offset);
     super.setFunction(offset, function, instance, ignoreExtraParams);
   }
 
+  @Override
+  protected void setFunctions(final int[] offsets, final MethodBinding[] bindings) {
+    for(final int offset : offsets) {
+      this.gate.test(this.getAddress() + offset);
+    }
+
+    super.setFunctions(offsets, bindings);
+  }
+
   @Override
   protected MethodBinding getFunction(final int offset) {
     if(!this.readable) {
@@ -118,4 +206,20 @@ public class PrivilegedSegment extends Segment {
   public void load(final ByteBuffer stream) throws ClassNotFoundException {
     this.segment.load(stream);
   }
+
+  @Nullable
+  @Override
+  public PagedStorage getPagedStorage() {
+    return this.segment.getPagedStorage();
+  }
+
+  @Override
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    this.segment.dumpDelta(stream, since);
+  }
+
+  @Override
+  public void loadDelta(final ByteBuffer stream) throws ClassNotFoundException {
+    this.segment.loadDelta(stream);
+  }
 }
@@ -1,16 +1,61 @@
 package legend.core.memory.segments;
 
 import legend.core.MathHelper;
+import legend.core.memory.DirtyPageTracker;
+import legend.core.memory.PageTable;
+import legend.core.memory.PagedStorage;
 import legend.core.memory.Segment;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class RamSegment extends Segment implements PagedStorage {
+  private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
 
-public class RamSegment extends Segment {
   private final byte[] data;
+  private final DirtyPageTracker dirtyPages;
 
   public RamSegment(final long address, final int length) {
     super(address, length);
     this.data = new byte[length];
+    this.dirtyPages = new DirtyPageTracker(length, PageTable.PAGE_BITS);
+  }
+
+  @Override
+  public DirtyPageTracker getDirtyPages() {
+    return this.dirtyPages;
+  }
+
+  @Override
+  public PagedStorage getPagedStorage() {
+    return this;
+  }
+
+  @Override
+  public int getPageSize() {
+    return PageTable.PAGE_SIZE;
+  }
+
+  @Override
+  public int readPage(final int page, final byte[] dest) {
+    final int offset = page << PageTable.PAGE_BITS;
+    final int length = Math.min(PageTable.PAGE_SIZE, this.data.length - offset);
+    System.arraycopy(this.data, offset, dest, 0, length);
+    return length;
+  }
+
+  @Override
+  public void writePage(final int page, final byte[] src) {
+    final int offset = page << PageTable.PAGE_BITS;
+    final int length = Math.min(PageTable.PAGE_SIZE, this.data.length - offset);
+    System.arraycopy(src, 0, this.data, offset, length);
+    this.dirtyPages.mark(offset, length);
   }
 
   @Override
@@ -20,17 +65,19 @@ public class RamSegment extends Segment {
 
   @Override
   public long get(final int offset, final int size) {
-    // Use more efficient method to get a single byte
-    if(size == 1) {
-      return this.get(offset) & 0xffL;
-    }
-
-    return MathHelper.get(this.data, offset, size);
+    return switch(size) {
+      case 1 -> this.data[offset] & 0xffL;
+      case 2 -> (short)SHORT.get(this.data, offset) & 0xffffL;
+      case 4 -> (int)INT.get(this.data, offset) & 0xffff_ffffL;
+      case 8 -> (long)LONG.get(this.data, offset);
+      default -> MathHelper.get(this.data, offset, size);
+    };
   }
 
   @Override
   public void set(final int offset, final byte value) {
     this.removeFunction(offset & 0xffff_fffc);
+    this.dirtyPages.mark(offset);
     this.data[offset] = value;
   }
 
@@ -42,8 +89,138 @@ public class RamSegment extends Segment {
       return;
     }
 
+    // Misaligned writes can straddle two words and, with alignment checks disabled, two pages
+    this.removeFunction(offset);
+    this.removeFunction(offset + size - 1);
+    this.dirtyPages.mark(offset, size);
+
+    switch(size) {
+      case 2 -> SHORT.set(this.data, offset, (short)value);
+      case 4 -> INT.set(this.data, offset, (int)value);
+      case 8 -> LONG.set(this.data, offset, value);
+      default -> MathHelper.set(this.data, offset, size, value);
+    }
+  }
+
+  /**
+   * Reads an unsigned 16-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public int getShortUnchecked(final int offset) {
+    return (short)SHORT.get(this.data, offset) & 0xffff;
+  }
+
+  /**
+   * Reads a 32-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public int getIntUnchecked(final int offset) {
+    return (int)INT.get(this.data, offset);
+  }
+
+  /**
+   * Writes a 16-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public void setShortUnchecked(final int offset, final int value) {
     this.removeFunction(offset & 0xffff_fffc);
-    MathHelper.set(this.data, offset, size, value);
+    this.dirtyPages.mark(offset, 2);
+    SHORT.set(this.data, offset, (short)value);
+  }
+
+  /**
+   * Writes a 32-bit value without any size dispatch. The caller is responsible for alignment.
+   */
+  public void setIntUnchecked(final int offset, final int value) {
+    this.removeFunction(offset);
+    this.dirtyPages.mark(offset, 4);
+    INT.set(this.data, offset, value);
+  }
+
+  @Override
+  public void getShorts(final int offset, final short[] dest, final int destOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      dest[destOffset + i] = (short)SHORT.get(this.data, offset + i * stride);
+    }
+  }
+
+  @Override
+  public void getInts(final int offset, final int[] dest, final int destOffset, final int count, final int stride) {
+    for(int i = 0; i < count; i++) {
+      dest[destOffset + i] = (int)INT.get(this.data, offset + i * stride);
+    }
+  }
+
+  @Override
+  public void setShorts(final int offset, final short[] src, final int srcOffset, final int count, final int stride) {
+    this.removeFunctions(offset, offset + (count - 1) * stride + 2);
+    this.dirtyPages.mark(offset, (count - 1) * stride + 2);
+
+    for(int i = 0; i < count; i++) {
+      SHORT.set(this.data, offset + i * stride, src[srcOffset + i]);
+    }
+  }
+
+  @Override
+  public void setInts(final int offset, final int[] src, final int srcOffset, final int count, final int stride) {
+    this.removeFunctions(offset, offset + (count - 1) * stride + 4);
+    this.dirtyPages.mark(offset, (count - 1) * stride + 4);
+
+    for(int i = 0; i < count; i++) {
+      INT.set(this.data, offset + i * stride, src[srcOffset + i]);
+    }
+  }
+
+  /**
+   * Reads {@code count} consecutive 16-bit values. The caller is responsible for alignment and bounds.
+   */
+  public void getShortsUnchecked(final int offset, final short[] dest, final int destOffset, final int count) {
+    this.getShorts(offset, dest, destOffset, count, 2);
+  }
+
+  /**
+   * Reads {@code count} consecutive 32-bit values. The caller is responsible for alignment and bounds.
+   */
+  public void getIntsUnchecked(final int offset, final int[] dest, final int destOffset, final int count) {
+    this.getInts(offset, dest, destOffset, count, 4);
+  }
+
+  /**
+   * Writes {@code count} consecutive 16-bit values. The caller is responsible for alignment and bounds.
+   */
+  public void setShortsUnchecked(final int offset, final short[] src, final int srcOffset, final int count) {
+    this.setShorts(offset, src, srcOffset, count, 2);
+  }
+
+  /**
+   * Writes {@code count} consecutive 32-bit values. The caller is responsible for alignment and bounds.
+   */
+  public void setIntsUnchecked(final int offset, final int[] src, final int srcOffset, final int count) {
+    this.setInts(offset, src, srcOffset, count, 4);
+  }
+
+  @Override
+  public ByteBuffer slice(final int offset, final int length) {
+    return ByteBuffer.wrap(this.data, offset, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Override
+  public void markWritten(final int offset, final int length) {
+    this.removeFunctions(offset, offset + length);
+    this.dirtyPages.mark(offset, length);
+  }
+
+  @Override
+  public int indexOf(final int offset, final int length, final byte value) {
+    for(int i = 0; i < length; i++) {
+      if(this.data[offset + i] == value) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  @Override
+  public String getString(final int offset, final int length) {
+    return new String(this.data, offset, length, StandardCharsets.ISO_8859_1);
   }
 
   @Override
@@ -61,21 +238,36 @@ public class RamSegment extends Segment {
   @Override
   public void setBytes(final int offset, final byte[] data) {
     this.removeFunctions(offset, offset + data.length);
+    this.dirtyPages.mark(offset, data.length);
     System.arraycopy(data, 0, this.data, offset, data.length);
   }
 
   @Override
   public void setBytes(final int offset, final byte[] data, final int dataOffset, final int dataLength) {
-    this.removeFunctions(offset, offset + data.length);
+    this.removeFunctions(offset, offset + dataLength);
+    this.dirtyPages.mark(offset, dataLength);
     System.arraycopy(data, dataOffset, this.data, offset, dataLength);
   }
 
   @Override
   public void memcpy(final int dest, final int src, final int length) {
     this.removeFunctions(dest, dest + length);
+    this.dirtyPages.mark(dest, length);
     System.arraycopy(this.data, src, this.data, dest, length);
   }
 
+  @Override
+  public void copyTo(final int offset, final Segment dest, final int destOffset, final int length) {
+    dest.setBytes(destOffset, this.data, offset, length);
+  }
+
+  @Override
+  public void fill(final int offset, final int length, final byte value) {
+    this.removeFunctions(offset, offset + length);
+    this.dirtyPages.mark(offset, length);
+    Arrays.fill(this.data, offset, offset + length, value);
+  }
+
   @Override
   public void dump(final ByteBuffer stream) {
     super.dump(stream);
@@ -86,5 +278,18 @@ public class RamSegment extends Segment {
   public void load(final ByteBuffer stream) throws ClassNotFoundException {
     super.load(stream);
     stream.get(this.data);
+    this.dirtyPages.markAll();
+  }
+
+  @Override
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    super.dump(stream);
+    this.dirtyPages.dumpPages(stream, this.data, since);
+  }
+
+  @Override
+  public void loadDelta(final ByteBuffer stream) throws ClassNotFoundException {
+    super.load(stream);
+    this.dirtyPages.loadPages(stream, this.data);
   }
 }
@@ -4,6 +4,7 @@ import legend.core.MathHelper;
 import legend.core.memory.Segment;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -50,6 +51,27 @@ public class RomSegment extends Segment {
     throw new ReadOnlyMemoryException("Memory at " + Long.toHexString(offset) + " is read only");
   }
 
+  @Override
+  public void copyTo(final int offset, final Segment dest, final int destOffset, final int length) {
+    dest.setBytes(destOffset, this.data, offset, length);
+  }
+
+  @Override
+  public int indexOf(final int offset, final int length, final byte value) {
+    for(int i = 0; i < length; i++) {
+      if(this.data[offset + i] == value) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  @Override
+  public String getString(final int offset, final int length) {
+    return new String(this.data, offset, length, StandardCharsets.ISO_8859_1);
+  }
+
   @Override
   public byte[] getBytes(final int offset, final int size) {
     final byte[] data = new byte[size];
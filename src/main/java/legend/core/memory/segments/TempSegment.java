@@ -2,41 +2,172 @@ package legend.core.memory.segments;
 
 import legend.core.memory.IllegalAddressException;
 import legend.core.memory.Segment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Temporary storage is handed out by per-thread stack arenas. Each arena bump-allocates out of 0x100-byte chunks that
+ * it claims from the shared pool, and gives chunks back once everything allocated in them has been released (releases
+ * are expected to be mostly LIFO). Threads only contend when claiming or returning chunks.
+ * <p>
+ * Any thread may release a reservation; the release goes through the arena that made it. If the pool runs dry, arenas
+ * of threads that have exited are reclaimed along with whatever reservations they leaked.
+ */
 public class TempSegment extends Segment {
-  private final byte[] temp = new byte[0x1000];
-  private BitSet tempUsage = new BitSet(0x1000);
+  private static final Logger LOGGER = LogManager.getFormatterLogger(TempSegment.class);
+
+  private static final int SIZE = 0x1000;
+  private static final int CHUNK_SIZE = 0x100;
+  private static final int CHUNK_COUNT = SIZE / CHUNK_SIZE;
+  private static final int ALIGNMENT = 4;
+
+  private final byte[] temp = new byte[SIZE];
+  /** One bit per reserved byte. Each chunk's words are only written under the lock of the arena that owns it. */
+  private final long[] tempUsage = new long[SIZE / 64];
+
+  private final Arena[] chunkOwners = new Arena[CHUNK_COUNT];
+  private final ThreadLocal<Arena> arenas = ThreadLocal.withInitial(() -> new Arena(Thread.currentThread()));
+  /** Bumped when a state is loaded so that arenas drop the regions they held before */
+  private volatile int generation;
+
+  private final AtomicLong allocations = new AtomicLong();
+  private final AtomicLong releases = new AtomicLong();
+  private final AtomicInteger bytesInUse = new AtomicInteger();
+  private final AtomicInteger highWaterMark = new AtomicInteger();
+  private final AtomicInteger chunksInUse = new AtomicInteger();
+  private final AtomicInteger chunkHighWaterMark = new AtomicInteger();
 
   public TempSegment() {
-    super(0xffff_0000L, 0x1000);
+    super(0xffff_0000L, SIZE);
   }
 
   public int allocate(final int length) {
+    if(length <= 0 || length > SIZE) {
+      throw new IllegalArgumentException("Invalid temporary length " + length);
+    }
+
+    final int offset = this.arenas.get().allocate(length);
+
+    this.allocations.incrementAndGet();
+    this.highWaterMark.accumulateAndGet(this.bytesInUse.addAndGet(length), Math::max);
+    return offset;
+  }
+
+  public void release(final int offset, final int length) {
+    if(offset < 0 || length <= 0 || offset + length > SIZE) {
+      throw new IllegalAddressException("Invalid temp range " + Integer.toHexString(offset) + " (" + length + " bytes)");
+    }
+
+    final Arena arena = this.getChunkOwner(offset / CHUNK_SIZE);
+
+    if(arena == null) {
+      throw new IllegalAddressException("There's no temp value reserved at " + Integer.toHexString(offset));
+    }
+
+    arena.release(offset, length);
+
+    this.releases.incrementAndGet();
+    this.bytesInUse.addAndGet(-length);
+  }
+
+  public Stats getStats() {
+    return new Stats(this.allocations.get(), this.releases.get(), this.bytesInUse.get(), this.highWaterMark.get(), this.chunksInUse.get() * CHUNK_SIZE, this.chunkHighWaterMark.get() * CHUNK_SIZE, SIZE);
+  }
+
+  public void resetHighWaterMark() {
+    this.highWaterMark.set(this.bytesInUse.get());
+    this.chunkHighWaterMark.set(this.chunksInUse.get());
+  }
+
+  @Nullable
+  private synchronized Arena getChunkOwner(final int chunk) {
+    return this.chunkOwners[chunk];
+  }
+
+  /**
+   * Claims a run of free chunks for an arena
+   *
+   * @return the first chunk in the run, or -1 if there isn't a long enough run
+   */
+  private synchronized int claimChunks(final Arena arena, final int count) {
     outer:
-    for(int i = 0; i < this.temp.length; i++) {
-      for(int n = 0; n < length; n++) {
-        if(this.tempUsage.get(i + n)) {
+    for(int first = 0; first <= CHUNK_COUNT - count; first++) {
+      for(int chunk = first; chunk < first + count; chunk++) {
+        if(this.chunkOwners[chunk] != null) {
+          first = chunk;
           continue outer;
         }
       }
 
-      this.tempUsage.set(i, i + length);
-      return i;
+      for(int chunk = first; chunk < first + count; chunk++) {
+        this.chunkOwners[chunk] = arena;
+      }
+
+      this.chunkHighWaterMark.accumulateAndGet(this.chunksInUse.addAndGet(count), Math::max);
+      return first;
     }
 
-    throw new RuntimeException("Ran out of temporary space");
+    return -1;
   }
 
-  public void release(final int offset, final int length) {
-    this.tempUsage.clear(offset, offset + length);
+  /**
+   * Frees everything held by arenas whose threads have exited. This is only done once the pool runs dry, since a
+   * reservation may have been handed to a thread that is still running.
+   */
+  private void reclaimDeadArenas() {
+    final Set<Arena> dead = new HashSet<>();
+
+    synchronized(this) {
+      for(final Arena arena : this.chunkOwners) {
+        if(arena != null && arena.owner != null && !arena.owner.isAlive()) {
+          dead.add(arena);
+        }
+      }
+    }
+
+    // Dead arenas never lock another arena, so taking their locks while holding our own can't deadlock
+    for(final Arena arena : dead) {
+      arena.reclaim();
+    }
+  }
+
+  private synchronized void returnChunks(final int first, final int count) {
+    for(int chunk = first; chunk < first + count; chunk++) {
+      this.chunkOwners[chunk] = null;
+    }
+
+    this.chunksInUse.addAndGet(-count);
+  }
+
+  private boolean isUsed(final int offset) {
+    return (this.tempUsage[offset >>> 6] & 1L << offset) != 0;
+  }
+
+  private void setUsed(final int start, final int end, final boolean used) {
+    for(int offset = start; offset < end; offset++) {
+      if(used) {
+        this.tempUsage[offset >>> 6] |= 1L << offset;
+      } else {
+        this.tempUsage[offset >>> 6] &= ~(1L << offset);
+      }
+    }
   }
 
   @Override
   public byte get(final int offset) {
-    if(!this.tempUsage.get(offset)) {
+    if(!this.isUsed(offset)) {
       throw new IllegalAddressException("There's no temp value reserved at " + Integer.toHexString(offset));
     }
 
@@ -45,7 +176,7 @@ public class TempSegment extends Segment {
 
   @Override
   public long get(final int offset, final int size) {
-    if(!this.tempUsage.get(offset)) {
+    if(!this.isUsed(offset)) {
       throw new IllegalAddressException("There's no temp value reserved at " + Integer.toHexString(offset));
     }
 
@@ -59,7 +190,7 @@ public class TempSegment extends Segment {
 
   @Override
   public void set(final int offset, final byte value) {
-    if(!this.tempUsage.get(offset)) {
+    if(!this.isUsed(offset)) {
       throw new IllegalAddressException("There's no temp value reserved at " + Integer.toHexString(offset));
     }
 
@@ -69,7 +200,7 @@ public class TempSegment extends Segment {
   @Override
   public void set(final int offset, final int size, final long value) {
     for(int i = 0; i < size; i++) {
-      if(!this.tempUsage.get(offset + i)) {
+      if(!this.isUsed(offset + i)) {
         throw new IllegalAddressException("There's no temp value reserved at " + Integer.toHexString(offset + i));
       }
 
@@ -81,7 +212,7 @@ public class TempSegment extends Segment {
   public void dump(final ByteBuffer stream) {
     stream.put(this.temp);
 
-    final byte[] bits = this.tempUsage.toByteArray();
+    final byte[] bits = BitSet.valueOf(this.tempUsage).toByteArray();
     stream.putInt(bits.length);
     stream.put(bits);
   }
@@ -92,6 +223,156 @@ public class TempSegment extends Segment {
 
     final byte[] bits = new byte[stream.getInt()];
     stream.get(bits);
-    this.tempUsage = BitSet.valueOf(bits);
+
+    final long[] usage = BitSet.valueOf(bits).toLongArray();
+    System.arraycopy(usage, 0, this.tempUsage, 0, usage.length);
+    Arrays.fill(this.tempUsage, usage.length, this.tempUsage.length, 0);
+
+    // Reservations restored from the state are owned by an arena of their own which hands chunks back as they're released
+    synchronized(this) {
+      final Arena restored = new Arena(null);
+
+      Arrays.fill(this.chunkOwners, null);
+      this.generation++;
+
+      int inUse = 0;
+      int chunks = 0;
+      for(int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+        final int base = chunk * CHUNK_SIZE;
+        int top = base;
+
+        for(int offset = base; offset < base + CHUNK_SIZE; offset++) {
+          if(this.isUsed(offset)) {
+            top = offset + 1;
+            inUse++;
+          }
+        }
+
+        if(top != base) {
+          this.chunkOwners[chunk] = restored;
+          restored.regions.push(new Region(base, base + CHUNK_SIZE, top));
+          chunks++;
+        }
+      }
+
+      this.bytesInUse.set(inUse);
+      this.chunksInUse.set(chunks);
+      this.resetHighWaterMark();
+    }
+  }
+
+  public record Stats(long allocations, long releases, int bytesInUse, int highWaterMark, int bytesClaimed, int claimedHighWaterMark, int capacity) { }
+
+  private static final class Region {
+    private final int base;
+    private final int limit;
+    private int top;
+
+    private Region(final int base, final int limit, final int top) {
+      this.base = base;
+      this.limit = limit;
+      this.top = top;
+    }
+  }
+
+  private final class Arena {
+    private final Deque<Region> regions = new ArrayDeque<>();
+    /** The thread that allocates from this arena, or null for reservations restored from a state */
+    @Nullable
+    private final Thread owner;
+    private int generation = TempSegment.this.generation;
+
+    private Arena(@Nullable final Thread owner) {
+      this.owner = owner;
+    }
+
+    private synchronized int allocate(final int length) {
+      if(this.generation != TempSegment.this.generation) {
+        this.regions.clear();
+        this.generation = TempSegment.this.generation;
+      }
+
+      final int alignedLength = length + ALIGNMENT - 1 & -ALIGNMENT;
+      Region region = this.regions.peek();
+
+      if(region == null || region.top + alignedLength > region.limit) {
+        final int count = (alignedLength + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int first = TempSegment.this.claimChunks(this, count);
+
+        if(first == -1) {
+          TempSegment.this.reclaimDeadArenas();
+          first = TempSegment.this.claimChunks(this, count);
+
+          if(first == -1) {
+            throw new RuntimeException("Ran out of temporary space");
+          }
+        }
+
+        region = new Region(first * CHUNK_SIZE, (first + count) * CHUNK_SIZE, first * CHUNK_SIZE);
+        this.regions.push(region);
+      }
+
+      final int offset = region.top;
+      region.top += alignedLength;
+      TempSegment.this.setUsed(offset, offset + length, true);
+      return offset;
+    }
+
+    private synchronized void release(final int offset, final int length) {
+      // Check everything before touching the bits, so that a stale release can't free another reservation's bytes
+      for(int chunk = offset / CHUNK_SIZE; chunk <= (offset + length - 1) / CHUNK_SIZE; chunk++) {
+        if(TempSegment.this.chunkOwners[chunk] != this) {
+          throw new IllegalAddressException("Temp range " + Integer.toHexString(offset) + " (" + length + " bytes) isn't owned by one arena");
+        }
+      }
+
+      for(int i = offset; i < offset + length; i++) {
+        if(!TempSegment.this.isUsed(i)) {
+          throw new IllegalAddressException("There's no temp value reserved at " + Integer.toHexString(i) + " - was it already released?");
+        }
+      }
+
+      TempSegment.this.setUsed(offset, offset + length, false);
+
+      // Trim what has been freed off the top of each region and give back the ones that are empty. Only the top region
+      // is allocated from, so the ones below it can go as soon as they empty out.
+      for(final Iterator<Region> it = this.regions.iterator(); it.hasNext(); ) {
+        final Region region = it.next();
+
+        while(region.top > region.base && !TempSegment.this.isUsed(region.top - 1)) {
+          region.top--;
+        }
+
+        if(region.top == region.base) {
+          it.remove();
+          TempSegment.this.returnChunks(region.base / CHUNK_SIZE, (region.limit - region.base) / CHUNK_SIZE);
+        }
+      }
+    }
+
+    private synchronized void reclaim() {
+      // Regions from before a state was loaded were already dropped from the pool
+      if(this.generation != TempSegment.this.generation) {
+        this.regions.clear();
+        return;
+      }
+
+      int leaked = 0;
+      while(!this.regions.isEmpty()) {
+        final Region region = this.regions.pop();
+
+        for(int offset = region.base; offset < region.top; offset++) {
+          if(TempSegment.this.isUsed(offset)) {
+            leaked++;
+          }
+        }
+
+        TempSegment.this.setUsed(region.base, region.top, false);
+        TempSegment.this.returnChunks(region.base / CHUNK_SIZE, (region.limit - region.base) / CHUNK_SIZE);
+      }
+
+      TempSegment.this.bytesInUse.addAndGet(-leaked);
+      LOGGER.warn("Reclaimed %d bytes of temporaries leaked by exited thread %s", leaked, this.owner.getName());
+    }
   }
 }
@@ -0,0 +1,31 @@
+package legend.core.memory.struct;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A field of a {@link Struct}. Getters may return a primitive, or another {@link Struct} - a pointer to it unless
+ * {@link #inline} is set. Pointer getters return null for a null pointer.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Field {
+  int offset();
+
+  /** Width in bytes - 1, 2 or 4 */
+  int size() default 4;
+
+  /** Sign-extend when reading */
+  boolean signed() default false;
+
+  /** If non-zero, the field is an array of this many elements and the getter takes an {@code int} index */
+  int count() default 0;
+
+  /** Distance between array elements, defaults to the element size */
+  int stride() default 0;
+
+  /** The field is a struct embedded at this offset rather than a pointer to one */
+  boolean inline() default false;
+}
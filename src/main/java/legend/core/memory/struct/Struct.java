@@ -0,0 +1,20 @@
+package legend.core.memory.struct;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a struct layout. The annotated interface must extend {@code MemoryRef} and declare a getter annotated with
+ * {@link Field} for each field. A method with the same name that takes the field's type (after the index, for arrays)
+ * is implemented as its setter. The struct processor (the {@code lod-processor} artifact, run as an annotation
+ * processor) generates {@code <Name>Impl}, a flyweight that holds only the struct's address and reads and writes memory
+ * at constant offsets from it.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Struct {
+  /** Size of the struct in bytes */
+  int value();
+}
@@ -2,8 +2,8 @@ package legend.core.memory.types;
 
 import legend.core.memory.Value;
 
-import java.lang.reflect.Array;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 
 public class ArrayRef<T extends MemoryRef> implements MemoryRef, Iterable<T> {
@@ -20,18 +20,25 @@ public class ArrayRef<T extends MemoryRef> implements MemoryRef, Iterable<T> {
     return (Class<ArrayRef<T>>)(Class<?>)ArrayRef.class;
   }
 
+  private static final int CHUNK_BITS = 4;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
   private final Value ref;
-  private final T[] elements;
+  private final int length;
+  private final int stride;
+  private final Function<Value, T> constructor;
+  /**
+   * Elements are created on first access and kept in chunks of {@link #CHUNK_SIZE}, so only the chunks that have been
+   * touched are allocated. Racing threads may both create an element; either copy is an equivalent view.
+   */
+  private final Object[][] chunks;
 
   public ArrayRef(final Value ref, final Class<T> cls, final int length, final int elementSize, final int stride, final Function<Value, T> constructor) {
     this.ref = ref;
-
-    //noinspection unchecked
-    this.elements = (T[])Array.newInstance(cls, length);
-
-    for(int i = 0; i < length; i++) {
-      this.elements[i] = constructor.apply(ref.offset(ref.getSize(), i * stride));
-    }
+    this.length = length;
+    this.stride = stride;
+    this.constructor = constructor;
+    this.chunks = new Object[length + CHUNK_SIZE - 1 >>> CHUNK_BITS][];
   }
 
   public ArrayRef(final Value ref, final Class<T> cls, final int length, final int stride, final Function<Value, T> constructor) {
@@ -39,18 +46,32 @@ public class ArrayRef<T extends MemoryRef> implements MemoryRef, Iterable<T> {
   }
 
   private void checkIndex(final int index) {
-    if(index < 0 || index >= this.elements.length) {
-      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds (0 <= n < " + this.elements.length + ')');
+    if(index < 0 || index >= this.length) {
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds (0 <= n < " + this.length + ')');
     }
   }
 
   public T get(final int index) {
     this.checkIndex(index);
-    return this.elements[index];
+
+    Object[] chunk = this.chunks[index >>> CHUNK_BITS];
+    if(chunk == null) {
+      chunk = new Object[CHUNK_SIZE];
+      this.chunks[index >>> CHUNK_BITS] = chunk;
+    }
+
+    //noinspection unchecked
+    T element = (T)chunk[index & CHUNK_SIZE - 1];
+    if(element == null) {
+      element = this.constructor.apply(this.ref.offset(this.ref.getSize(), (long)index * this.stride));
+      chunk[index & CHUNK_SIZE - 1] = element;
+    }
+
+    return element;
   }
 
   public int length() {
-    return this.elements.length;
+    return this.length;
   }
 
   @Override
@@ -65,12 +86,16 @@ public class ArrayRef<T extends MemoryRef> implements MemoryRef, Iterable<T> {
 
       @Override
       public boolean hasNext() {
-        return this.index < ArrayRef.this.elements.length;
+        return this.index < ArrayRef.this.length;
       }
 
       @Override
       public T next() {
-        return ArrayRef.this.elements[this.index++];
+        if(!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        return ArrayRef.this.get(this.index++);
       }
     };
   }
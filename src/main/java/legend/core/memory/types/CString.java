@@ -1,5 +1,6 @@
 package legend.core.memory.types;
 
+import legend.core.Hardware;
 import legend.core.memory.Value;
 
 import java.util.function.Function;
@@ -16,23 +17,14 @@ public class CString implements MemoryRef {
   }
 
   public String get() {
-    final StringBuilder sb = new StringBuilder();
+    // The terminator may sit one byte past the buffer
+    final String string = Hardware.MEMORY.getCachedString(this.getAddress(), this.ref.getSize() + 1);
 
-    for(int offset = 0; ; offset++) {
-      if(offset > this.ref.getSize()) {
-        throw new IndexOutOfBoundsException("String buffer overrun - didn't find null terminator before reaching max length (" + this.ref.getSize() + "). Data was " + sb);
-      }
-
-      final char ascii = (char)this.ref.offset(1, offset).get();
-
-      if(ascii == 0) {
-        break;
-      }
-
-      sb.append(ascii);
+    if(string == null) {
+      throw new IndexOutOfBoundsException("String buffer overrun - didn't find null terminator before reaching max length (" + this.ref.getSize() + "). Data was " + this.ref.offset(1, 0).getString(this.ref.getSize() + 1));
     }
 
-    return sb.toString();
+    return string;
   }
 
   public void set(final String string) {
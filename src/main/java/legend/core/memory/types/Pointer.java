@@ -4,6 +4,7 @@ import legend.core.Hardware;
 import legend.core.memory.Memory;
 import legend.core.memory.MisalignedAccessException;
 import legend.core.memory.Value;
+import legend.core.memory.WriteSubscription;
 
 import javax.annotation.Nullable;
 import java.lang.reflect.InvocationTargetException;
@@ -31,6 +32,9 @@ public class Pointer<T extends MemoryRef> implements MemoryRef {
   private final int size;
   @Nullable
   private T cache;
+  /** Lets the cache be trusted without re-reading the pointer while its page is unchanged */
+  @Nullable
+  private WriteSubscription writes;
 
   public Pointer(final Value ref, final Function<Value, T> constructor, final int size, final boolean precache) {
     this.ref = ref;
@@ -78,6 +82,16 @@ public class Pointer<T extends MemoryRef> implements MemoryRef {
 
   @Nullable
   public T derefNullable() {
+    if(this.cache != null && this.writes != null && !this.writes.hasChanged()) {
+      return this.cache;
+    }
+
+    if(this.writes == null) {
+      this.writes = Hardware.MEMORY.subscribe(this.getAddress(), 4);
+    }
+
+    this.writes.acknowledge();
+
     if(this.isNull()) {
       this.cache = null;
       return null;
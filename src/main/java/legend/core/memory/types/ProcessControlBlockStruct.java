@@ -0,0 +1,21 @@
+package legend.core.memory.types;
+
+import legend.core.memory.struct.Field;
+import legend.core.memory.struct.Struct;
+
+import javax.annotation.Nullable;
+
+/**
+ * Flyweight view of a {@link ProcessControlBlock}
+ */
+@Struct(0x4)
+public interface ProcessControlBlockStruct extends MemoryRef {
+  static ProcessControlBlockStruct at(final long address) {
+    return new ProcessControlBlockStructImpl(address);
+  }
+
+  @Nullable
+  @Field(offset = 0x0)
+  ThreadControlBlockStruct threadControlBlock();
+  void threadControlBlock(ThreadControlBlockStruct tcb);
+}
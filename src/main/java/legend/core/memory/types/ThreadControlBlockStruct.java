@@ -0,0 +1,42 @@
+package legend.core.memory.types;
+
+import legend.core.memory.struct.Field;
+import legend.core.memory.struct.Struct;
+
+/**
+ * Flyweight view of a {@link ThreadControlBlock} for the exception handler
+ */
+@Struct(0xc0)
+public interface ThreadControlBlockStruct extends MemoryRef {
+  static ThreadControlBlockStruct at(final long address) {
+    return new ThreadControlBlockStructImpl(address);
+  }
+
+  @Field(offset = 0x0)
+  long status();
+  void status(long status);
+
+  @Field(offset = 0x8, count = 0x20)
+  long register(int index);
+  void register(int index, long value);
+
+  @Field(offset = 0x88)
+  long cop0r14Epc();
+  void cop0r14Epc(long epc);
+
+  @Field(offset = 0x8c)
+  long hi();
+  void hi(long hi);
+
+  @Field(offset = 0x90)
+  long lo();
+  void lo(long lo);
+
+  @Field(offset = 0x94)
+  long cop0r12Sr();
+  void cop0r12Sr(long sr);
+
+  @Field(offset = 0x98)
+  long cop0r13Cause();
+  void cop0r13Cause(long cause);
+}
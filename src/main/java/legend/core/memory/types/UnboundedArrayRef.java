@@ -1,10 +1,10 @@
 package legend.core.memory.types;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import legend.core.memory.Value;
 
 import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 import java.util.function.IntSupplier;
 
@@ -22,28 +22,69 @@ public class UnboundedArrayRef<T extends MemoryRef> implements MemoryRef {
     return (Class<UnboundedArrayRef<T>>)(Class<?>)UnboundedArrayRef.class;
   }
 
+  /** Must be a power of two */
+  private static final int CACHE_SIZE = 64;
+
   private final Value ref;
-  private final Int2ObjectMap<T> elements;
   private final int stride;
   private final Function<Value, T> constructor;
   @Nullable
   private final IntSupplier length;
+  /**
+   * Direct-mapped by index so that long traversals don't grow it. Each slot holds one immutable entry, so a racing
+   * reader sees either the old or the new entry, never a mix.
+   */
+  @SuppressWarnings("unchecked")
+  private final Entry<T>[] cache = (Entry<T>[])new Entry<?>[CACHE_SIZE];
 
   public UnboundedArrayRef(final Value ref, final int stride, final Function<Value, T> constructor, @Nullable final IntSupplier length) {
     this.ref = ref;
-
-    this.elements = new Int2ObjectOpenHashMap<>();
     this.stride = stride;
     this.constructor = constructor;
     this.length = length;
   }
 
-  public T get(final int index) {
+  private void checkIndex(final int index) {
     if(this.length != null && index >= this.length.getAsInt()) {
       throw new IndexOutOfBoundsException("Index " + index + " is out of bounds (0 <= n < " + this.length.getAsInt() + ')');
     }
+  }
 
-    return this.elements.computeIfAbsent(index, key -> this.constructor.apply(this.ref.offset(this.ref.getSize(), (long)key * this.stride)));
+  private T create(final int index) {
+    return this.constructor.apply(this.ref.offset(this.ref.getSize(), (long)index * this.stride));
+  }
+
+  public T get(final int index) {
+    this.checkIndex(index);
+
+    final int slot = index & CACHE_SIZE - 1;
+
+    final Entry<T> entry = this.cache[slot];
+    if(entry != null && entry.index == index) {
+      return entry.element;
+    }
+
+    final T element = this.create(index);
+    this.cache[slot] = new Entry<>(index, element);
+    return element;
+  }
+
+  /**
+   * Streams {@code count} elements starting at {@code start}, bypassing the cache. The same {@link Cursor} is returned
+   * for every element, so a scan allocates nothing per element unless {@link Cursor#get} is called.
+   *
+   * <pre>{@code
+   * for(final UnboundedArrayRef<SVECTOR>.Cursor vertex : vertices.scan(0, count)) {
+   *   process(vertex.getAddress());
+   * }
+   * }</pre>
+   */
+  public Cursor scan(final int start, final int count) {
+    if(count > 0) {
+      this.checkIndex(start + count - 1);
+    }
+
+    return new Cursor(start, start + count);
   }
 
   public UnboundedArrayRef<T> slice(final int offset) {
@@ -58,4 +99,51 @@ public class UnboundedArrayRef<T extends MemoryRef> implements MemoryRef {
   public long getAddress() {
     return this.ref.getAddress();
   }
+
+  private record Entry<T>(int index, T element) { }
+
+  public final class Cursor implements Iterable<Cursor>, Iterator<Cursor> {
+    private final int end;
+    private int index;
+
+    private Cursor(final int start, final int end) {
+      this.index = start - 1;
+      this.end = end;
+    }
+
+    public int index() {
+      return this.index;
+    }
+
+    public long getAddress() {
+      return UnboundedArrayRef.this.getAddress() + (long)this.index * UnboundedArrayRef.this.stride;
+    }
+
+    /**
+     * Creates the element at the cursor. The result isn't cached.
+     */
+    public T get() {
+      return UnboundedArrayRef.this.create(this.index);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.index + 1 < this.end;
+    }
+
+    @Override
+    public Cursor next() {
+      if(!this.hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      this.index++;
+      return this;
+    }
+
+    @Override
+    public Iterator<Cursor> iterator() {
+      return this;
+    }
+  }
 }
@@ -9,9 +9,11 @@ import legend.core.IoHelper;
 import legend.core.MathHelper;
 import legend.core.dma.DmaChannel;
 import legend.core.dma.DmaInterface;
+import legend.core.memory.DirtyPageTracker;
 import legend.core.memory.IllegalAddressException;
 import legend.core.memory.Memory;
 import legend.core.memory.MisalignedAccessException;
+import legend.core.memory.PagedStorage;
 import legend.core.memory.Segment;
 import legend.core.memory.Value;
 import legend.core.memory.segments.RamSegment;
@@ -32,6 +34,7 @@ import java.util.Queue;
 import static legend.core.Hardware.DMA;
 import static legend.core.Hardware.INTERRUPTS;
 import static legend.core.Hardware.MEMORY;
+import static legend.core.Hardware.SAFEPOINT;
 
 public class Spu implements Runnable, MemoryRef {
   private static final Logger LOGGER = LogManager.getFormatterLogger(Spu.class);
@@ -75,6 +78,32 @@ public class Spu implements Runnable, MemoryRef {
   private final Queue<Byte> cdBuffer = new ArrayDeque<>();
 
   private final byte[] ram = new byte[512 * 1024];
+  private final DirtyPageTracker dirtyRam = new DirtyPageTracker(this.ram.length, 12);
+  private final PagedStorage ramStorage = new PagedStorage() {
+    @Override
+    public DirtyPageTracker getDirtyPages() {
+      return Spu.this.dirtyRam;
+    }
+
+    @Override
+    public int getPageSize() {
+      return Spu.this.dirtyRam.getPageSize();
+    }
+
+    @Override
+    public int readPage(final int page, final byte[] dest) {
+      final int size = Spu.this.dirtyRam.getPageSize();
+      System.arraycopy(Spu.this.ram, page * size, dest, 0, size);
+      return size;
+    }
+
+    @Override
+    public void writePage(final int page, final byte[] src) {
+      final int size = Spu.this.dirtyRam.getPageSize();
+      System.arraycopy(src, 0, Spu.this.ram, page * size, size);
+      Spu.this.dirtyRam.mark(page * size, size);
+    }
+  };
   public final Voice[] voices = new Voice[24];
 
   private int ramDataTransferAddressInternal;
@@ -125,13 +154,10 @@ public class Spu implements Runnable, MemoryRef {
     DMA.spu.setDmaInterface(new DmaInterface() {
       @Override
       public void blockCopy(final int size) {
-        final byte[] data;
         if(DMA.spu.channelControl.getTransferDirection() == DmaChannel.ChannelControl.TRANSFER_DIRECTION.TO_MAIN_RAM) {
-          data = Spu.this.processDmaLoad(size);
-          MEMORY.setBytes(DMA.spu.MADR.get(), data);
+          MEMORY.writeBuffer(DMA.spu.MADR.get(), size, Spu.this::processDmaLoad);
         } else {
-          data = MEMORY.getBytes(DMA.spu.MADR.get(), size);
-          Spu.this.processDmaWrite(data);
+          MEMORY.readBuffer(DMA.spu.MADR.get(), size, Spu.this::processDmaWrite);
         }
 
         DMA.spu.MADR.addu(DMA.spu.channelControl.getAddressStep().step * size);
@@ -156,12 +182,7 @@ public class Spu implements Runnable, MemoryRef {
         INTERRUPTS.set(InterruptType.SPU);
       }
 
-      while(Hardware.dumping) {
-        Hardware.spuWaiting = true;
-        DebugHelper.sleep(1);
-      }
-
-      Hardware.spuWaiting = false;
+      SAFEPOINT.poll();
 
       DebugHelper.sleep(0);
     }
@@ -294,6 +315,7 @@ public class Spu implements Runnable, MemoryRef {
   private boolean handleCaptureBuffer(final int address, final short sample) {
     this.ram[address] = (byte)(sample & 0xFF);
     this.ram[address + 1] = (byte)(sample >> 8 & 0xFF);
+    this.dirtyRam.mark(address);
 
     return address >> 3 == this.irqAddress;
   }
@@ -402,22 +424,21 @@ public class Spu implements Runnable, MemoryRef {
 
   public void directWrite(final int spuRamOffset, final long ramOffset, final int size) {
     LOGGER.info("Performing direct write from RAM @ %08x to SPU @ %04x (%d bytes)", ramOffset, spuRamOffset, size);
-    final byte[] data = MEMORY.getBytes(ramOffset, size);
-    this.processDmaWrite(spuRamOffset, data);
+    MEMORY.readBuffer(ramOffset, size, data -> this.processDmaWrite(spuRamOffset, data));
     DMA.spu.transferComplete();
     INTERRUPTS.set(InterruptType.SPU);
   }
 
   public void directWrite(final int spuRamOffset, final byte[] data) {
     LOGGER.info("Performing direct write from byte array to SPU @ %04x (%d bytes)", spuRamOffset, data.length);
-    this.processDmaWrite(spuRamOffset, data);
+    this.processDmaWrite(spuRamOffset, ByteBuffer.wrap(data));
     DMA.spu.transferComplete();
     INTERRUPTS.set(InterruptType.SPU);
   }
 
-  private byte[] processDmaLoad(final int size) {
-    final byte[] dma = new byte[size];
-    System.arraycopy(this.ram, this.ramDataTransferAddressInternal, dma, 0, size);
+  private void processDmaLoad(final ByteBuffer dma) {
+    final int size = dma.remaining();
+    dma.put(this.ram, this.ramDataTransferAddressInternal, size);
 
     //ramDataTransferAddressInternal and ramIrqAddress already are >> 3
     //so check if it's in the size range and trigger int
@@ -427,34 +448,33 @@ public class Spu implements Runnable, MemoryRef {
     } else {
       this.ramDataTransferAddressInternal += size * 4;
     }
-
-    return dma;
   }
 
-  private void processDmaWrite(final byte[] dma) {
+  private void processDmaWrite(final ByteBuffer dma) {
+    final int length = dma.remaining();
     this.processDmaWrite(this.ramDataTransferAddressInternal, dma);
-    this.ramDataTransferAddressInternal += dma.length;
+    this.ramDataTransferAddressInternal += length;
   }
 
-  private void processDmaWrite(final int spuRamOffset, final byte[] dma) {
+  private void processDmaWrite(final int spuRamOffset, final ByteBuffer dma) {
+    final int length = dma.remaining();
+
     //Tekken 3 and FF8 overflows SPU Ram
-    final int destAddress = spuRamOffset + dma.length - 1;
+    final int destAddress = spuRamOffset + length - 1;
 
     if(destAddress <= 0x7FFFF) {
-      System.arraycopy(dma, 0, this.ram, spuRamOffset, dma.length);
+      dma.get(this.ram, spuRamOffset, length);
+      this.dirtyRam.mark(spuRamOffset, length);
     } else {
       final int overflow = destAddress - 0x7FFFF;
 
-      final byte[] firstSlice = new byte[dma.length - overflow];
-      final byte[] overflowSpan = new byte[overflow];
-      System.arraycopy(dma, 0, firstSlice, 0, firstSlice.length);
-      System.arraycopy(dma, firstSlice.length, overflowSpan, 0, overflowSpan.length);
-
-      System.arraycopy(firstSlice, 0, this.ram, spuRamOffset, firstSlice.length);
-      System.arraycopy(overflowSpan, 0, this.ram, 0, overflowSpan.length);
+      dma.get(this.ram, spuRamOffset, length - overflow);
+      dma.get(this.ram, 0, overflow);
+      this.dirtyRam.mark(spuRamOffset, length - overflow);
+      this.dirtyRam.mark(0, overflow);
     }
 
-    if(this.irqAddress > spuRamOffset && this.irqAddress < spuRamOffset + dma.length) {
+    if(this.irqAddress > spuRamOffset && this.irqAddress < spuRamOffset + length) {
       INTERRUPTS.set(InterruptType.SPU);
     }
   }
@@ -541,7 +561,26 @@ public class Spu implements Runnable, MemoryRef {
     return 0x1f80_1c00L;
   }
 
+  public PagedStorage getRamStorage() {
+    return this.ramStorage;
+  }
+
   public void dump(final ByteBuffer stream) {
+    this.dumpBuffers(stream);
+    stream.put(this.ram);
+    this.dumpRegisters(stream);
+  }
+
+  /**
+   * Like {@link #dump} but only writes the pages of SPU RAM that changed after {@code since}
+   */
+  public void dumpDelta(final ByteBuffer stream, final int since) {
+    this.dumpBuffers(stream);
+    this.dirtyRam.dumpPages(stream, this.ram, since);
+    this.dumpRegisters(stream);
+  }
+
+  private void dumpBuffers(final ByteBuffer stream) {
     IoHelper.write(stream, this.spuOutput.size());
 
     for(final byte b : this.spuOutput) {
@@ -553,9 +592,9 @@ public class Spu implements Runnable, MemoryRef {
     for(final byte b : this.cdBuffer) {
       IoHelper.write(stream, b);
     }
+  }
 
-    stream.get(this.ram);
-
+  private void dumpRegisters(final ByteBuffer stream) {
     for(final Voice voice : this.voices) {
       voice.dump(stream);
     }
@@ -595,6 +634,22 @@ public class Spu implements Runnable, MemoryRef {
   }
 
   public void load(final ByteBuffer stream, final int version) {
+    this.loadBuffers(stream);
+    stream.get(this.ram);
+    this.dirtyRam.markAll();
+    this.loadRegisters(stream);
+  }
+
+  /**
+   * Applies a delta written by {@link #dumpDelta}
+   */
+  public void loadDelta(final ByteBuffer stream, final int version) {
+    this.loadBuffers(stream);
+    this.dirtyRam.loadPages(stream, this.ram);
+    this.loadRegisters(stream);
+  }
+
+  private void loadBuffers(final ByteBuffer stream) {
     this.spuOutput.clear();
     final int spuOutputSize = IoHelper.readInt(stream);
     for(int i = 0; i < spuOutputSize; i++) {
@@ -606,9 +661,9 @@ public class Spu implements Runnable, MemoryRef {
     for(int i = 0; i < cdBufferSize; i++) {
       this.cdBuffer.add(IoHelper.readByte(stream));
     }
+  }
 
-    stream.get(this.ram);
-
+  private void loadRegisters(final ByteBuffer stream) {
     for(final Voice voice : this.voices) {
       voice.load(stream);
     }
@@ -755,6 +810,7 @@ public class Spu implements Runnable, MemoryRef {
           case 0x28 -> {
             LOGGER.debug("Setting SPU data transfer FIFO to %04x", value);
             Spu.this.dataTransferFifo = value;
+            Spu.this.dirtyRam.mark(Spu.this.ramDataTransferAddressInternal & 0xffff);
             Spu.this.ram[Spu.this.ramDataTransferAddressInternal++ & 0xffff] = (byte)(value & 0xff);
             Spu.this.ram[Spu.this.ramDataTransferAddressInternal++ & 0xffff] = (byte)(value >>> 8 & 0xff);
           }
@@ -0,0 +1,108 @@
+package legend.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XorRleTest {
+  @Test
+  void identicalArraysHaveNoDelta() {
+    final byte[] data = random(0x1000, 1);
+    assertNull(XorRle.encode(data, data.length, data.clone(), data.length));
+  }
+
+  @Test
+  void roundTripsScatteredChanges() {
+    final byte[] from = random(0x1000, 2);
+    final byte[] to = from.clone();
+    to[0] ^= 1;
+    to[200] = 0x7f;
+    Arrays.fill(to, 0x300, 0x340, (byte)0xaa);
+    to[to.length - 1] ^= 0x80;
+
+    final byte[] delta = this.roundTrip(from, from.length, to, to.length);
+    assertTrue(delta.length < 0x100, "Unchanged runs should be skipped, not copied");
+  }
+
+  @Test
+  void roundTripsLongRunsAcrossVarIntBoundaries() {
+    final byte[] from = new byte[0x4_0000];
+    final byte[] to = from.clone();
+    to[0x7f] = 1;
+    to[0x80 + 0x7f] = 2;
+    to[0x3fff] = 3;
+    to[0x3_ffff] = 4;
+
+    this.roundTrip(from, from.length, to, to.length);
+  }
+
+  @Test
+  void roundTripsGrowingAndShrinking() {
+    final byte[] small = random(0x100, 3);
+    final byte[] large = random(0x300, 4);
+    System.arraycopy(small, 0, large, 0, 0x80);
+
+    this.roundTrip(small, small.length, large, large.length);
+    this.roundTrip(large, large.length, small, small.length);
+  }
+
+  @Test
+  void shrinkingToAPrefixIsStillAChange() {
+    final byte[] from = random(0x100, 5);
+    final byte[] to = Arrays.copyOf(from, 0x80);
+
+    final byte[] delta = this.roundTrip(from, from.length, to, to.length);
+    assertEquals(0x80, XorRle.decodedLength(delta));
+  }
+
+  @Test
+  void honoursLengthsShorterThanTheArrays() {
+    final byte[] from = random(0x200, 6);
+    final byte[] to = random(0x200, 7);
+
+    this.roundTrip(from, 0x100, to, 0x180);
+  }
+
+  @Test
+  void appliesInPlace() {
+    final byte[] from = random(0x800, 8);
+    final byte[] to = from.clone();
+    to[0x10] ^= 0x55;
+    to[0x7ff] ^= 0x55;
+
+    final byte[] delta = XorRle.encode(from, from.length, to, to.length);
+    assertNotNull(delta);
+
+    XorRle.apply(delta, from, from.length, from);
+    assertArrayEquals(to, from);
+  }
+
+  /**
+   * Checks that decoding the delta from {@code from} gives back {@code to}
+   *
+   * @return the delta
+   */
+  private byte[] roundTrip(final byte[] from, final int fromLength, final byte[] to, final int toLength) {
+    final byte[] delta = XorRle.encode(from, fromLength, to, toLength);
+    assertNotNull(delta);
+    assertEquals(toLength, XorRle.decodedLength(delta));
+
+    final byte[] decoded = new byte[toLength];
+    XorRle.apply(delta, from, fromLength, decoded);
+    assertArrayEquals(Arrays.copyOf(to, toLength), decoded);
+    return delta;
+  }
+
+  private static byte[] random(final int length, final long seed) {
+    final byte[] data = new byte[length];
+    new Random(seed).nextBytes(data);
+    return data;
+  }
+}
@@ -0,0 +1,120 @@
+package legend.core.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirtyPageTrackerTest {
+  private static final int PAGE_BITS = 8;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  /** Deliberately not a whole number of pages */
+  private static final int LENGTH = PAGE_SIZE * 5 + 0x40;
+
+  @Test
+  void marksEveryPageARangeTouches() {
+    final DirtyPageTracker tracker = new DirtyPageTracker(LENGTH, PAGE_BITS);
+    final int since = DirtyPageTracker.advanceEpoch();
+
+    tracker.mark(PAGE_SIZE - 2, 4);
+
+    assertTrue(tracker.isDirty(0, since));
+    assertTrue(tracker.isDirty(1, since));
+    assertFalse(tracker.isDirty(2, since));
+    assertEquals(2, tracker.countDirty(since));
+    assertEquals(6, tracker.getPageCount());
+  }
+
+  @Test
+  void generationChangesOnEveryWrite() {
+    final DirtyPageTracker tracker = new DirtyPageTracker(LENGTH, PAGE_BITS);
+
+    final int before = tracker.getGeneration(1, 2);
+    tracker.mark(PAGE_SIZE * 2);
+    final int after = tracker.getGeneration(1, 2);
+    tracker.mark(PAGE_SIZE * 2 + 1);
+
+    assertNotEquals(before, after);
+    assertNotEquals(after, tracker.getGeneration(1, 2));
+    assertEquals(tracker.getGeneration(3, 3), new DirtyPageTracker(LENGTH, PAGE_BITS).getGeneration(3, 3));
+  }
+
+  @Test
+  void roundTripsDirtyPagesOfAnArray() {
+    final DirtyPageTracker tracker = new DirtyPageTracker(LENGTH, PAGE_BITS);
+    final byte[] data = random(LENGTH, 1);
+    final int since = DirtyPageTracker.advanceEpoch();
+
+    tracker.mark(PAGE_SIZE + 3);
+    tracker.mark(LENGTH - 1);
+
+    final ByteBuffer stream = ByteBuffer.allocate(LENGTH * 2);
+    tracker.dumpPages(stream, data, since);
+    stream.flip();
+
+    final DirtyPageTracker loaded = new DirtyPageTracker(LENGTH, PAGE_BITS);
+    final byte[] restored = new byte[LENGTH];
+    final int beforeLoad = DirtyPageTracker.advanceEpoch();
+    loaded.loadPages(stream, restored);
+
+    assertFalse(stream.hasRemaining());
+    assertArrayEquals(Arrays.copyOfRange(data, PAGE_SIZE, PAGE_SIZE * 2), Arrays.copyOfRange(restored, PAGE_SIZE, PAGE_SIZE * 2));
+    assertArrayEquals(Arrays.copyOfRange(data, PAGE_SIZE * 5, LENGTH), Arrays.copyOfRange(restored, PAGE_SIZE * 5, LENGTH));
+    assertArrayEquals(new byte[PAGE_SIZE], Arrays.copyOfRange(restored, 0, PAGE_SIZE), "Clean pages aren't dumped");
+
+    // Loaded pages count as written so that the next incremental dump includes them
+    assertEquals(2, loaded.countDirty(beforeLoad));
+    assertTrue(loaded.isDirty(1, beforeLoad));
+    assertTrue(loaded.isDirty(5, beforeLoad));
+  }
+
+  @Test
+  void roundTripsEveryPageOfADirectBuffer() {
+    final DirtyPageTracker tracker = new DirtyPageTracker(LENGTH, PAGE_BITS);
+    final ByteBuffer data = ByteBuffer.allocateDirect(LENGTH);
+    data.put(random(LENGTH, 2)).clear();
+
+    tracker.markAll();
+
+    final ByteBuffer stream = ByteBuffer.allocate(LENGTH * 2);
+    tracker.dumpPages(stream, data, 0);
+    stream.flip();
+
+    final ByteBuffer restored = ByteBuffer.allocateDirect(LENGTH);
+    new DirtyPageTracker(LENGTH, PAGE_BITS).loadPages(stream, restored);
+
+    assertFalse(stream.hasRemaining());
+    assertEquals(data, restored);
+  }
+
+  @Test
+  void arrayAndBufferDumpsMatch() {
+    final DirtyPageTracker tracker = new DirtyPageTracker(LENGTH, PAGE_BITS);
+    final byte[] array = random(LENGTH, 3);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(LENGTH);
+    buffer.put(array).clear();
+    final int since = DirtyPageTracker.advanceEpoch();
+
+    tracker.mark(0, PAGE_SIZE * 3);
+
+    final ByteBuffer fromArray = ByteBuffer.allocate(LENGTH * 2);
+    final ByteBuffer fromBuffer = ByteBuffer.allocate(LENGTH * 2);
+    tracker.dumpPages(fromArray, array, since);
+    tracker.dumpPages(fromBuffer, buffer, since);
+
+    assertEquals(fromArray.flip(), fromBuffer.flip());
+  }
+
+  private static byte[] random(final int length, final long seed) {
+    final byte[] data = new byte[length];
+    new Random(seed).nextBytes(data);
+    return data;
+  }
+}
@@ -0,0 +1,51 @@
+package legend.core.memory;
+
+import legend.core.Safepoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryLocksTest {
+  @Test
+  void threadsWaitingForAStripeDontHoldUpAPause() throws InterruptedException {
+    final Safepoint safepoint = new Safepoint();
+    final MemoryLocks locks = new MemoryLocks();
+    locks.setSafepoint(safepoint);
+
+    final AtomicBoolean locked = new AtomicBoolean();
+    final Thread thread = new Thread(() -> {
+      final long stripes = locks.lock(0x1000L, 0x2000);
+      locked.set(true);
+      locks.unlock(stripes);
+    });
+    safepoint.register(thread);
+
+    final ReentrantLock held = locks.lock(0x2000L);
+    thread.start();
+
+    while(thread.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+
+    assertTrue(safepoint.pause());
+
+    try {
+      // The stripe is handed over mid-pause, so the waiting thread has to give it back and park
+      held.unlock();
+      final long stripes = locks.lockAll();
+      locks.unlock(stripes);
+
+      Thread.sleep(50);
+      assertFalse(locked.get());
+    } finally {
+      safepoint.resume();
+    }
+
+    thread.join(5000);
+    assertTrue(locked.get());
+  }
+}
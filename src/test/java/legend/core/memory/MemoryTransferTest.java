@@ -0,0 +1,88 @@
+package legend.core.memory;
+
+import legend.core.memory.segments.DirectRamSegment;
+import legend.core.memory.segments.RamSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class MemoryTransferTest {
+  /** Three segments of two kinds, so that transfers cross both array-to-array and array-to-buffer boundaries */
+  private static final int[] BOUNDARIES = {0x0, 0x2000, 0x4000, 0x5000};
+  private static final int LENGTH = 0x5000;
+
+  private final Memory memory = new Memory();
+  private final byte[] expected = new byte[LENGTH];
+
+  MemoryTransferTest() {
+    this.memory.addSegment(new RamSegment(0x0L, 0x2000));
+    this.memory.addSegment(new DirectRamSegment(0x2000L, 0x2000, MemoryArena.create(0x2000)));
+    this.memory.addSegment(new RamSegment(0x4000L, 0x1000));
+
+    new Random(1).nextBytes(this.expected);
+
+    // Byte array accesses don't span segments
+    for(int i = 0; i < BOUNDARIES.length - 1; i++) {
+      this.memory.setBytes(BOUNDARIES[i], this.expected, BOUNDARIES[i], BOUNDARIES[i + 1] - BOUNDARIES[i]);
+    }
+  }
+
+  /** System.arraycopy behaves like memmove */
+  private void move(final int dest, final int src, final int length) {
+    this.memory.move(dest, src, length);
+    System.arraycopy(this.expected, src, this.expected, dest, length);
+  }
+
+  private void check() {
+    final byte[] actual = new byte[LENGTH];
+
+    for(int i = 0; i < BOUNDARIES.length - 1; i++) {
+      this.memory.getBytes(BOUNDARIES[i], actual, BOUNDARIES[i], BOUNDARIES[i + 1] - BOUNDARIES[i]);
+    }
+
+    assertArrayEquals(this.expected, actual);
+  }
+
+  @Test
+  void movesOverlappingRangesForwardsAcrossSegments() {
+    this.move(0x1f80, 0x1f00, 0x200);
+    this.check();
+  }
+
+  @Test
+  void movesOverlappingRangesBackwardsAcrossSegments() {
+    this.move(0x1fc0, 0x2080, 0x300);
+    this.check();
+  }
+
+  @Test
+  void movesOverlappingRangesSpanningThreeSegments() {
+    this.move(0x1900, 0x1800, 0x3000);
+    this.check();
+    this.move(0x1801, 0x1900, 0x3000);
+    this.check();
+  }
+
+  @Test
+  void copiesDisjointRangesAcrossSegments() {
+    this.memory.copy(0x3f00, 0x1e00, 0x300);
+    System.arraycopy(this.expected, 0x1e00, this.expected, 0x3f00, 0x300);
+    this.check();
+  }
+
+  @Test
+  void matchesMemmoveForRandomRanges() {
+    final Random random = new Random(2);
+
+    for(int i = 0; i < 500; i++) {
+      final int length = 1 + random.nextInt(0x1800);
+      final int src = random.nextInt(LENGTH - length + 1);
+      final int dest = Math.max(0, Math.min(LENGTH - length, src + random.nextInt(0x1000) - 0x800));
+      this.move(dest, src, length);
+    }
+
+    this.check();
+  }
+}
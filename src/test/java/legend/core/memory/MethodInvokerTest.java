@@ -0,0 +1,72 @@
+package legend.core.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MethodInvokerTest {
+  public static long increment(final long value) {
+    return value + 1;
+  }
+
+  public static double sum(final int a, final long b, final float c, final double d) {
+    return a + b + c + d;
+  }
+
+  public static String describe(final Object value, final char c, final boolean flag) {
+    return value + ":" + c + ':' + flag;
+  }
+
+  public static void nothing(final int value) { }
+
+  public static long five(final long a, final long b, final long c, final long d, final long e) {
+    return a + b + c + d + e;
+  }
+
+  private static MethodInvoker invoker(final String name, final boolean ignoreExtraParams) {
+    for(final Method method : MethodInvokerTest.class.getMethods()) {
+      if(method.getName().equals(name)) {
+        return MethodInvoker.create(method, null, ignoreExtraParams);
+      }
+    }
+
+    throw new IllegalArgumentException(name);
+  }
+
+  @Test
+  void widensBoxedPrimitivesLikeMethodInvoke() throws Throwable {
+    assertEquals(6L, invoker("increment", false).invoke(5));
+    assertEquals(6L, invoker("increment", false).invoke((short)5));
+    assertEquals(6L, invoker("increment", false).invoke('\u0005'));
+    assertEquals(10.0, invoker("sum", false).invoke((byte)1, 2, 3, 4L));
+    assertEquals(15L, invoker("five", false).invoke(1, 2, 3, 4, 5L));
+  }
+
+  @Test
+  void passesExactTypesThrough() throws Throwable {
+    assertEquals(6L, invoker("increment", false).invoke(5L));
+    assertEquals("x:c:true", invoker("describe", false).invoke("x", 'c', true));
+    assertNull(invoker("nothing", false).invoke(1));
+  }
+
+  @Test
+  void rejectsNarrowingAndMismatches() {
+    assertThrows(ClassCastException.class, () -> invoker("nothing", false).invoke(1L));
+    assertThrows(ClassCastException.class, () -> invoker("increment", false).invoke(1.0));
+    assertThrows(ClassCastException.class, () -> invoker("describe", false).invoke("x", 'c', 1));
+    assertThrows(ClassCastException.class, () -> invoker("five", false).invoke(1, 2, 3, 4, 5.0));
+    assertThrows(NullPointerException.class, () -> invoker("increment", false).invoke((Object)null));
+  }
+
+  @Test
+  void checksTheArgumentCount() throws Throwable {
+    assertThrows(IllegalArgumentException.class, () -> invoker("increment", false).invoke(1, 2));
+    assertThrows(IllegalArgumentException.class, () -> invoker("increment", true).invoke());
+    assertEquals(2L, invoker("increment", true).invoke(1, 2));
+    assertEquals(15L, invoker("five", true).invoke(1, 2, 3, 4, 5, 6));
+  }
+}
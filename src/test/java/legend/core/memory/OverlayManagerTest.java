@@ -0,0 +1,104 @@
+package legend.core.memory;
+
+import legend.core.memory.segments.RamSegment;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverlayManagerTest {
+  public static class First {
+    @Method(0x100L)
+    public static int shared() {
+      return 1;
+    }
+
+    @Method(0x104L)
+    public static int own() {
+      return 2;
+    }
+  }
+
+  public static class Second {
+    @Method(0x100L)
+    public static int shared() {
+      return 3;
+    }
+  }
+
+  public static class Other {
+    @Method(0x200L)
+    public static int other() {
+      return 4;
+    }
+  }
+
+  private final Memory memory = new Memory();
+  private final RamSegment ram = new RamSegment(0x0L, 0x1000);
+
+  OverlayManagerTest() {
+    this.memory.addSegment(this.ram);
+  }
+
+  @Test
+  void laterOverlaysBindOverEarlierOnes() {
+    this.memory.addFunctions(First.class);
+    this.memory.addFunctions(Second.class);
+
+    assertEquals(Second.class, this.memory.getOverlayAt(0x100L));
+    assertEquals(First.class, this.memory.getOverlayAt(0x104L));
+    assertEquals(Second.class, this.ram.getFunction(0x100).method().getDeclaringClass());
+
+    // Removing an overlay unbinds its words rather than restoring what it bound over
+    this.memory.removeFunctions(Second.class);
+    assertNull(this.memory.getOverlayAt(0x100L));
+    assertFalse(this.ram.isFunction(0x100));
+    assertEquals(First.class, this.memory.getOverlayAt(0x104L));
+  }
+
+  @Test
+  void restoresOverlaysFromALoadedState() throws ClassNotFoundException {
+    this.memory.addFunctions(First.class);
+    this.memory.addFunctions(Second.class);
+
+    final ByteBuffer state = ByteBuffer.allocate(0x10000);
+    this.memory.dump(state);
+
+    this.memory.removeFunctions(Second.class);
+    this.memory.removeFunctions(First.class);
+    this.memory.addFunctions(Other.class);
+
+    this.memory.load(state.flip(), 0);
+
+    assertEquals(Set.of(First.class, Second.class), this.memory.getOverlays());
+    assertEquals(Second.class, this.memory.getOverlayAt(0x100L));
+    assertEquals(First.class, this.memory.getOverlayAt(0x104L));
+    assertNull(this.memory.getOverlayAt(0x200L));
+    assertFalse(this.ram.isFunction(0x200));
+  }
+
+  @Test
+  void uninstallsAfterALoad() throws ClassNotFoundException {
+    this.memory.addFunctions(First.class);
+    this.memory.addFunctions(Second.class);
+
+    final ByteBuffer state = ByteBuffer.allocate(0x10000);
+    this.memory.dump(state);
+    this.memory.load(state.flip(), 0);
+
+    this.memory.removeFunctions(First.class);
+    assertEquals(Set.of(Second.class), this.memory.getOverlays());
+    assertNull(this.memory.getOverlayAt(0x104L));
+    assertFalse(this.ram.isFunction(0x104));
+    assertEquals(Second.class, this.ram.getFunction(0x100).method().getDeclaringClass(), "Words a later overlay replaced are left alone");
+
+    this.memory.removeFunctions(Second.class);
+    assertTrue(this.memory.getOverlays().isEmpty());
+    assertFalse(this.ram.isFunction(0x100));
+  }
+}
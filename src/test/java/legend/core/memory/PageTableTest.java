@@ -0,0 +1,120 @@
+package legend.core.memory;
+
+import legend.core.memory.segments.RamSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PageTableTest {
+  /** Same layout as {@link Memory}'s */
+  private static final int[] REGION_MASK = {
+    0xffff_ffff, 0xffff_ffff, 0xffff_ffff, 0xffff_ffff, // KUSEG
+    0x7fff_ffff,                                        // KSEG0
+    0x1fff_ffff,                                        // KSEG1
+    0xffff_ffff, 0xffff_ffff,                           // KSEG2
+  };
+
+  private static final long IO = 0x1f80_1000L;
+
+  @Test
+  void findsTheSegmentForEachPage() {
+    final Segment ram = new RamSegment(0x0L, 0x20_0000);
+    final Segment bios = new RamSegment(0x1fc0_0000L, 0x8_0000);
+    final PageTable table = table(ram, bios);
+
+    assertSame(ram, table.get(0x0L));
+    assertSame(ram, table.get(0x1f_ffffL));
+    assertSame(bios, table.get(0x1fc0_0000L));
+    assertSame(bios, table.get(0x1fc7_ffffL));
+    assertNull(table.get(0x20_0000L));
+    assertNull(table.get(0x1fc8_0000L));
+  }
+
+  @Test
+  void mirrorsKuSegIntoKSeg0AndKSeg1() {
+    final Segment ram = new RamSegment(0x0L, 0x20_0000);
+    final Segment bios = new RamSegment(0x1fc0_0000L, 0x8_0000);
+    final PageTable table = table(ram, bios);
+
+    assertSame(ram, table.get(0x8001_0000L));
+    assertSame(ram, table.get(0xa01f_fffcL));
+    assertSame(bios, table.get(0x9fc0_0000L));
+    assertSame(bios, table.get(0xbfc0_1234L));
+
+    // KSEG2 isn't mirrored
+    assertNull(table.get(0xc000_0000L));
+    assertNull(table.get(0xffc0_0000L));
+  }
+
+  @Test
+  void splitsSharedPagesIntoSlots() {
+    final Segment first = new RamSegment(IO, 0x10);
+    final Segment second = new RamSegment(IO + 0x10, 0x20);
+    final Segment overlapping = new RamSegment(IO, 0x40);
+    final Segment nextPage = new RamSegment(IO + 0xff0, 0x20);
+    final PageTable table = table(first, second, overlapping, nextPage);
+
+    assertSame(first, table.get(IO));
+    assertSame(first, table.get(IO + 0xf));
+    assertSame(second, table.get(IO + 0x10));
+    assertSame(second, table.get(IO + 0x2f));
+    assertSame(overlapping, table.get(IO + 0x30), "Later segments fill the slots earlier ones leave empty");
+    assertNull(table.get(IO + 0x40));
+
+    assertSame(nextPage, table.get(IO + 0xff0));
+    assertSame(nextPage, table.get(IO + 0x1000), "A segment that only starts a page owns all of it");
+    assertSame(nextPage, table.get(IO + 0x1fff));
+  }
+
+  @Test
+  void mirrorsSharedPages() {
+    final Segment first = new RamSegment(IO, 0x10);
+    final Segment second = new RamSegment(IO + 0x10, 0x10);
+    final PageTable table = table(first, second);
+
+    assertSame(first, table.get(0x9f80_1000L));
+    assertSame(second, table.get(0xbf80_1018L));
+  }
+
+  @Test
+  void decoratesEachPage() {
+    final Segment ram = new RamSegment(0x0L, PageTable.PAGE_SIZE * 3);
+    final Segment decorated = new RamSegment(0x0L, PageTable.PAGE_SIZE * 3);
+    final List<Long> pages = new ArrayList<>();
+
+    final PageTable table = new PageTable(REGION_MASK);
+    table.rebuild(List.of(ram), (segment, pageAddress) -> {
+      pages.add(pageAddress);
+      return pageAddress == PageTable.PAGE_SIZE ? decorated : segment;
+    });
+
+    assertEquals(List.of(0x0L, (long)PageTable.PAGE_SIZE, PageTable.PAGE_SIZE * 2L), pages);
+    assertSame(ram, table.get(0x0L));
+    assertSame(decorated, table.get(PageTable.PAGE_SIZE));
+    assertSame(decorated, table.get(0x8000_0000L + PageTable.PAGE_SIZE + 4));
+    assertSame(ram, table.get(PageTable.PAGE_SIZE * 2));
+  }
+
+  @Test
+  void rebuildReplacesTheOldLayout() {
+    final Segment before = new RamSegment(0x0L, 0x1000);
+    final Segment after = new RamSegment(0x1000L, 0x1000);
+    final PageTable table = table(before);
+
+    table.rebuild(List.of(after), (segment, pageAddress) -> segment);
+
+    assertNull(table.get(0x0L));
+    assertSame(after, table.get(0x1000L));
+  }
+
+  private static PageTable table(final Segment... segments) {
+    final PageTable table = new PageTable(REGION_MASK);
+    table.rebuild(List.of(segments), (segment, pageAddress) -> segment);
+    return table;
+  }
+}
@@ -0,0 +1,88 @@
+package legend.core.memory;
+
+import legend.core.memory.segments.DirectRamSegment;
+import legend.core.memory.segments.RamSegment;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrimitiveViewTest {
+  private final Memory memory = new Memory();
+  private final RamSegment ram = new RamSegment(0x0L, 0x4000);
+  private final DirectRamSegment directRam = new DirectRamSegment(0x4000L, 0x4000, MemoryArena.create(0x4000));
+
+  PrimitiveViewTest() {
+    this.memory.addSegment(this.ram);
+    this.memory.addSegment(this.directRam);
+  }
+
+  public static void function() { }
+
+  @Test
+  void readsAndWritesPlainRamDirectly() {
+    for(final long address : new long[] {0x1000L, 0x5000L}) {
+      final Memory.IntView ints = this.memory.intView(address, 0x10);
+      final Memory.ShortView shorts = this.memory.shortView(address + 0x40, 0x10);
+      final Memory.ByteView bytes = this.memory.byteView(address + 0x60, 0x10);
+
+      ints.set(3, 0x1234_5678);
+      shorts.set(3, 0xbeef);
+      bytes.set(3, 0xa5);
+
+      assertEquals(0x1234_5678, ints.get(3));
+      assertEquals(0x1234_5678L, this.memory.get(address + 0xc, 4));
+      assertEquals(0xbeef, shorts.get(3) & 0xffff);
+      assertEquals(0xbeefL, this.memory.get(address + 0x46, 2));
+      assertEquals(0xa5, bytes.get(3));
+      assertEquals(0xa5L, this.memory.get(address + 0x63, 1));
+    }
+  }
+
+  @Test
+  void directWritesMarkPagesDirty() {
+    final int since = DirtyPageTracker.advanceEpoch();
+
+    this.memory.intView(0x2000L, 4).set(1, 1);
+    this.memory.byteView(0x6000L, 4).set(1, 1);
+
+    assertTrue(this.ram.getDirtyPages().isDirty(0x2000 >>> PageTable.PAGE_BITS, since));
+    assertEquals(1, this.ram.getDirtyPages().countDirty(since));
+    assertTrue(this.directRam.getDirtyPages().isDirty(0x2000 >>> PageTable.PAGE_BITS, since));
+  }
+
+  @Test
+  void watchedPagesTakeTheLockedPath() {
+    final Memory.IntView view = this.memory.intView(0x1000L, 0x800);
+    view.set(0, 1);
+
+    // Added after the view first went direct, so the view has to notice the page table change
+    final Watchpoint watch = this.memory.watch(0x1ff0L, 4, true, true, null);
+    view.set(0x3fc, 9);
+    assertEquals(9, view.get(0x3fc));
+    assertEquals(2, this.memory.getWatchLog().getHits().size());
+
+    this.memory.unwatch(watch);
+    view.set(0x3fc, 10);
+    assertEquals(10, view.get(0x3fc));
+    assertEquals(2, this.memory.getWatchLog().getHits().size());
+  }
+
+  @Test
+  void writesOverFunctionsUnbindThem() throws NoSuchMethodException {
+    final Method function = PrimitiveViewTest.class.getMethod("function");
+    this.ram.setFunction(0x104, function, null, false);
+    this.directRam.setFunction(0x104, function, null, false);
+
+    this.memory.intView(0x100L, 4).set(1, 5);
+    this.memory.shortView(0x4100L, 8).set(3, 5);
+
+    assertFalse(this.ram.isFunction(0x104));
+    assertFalse(this.directRam.isFunction(0x104));
+    assertEquals(5L, this.memory.get(0x104L, 4));
+    assertEquals(5L, this.memory.get(0x4106L, 2));
+  }
+}
@@ -0,0 +1,116 @@
+package legend.core.memory;
+
+import legend.core.memory.segments.RamSegment;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentFunctionTest {
+  private static final Method FUNCTION;
+  private static final Method OTHER;
+
+  static {
+    try {
+      FUNCTION = SegmentFunctionTest.class.getMethod("function");
+      OTHER = SegmentFunctionTest.class.getMethod("other", int.class);
+    } catch(final NoSuchMethodException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  public static void function() { }
+
+  public static int other(final int value) {
+    return value;
+  }
+
+  @Test
+  void bindsWholeWords() {
+    final Segment segment = new RamSegment(0x0L, 0x1000);
+    segment.setFunction(0x104, FUNCTION, null, false);
+
+    assertSame(FUNCTION, segment.getFunction(0x104).method());
+    assertTrue(segment.isFunction(0x104));
+    assertTrue(segment.isFunction(0x107));
+    assertFalse(segment.isFunction(0x100));
+    assertFalse(segment.isFunction(0x108));
+    assertThrows(UnsupportedOperationException.class, () -> segment.getFunction(0x100));
+  }
+
+  @Test
+  void writesUnbindTheWordsTheyTouch() {
+    final Segment segment = new RamSegment(0x0L, 0x1000);
+    segment.setFunction(0x0, FUNCTION, null, false);
+    segment.setFunction(0x4, FUNCTION, null, false);
+    segment.setFunction(0x8, FUNCTION, null, false);
+
+    segment.set(0x3, (byte)1);
+    segment.set(0x6, 2, 0xffffL);
+
+    assertFalse(segment.isFunction(0x0));
+    assertFalse(segment.isFunction(0x4));
+    assertTrue(segment.isFunction(0x8));
+    assertThrows(UnsupportedOperationException.class, () -> segment.getFunction(0x4));
+  }
+
+  @Test
+  void removesRangesAcrossBitmapWords() {
+    final Segment segment = new RamSegment(0x0L, 0x1000);
+
+    // 64 words per bitmap entry, so these span three entries
+    for(int offset = 0xf0; offset < 0x310; offset += 4) {
+      segment.setFunction(offset, FUNCTION, null, false);
+    }
+
+    segment.removeFunctions(0xfa, 0x302);
+
+    assertTrue(segment.isFunction(0xf4));
+    assertFalse(segment.isFunction(0xf8), "Words overlapping the start are removed");
+    assertFalse(segment.isFunction(0x200));
+    assertFalse(segment.isFunction(0x300), "Words overlapping the end are removed");
+    assertTrue(segment.isFunction(0x304));
+  }
+
+  @Test
+  void removesTablesOnlyWhereTheyAreStillBound() {
+    final Segment segment = new RamSegment(0x0L, 0x1000);
+    final int[] offsets = {0x10, 0x20, 0x30};
+    final MethodBinding[] table = {
+      new MethodBinding(FUNCTION, null, false),
+      new MethodBinding(FUNCTION, null, false),
+      new MethodBinding(FUNCTION, null, false),
+    };
+
+    segment.setFunctions(offsets, table);
+    segment.setFunction(0x20, OTHER, null, false);
+    assertTrue(segment.hasAnyFunction(offsets, table));
+
+    // Bindings are matched by method, so an equivalent table from a loaded state still matches
+    final MethodBinding[] reloaded = {
+      new MethodBinding(FUNCTION, null, false),
+      new MethodBinding(FUNCTION, null, false),
+      new MethodBinding(FUNCTION, null, false),
+    };
+    segment.removeFunctions(offsets, reloaded);
+
+    assertFalse(segment.isFunction(0x10));
+    assertSame(OTHER, segment.getFunction(0x20).method(), "Rebound words are left alone");
+    assertFalse(segment.isFunction(0x30));
+    assertFalse(segment.hasAnyFunction(offsets, table));
+  }
+
+  @Test
+  void bitmapCoversTheLastPartialWord() {
+    final Segment segment = new RamSegment(0x0L, 0x102);
+    segment.setFunction(0x100, FUNCTION, null, false);
+
+    assertTrue(segment.isFunction(0x101));
+    segment.removeFunctions(0x0, 0x102);
+    assertFalse(segment.isFunction(0x100));
+  }
+}
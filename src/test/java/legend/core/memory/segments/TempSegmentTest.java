@@ -0,0 +1,116 @@
+package legend.core.memory.segments;
+
+import legend.core.memory.IllegalAddressException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TempSegmentTest {
+  @Test
+  void releasesReturnChunksToThePool() {
+    final TempSegment temp = new TempSegment();
+    final int a = temp.allocate(4);
+    final int b = temp.allocate(8);
+    final int c = temp.allocate(0x100);
+    final int d = temp.allocate(6);
+
+    assertEquals(a + 4, b, "Allocations are bumped off the same chunk while they fit");
+    assertEquals(0x300, temp.getStats().bytesClaimed());
+
+    // Chunks below the top of the stack are given back as soon as they empty out
+    temp.release(a, 4);
+    temp.release(b, 8);
+    assertEquals(0x200, temp.getStats().bytesClaimed());
+
+    temp.release(d, 6);
+    temp.release(c, 0x100);
+    final TempSegment.Stats stats = temp.getStats();
+    assertEquals(0, stats.bytesInUse());
+    assertEquals(0, stats.bytesClaimed());
+    assertEquals(4, stats.allocations());
+    assertEquals(4, stats.releases());
+    assertEquals(0x112, stats.highWaterMark());
+  }
+
+  @Test
+  void rejectsStaleReleases() {
+    final TempSegment temp = new TempSegment();
+    final int a = temp.allocate(8);
+    temp.allocate(4);
+
+    temp.release(a, 8);
+    assertThrows(IllegalAddressException.class, () -> temp.release(a, 8));
+    assertThrows(IllegalAddressException.class, () -> temp.get(a));
+    assertThrows(IllegalAddressException.class, () -> temp.release(0x800, 4));
+  }
+
+  @Test
+  void otherThreadsCanRelease() throws InterruptedException {
+    final TempSegment temp = new TempSegment();
+    final int offset = temp.allocate(4);
+    temp.set(offset, 4, 0x12345678L);
+
+    final AtomicInteger read = new AtomicInteger();
+    final Thread thread = new Thread(() -> {
+      read.set((int)temp.get(offset, 4));
+      temp.release(offset, 4);
+    });
+    thread.start();
+    thread.join();
+
+    assertEquals(0x12345678, read.get());
+    assertEquals(0, temp.getStats().bytesClaimed());
+  }
+
+  @Test
+  void reclaimsArenasOfExitedThreads() throws InterruptedException {
+    final TempSegment temp = new TempSegment();
+
+    final Thread thread = new Thread(() -> temp.allocate(0x800));
+    thread.start();
+    thread.join();
+    assertEquals(0x800, temp.getStats().bytesInUse());
+
+    // The other half of the pool only runs dry after the leaked reservation has been reclaimed
+    final List<Integer> offsets = new ArrayList<>();
+    for(int i = 0; i < 0x10; i++) {
+      offsets.add(temp.allocate(0x100));
+    }
+
+    assertEquals(0x1000, temp.getStats().bytesInUse());
+    assertThrows(RuntimeException.class, () -> temp.allocate(4));
+
+    for(final int offset : offsets) {
+      temp.release(offset, 0x100);
+    }
+
+    assertEquals(0, temp.getStats().bytesClaimed());
+  }
+
+  @Test
+  void loadedReservationsCanBeReleased() {
+    final TempSegment temp = new TempSegment();
+    final int a = temp.allocate(4);
+    final int b = temp.allocate(0x180);
+    temp.set(a, 4, 0xcafeL);
+
+    final ByteBuffer state = ByteBuffer.allocate(0x2000);
+    temp.dump(state);
+
+    final TempSegment loaded = new TempSegment();
+    loaded.load(state.flip());
+    assertEquals(0xcafeL, loaded.get(a, 4));
+    assertEquals(0x184, loaded.getStats().bytesInUse());
+
+    loaded.release(b, 0x180);
+    loaded.release(a, 4);
+    assertEquals(0, loaded.getStats().bytesClaimed());
+    assertEquals(0, loaded.allocate(4), "Chunks are handed out again once they're free");
+  }
+}